@@ -0,0 +1,130 @@
+package se.liu.jonla400.project.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import se.liu.jonla400.project.main.world.WorldGUI;
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
+import se.liu.jonla400.project.physics.main.BodyStore;
+import se.liu.jonla400.project.physics.main.GraphColoringVelocitySolver;
+import se.liu.jonla400.project.physics.main.IslandVelocitySolver;
+import se.liu.jonla400.project.physics.main.PhysicsEngine;
+import se.liu.jonla400.project.physics.main.SequentialVelocitySolver;
+import se.liu.jonla400.project.physics.main.VelocitySolver;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Represents the command line program that checks that the solver path of a warmed up {@link PhysicsEngine} is
+ * allocation-free: solving the velocity constraints of a tick must allocate no memory. This is checked by
+ * measuring the thread allocation counter of the JVM around each solve while ticking a few piles of circles in
+ * funnels (see {@link FunnelScene}). The check is run once with each {@link VelocitySolver}, and the parallel
+ * solvers are given a pool of several threads even on a single core, so that their parallel paths are taken.
+ *
+ * Only the solver path is checked. Collision detection describes each contact with a new collision data and
+ * contact key, and the collision handler remembers the contacts that begin in a hash map, so the rest of the tick
+ * does allocate. After the warm up, every measured tick must allocate nothing while solving, or the program exits
+ * with a non-zero status.
+ *
+ * Only the allocations of the calling thread are measured, which are the allocations of everything but the
+ * tasks that the parallel solvers run on the pool.
+ */
+public class AllocationCheck
+{
+    private final static ThreadMXBean THREAD_BEAN = ManagementFactory.getPlatformMXBean(ThreadMXBean.class);
+
+    private final static double TICK_RATE = WorldGUI.DEFAULT_TICK_RATE;
+    private final static int PILE_COUNT = 2;
+    private final static int CIRCLES_PER_PILE = 300;
+    private final static int WARMUP_TICKS = 3_000;
+    private final static int MEASURED_TICKS = 1_000;
+    private final static int POOL_PARALLELISM = 4;
+
+    public static void main(String[] args) {
+	if (!THREAD_BEAN.isThreadAllocatedMemorySupported() || !THREAD_BEAN.isThreadAllocatedMemoryEnabled()) {
+	    System.err.println("The JVM does not measure the memory allocated by each thread");
+	    System.exit(1);
+	}
+
+	final ForkJoinPool pool = new ForkJoinPool(POOL_PARALLELISM);
+	boolean passed = check("sequential", new SequentialVelocitySolver());
+	passed &= check("island", IslandVelocitySolver.create(pool));
+	passed &= check("graphColoring", GraphColoringVelocitySolver.create(pool));
+	pool.shutdown();
+
+	if (!passed) {
+	    System.exit(1);
+	}
+    }
+
+    /**
+     * Warms up and measures the funnel scene with the given solver, and prints the results
+     *
+     * @return Whether solving allocated nothing during any measured tick
+     */
+    private static boolean check(final String solverName, final VelocitySolver velSolver) {
+	final MeasuredVelocitySolver measuredSolver = new MeasuredVelocitySolver(velSolver);
+	final PhysicsEngine engine = PhysicsEngine.createWithDefaultVelIterations();
+	engine.setVelSolver(measuredSolver);
+	final FunnelScene scene = FunnelScene.create(engine, PILE_COUNT, CIRCLES_PER_PILE);
+
+	final double deltaTime = 1 / TICK_RATE;
+	for (int i = 0; i < WARMUP_TICKS; i++) {
+	    scene.tick(deltaTime);
+	}
+
+	long totalBytes = 0;
+	long solverBytes = 0;
+	int allocatingTickCount = 0;
+	long maxTickSolverBytes = 0;
+	for (int i = 0; i < MEASURED_TICKS; i++) {
+	    final long solverBytesBefore = measuredSolver.allocatedBytes;
+	    final long bytesBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+	    scene.tick(deltaTime);
+	    totalBytes += THREAD_BEAN.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+	    final long tickSolverBytes = measuredSolver.allocatedBytes - solverBytesBefore;
+	    solverBytes += tickSolverBytes;
+	    if (tickSolverBytes > 0) {
+		allocatingTickCount++;
+		maxTickSolverBytes = Math.max(maxTickSolverBytes, tickSolverBytes);
+	    }
+	}
+
+	final boolean passed = solverBytes == 0;
+	System.out.printf("%-14s %s: %.1f B/tick in total, of which %.1f B/tick while solving%n",
+			  solverName, passed ? "passed" : "FAILED", (double) totalBytes / MEASURED_TICKS,
+			  (double) solverBytes / MEASURED_TICKS);
+	if (!passed) {
+	    System.out.printf("%-14s solving allocated during %d of %d ticks, at most %d B in a tick%n",
+			      "", allocatingTickCount, MEASURED_TICKS, maxTickSolverBytes);
+	}
+	return passed;
+    }
+
+    /**
+     * Measures the memory allocated by the calling thread while solving with another solver
+     */
+    private static class MeasuredVelocitySolver implements VelocitySolver
+    {
+	private final VelocitySolver velSolver;
+	private long allocatedBytes = 0;
+
+	private MeasuredVelocitySolver(final VelocitySolver velSolver) {
+	    this.velSolver = velSolver;
+	}
+
+	@Override public void solve(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	    final long bytesBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+	    velSolver.solve(velConstraint, bodyStore);
+	    allocatedBytes += THREAD_BEAN.getCurrentThreadAllocatedBytes() - bytesBefore;
+	}
+
+	@Override public int getLastIterationCount() {
+	    return velSolver.getLastIterationCount();
+	}
+
+	@Override public double getLastResidual() {
+	    return velSolver.getLastResidual();
+	}
+    }
+}
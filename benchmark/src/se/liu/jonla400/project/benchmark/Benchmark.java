@@ -0,0 +1,94 @@
+package se.liu.jonla400.project.benchmark;
+
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Represents a named piece of code to measure the performance of, see {@link BenchmarkRunner}. The code is
+ * measured in iterations of a fixed number of operations. Before each iteration, fresh state is set up outside
+ * of the measurement, and an operation to perform on that state is returned.
+ *
+ * Each operation returns a value derived from what it computed. The runner combines the values so that the
+ * just-in-time compiler can not remove the computations as unused. If the value is meaningful in itself, such
+ * as the accuracy of what was computed, the benchmark can name it so that its mean is reported as well.
+ */
+public class Benchmark
+{
+    private String name;
+    private int operationsPerIteration;
+    private String reportedValueName;
+    private Supplier<DoubleSupplier> setUp;
+
+    private Benchmark(final String name, final int operationsPerIteration, final String reportedValueName,
+		      final Supplier<DoubleSupplier> setUp)
+    {
+	this.name = name;
+	this.operationsPerIteration = operationsPerIteration;
+	this.reportedValueName = reportedValueName;
+	this.setUp = setUp;
+    }
+
+    /**
+     * Creates a Benchmark
+     *
+     * @param name The name of the benchmark
+     * @param operationsPerIteration The number of operations to perform each iteration, must be positive
+     * @param setUp Sets up fresh state and returns the operation to perform on it
+     * @return The created Benchmark
+     */
+    public static Benchmark create(final String name, final int operationsPerIteration, final Supplier<DoubleSupplier> setUp) {
+	if (operationsPerIteration <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of operations per iteration: " + operationsPerIteration);
+	}
+	return new Benchmark(name, operationsPerIteration, null, setUp);
+    }
+
+    /**
+     * Creates a Benchmark whose operations return a meaningful value, whose mean is reported under the given name
+     *
+     * @param name The name of the benchmark
+     * @param operationsPerIteration The number of operations to perform each iteration, must be positive
+     * @param reportedValueName The name of the value returned by each operation
+     * @param setUp Sets up fresh state and returns the operation to perform on it
+     * @return The created Benchmark
+     */
+    public static Benchmark createReportingValue(final String name, final int operationsPerIteration,
+						 final String reportedValueName, final Supplier<DoubleSupplier> setUp)
+    {
+	if (operationsPerIteration <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of operations per iteration: " + operationsPerIteration);
+	}
+	return new Benchmark(name, operationsPerIteration, reportedValueName, setUp);
+    }
+
+    /**
+     * @return The name of this benchmark
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * @return The number of operations to perform each iteration
+     */
+    public int getOperationsPerIteration() {
+	return operationsPerIteration;
+    }
+
+    /**
+     * @return The name of the value returned by each operation, or empty if the value is not meaningful
+     */
+    public Optional<String> getReportedValueName() {
+	return Optional.ofNullable(reportedValueName);
+    }
+
+    /**
+     * Sets up fresh state for an iteration
+     *
+     * @return The operation to perform on the state
+     */
+    public DoubleSupplier setUp() {
+	return setUp.get();
+    }
+}
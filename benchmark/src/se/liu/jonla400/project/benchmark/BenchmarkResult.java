@@ -0,0 +1,75 @@
+package se.liu.jonla400.project.benchmark;
+
+/**
+ * Represents the measurements of a {@link Benchmark}: the throughput, how much memory each operation
+ * allocated, how much garbage collection the measurement caused and the mean value returned by the operations
+ */
+public class BenchmarkResult
+{
+    private final String name;
+    private final double meanOperationsPerSecond;
+    private final double stdDevOperationsPerSecond;
+    private final double allocatedBytesPerOperation;
+    private final double allocatedMegabytesPerSecond;
+    private final long gcCount;
+    private final long gcMillis;
+    private final double meanOperationValue;
+
+    /**
+     * Creates a BenchmarkResult
+     *
+     * @param name The name of the measured benchmark
+     * @param meanOperationsPerSecond The mean throughput of the measured iterations
+     * @param stdDevOperationsPerSecond The standard deviation of the throughput of the measured iterations
+     * @param allocatedBytesPerOperation The mean number of bytes allocated per operation, or NaN if not measurable
+     * @param allocatedMegabytesPerSecond The allocation rate in megabytes per second, or NaN if not measurable
+     * @param gcCount The number of garbage collections during the measured iterations
+     * @param gcMillis The time in milliseconds spent on garbage collections during the measured iterations
+     * @param meanOperationValue The mean value returned by the operations of the measured iterations
+     */
+    public BenchmarkResult(final String name, final double meanOperationsPerSecond, final double stdDevOperationsPerSecond,
+			   final double allocatedBytesPerOperation, final double allocatedMegabytesPerSecond, final long gcCount,
+			   final long gcMillis, final double meanOperationValue)
+    {
+	this.name = name;
+	this.meanOperationsPerSecond = meanOperationsPerSecond;
+	this.stdDevOperationsPerSecond = stdDevOperationsPerSecond;
+	this.allocatedBytesPerOperation = allocatedBytesPerOperation;
+	this.allocatedMegabytesPerSecond = allocatedMegabytesPerSecond;
+	this.gcCount = gcCount;
+	this.gcMillis = gcMillis;
+	this.meanOperationValue = meanOperationValue;
+    }
+
+    public String getName() {
+	return name;
+    }
+
+    public double getMeanOperationsPerSecond() {
+	return meanOperationsPerSecond;
+    }
+
+    public double getStdDevOperationsPerSecond() {
+	return stdDevOperationsPerSecond;
+    }
+
+    public double getAllocatedBytesPerOperation() {
+	return allocatedBytesPerOperation;
+    }
+
+    public double getAllocatedMegabytesPerSecond() {
+	return allocatedMegabytesPerSecond;
+    }
+
+    public long getGcCount() {
+	return gcCount;
+    }
+
+    public long getGcMillis() {
+	return gcMillis;
+    }
+
+    public double getMeanOperationValue() {
+	return meanOperationValue;
+    }
+}
@@ -0,0 +1,167 @@
+package se.liu.jonla400.project.benchmark;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Measures {@link Benchmark}s on the calling thread. Each benchmark is first run for a number of warmup
+ * iterations, which give the just-in-time compiler time to optimize the code and are then discarded. The
+ * throughput of each of the following measured iterations is recorded, along with the memory allocated by the
+ * calling thread, the garbage collections that occurred while measuring and the values returned by the operations.
+ *
+ * Allocations are measured through the thread allocation counter of the JVM. If the JVM does not support or
+ * has disabled the counter, the allocation results are NaN.
+ */
+public class BenchmarkRunner
+{
+    private final static double NANOSECONDS_PER_SECOND = 1.0e9;
+    private final static double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final static ThreadMXBean THREAD_BEAN = ManagementFactory.getPlatformMXBean(ThreadMXBean.class);
+
+    private int warmupIterations;
+    private int measuredIterations;
+
+    // Combines the values of every operation, so that no operation can be removed as unused
+    private volatile double sink;
+    // The sum of the values of the operations of the last iteration
+    private double lastIterationValueSum;
+
+    private BenchmarkRunner(final int warmupIterations, final int measuredIterations) {
+	this.warmupIterations = warmupIterations;
+	this.measuredIterations = measuredIterations;
+	sink = 0;
+	lastIterationValueSum = 0;
+    }
+
+    /**
+     * Creates a BenchmarkRunner
+     *
+     * @param warmupIterations The number of iterations to run before measuring, must not be negative
+     * @param measuredIterations The number of iterations to measure, must be positive
+     * @return The created BenchmarkRunner
+     */
+    public static BenchmarkRunner create(final int warmupIterations, final int measuredIterations) {
+	if (warmupIterations < 0) {
+	    throw new IllegalArgumentException("Negative number of warmup iterations: " + warmupIterations);
+	}
+	if (measuredIterations <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of measured iterations: " + measuredIterations);
+	}
+	return new BenchmarkRunner(warmupIterations, measuredIterations);
+    }
+
+    /**
+     * Warms up and measures the given benchmark
+     *
+     * @param benchmark The benchmark to measure
+     * @return The measurements
+     */
+    public BenchmarkResult run(final Benchmark benchmark) {
+	for (int i = 0; i < warmupIterations; i++) {
+	    runIteration(benchmark);
+	}
+
+	final double[] operationsPerSecond = new double[measuredIterations];
+	long totalNanoTime = 0;
+	long allocatedBytes = 0;
+	double valueSum = 0;
+	final long gcCountBefore = getGcCount();
+	final long gcMillisBefore = getGcMillis();
+	for (int i = 0; i < measuredIterations; i++) {
+	    final long allocatedBytesBefore = getAllocatedBytes();
+	    final long nanoTime = runIteration(benchmark);
+	    allocatedBytes += getAllocatedBytes() - allocatedBytesBefore;
+	    totalNanoTime += nanoTime;
+	    valueSum += lastIterationValueSum;
+	    operationsPerSecond[i] = benchmark.getOperationsPerIteration() * NANOSECONDS_PER_SECOND / nanoTime;
+	}
+	final long gcCount = getGcCount() - gcCountBefore;
+	final long gcMillis = getGcMillis() - gcMillisBefore;
+
+	final double mean = computeMean(operationsPerSecond);
+	final double stdDev = computeStdDev(operationsPerSecond, mean);
+	final long totalOperations = (long) benchmark.getOperationsPerIteration() * measuredIterations;
+	final double bytesPerOperation = isAllocationMeasurable() ? (double) allocatedBytes / totalOperations : Double.NaN;
+	final double megabytesPerSecond = isAllocationMeasurable() ?
+					  allocatedBytes / BYTES_PER_MEGABYTE / (totalNanoTime / NANOSECONDS_PER_SECOND) :
+					  Double.NaN;
+	return new BenchmarkResult(benchmark.getName(), mean, stdDev, bytesPerOperation, megabytesPerSecond, gcCount, gcMillis,
+				   valueSum / totalOperations);
+    }
+
+    /**
+     * Sets up and runs one iteration of the benchmark
+     *
+     * @return The number of nanoseconds that the operations took, excluding the set up
+     */
+    private long runIteration(final Benchmark benchmark) {
+	final DoubleSupplier operation = benchmark.setUp();
+	final int operations = benchmark.getOperationsPerIteration();
+
+	double combinedValue = 0;
+	final long startNanoTime = System.nanoTime();
+	for (int i = 0; i < operations; i++) {
+	    combinedValue += operation.getAsDouble();
+	}
+	final long nanoTime = System.nanoTime() - startNanoTime;
+
+	sink += combinedValue;
+	lastIterationValueSum = combinedValue;
+	return nanoTime;
+    }
+
+    private static double computeMean(final double[] values) {
+	double sum = 0;
+	for (double value : values) {
+	    sum += value;
+	}
+	return sum / values.length;
+    }
+
+    private static double computeStdDev(final double[] values, final double mean) {
+	if (values.length < 2) {
+	    return 0;
+	}
+	double sumOfSquaredDiffs = 0;
+	for (double value : values) {
+	    sumOfSquaredDiffs += (value - mean) * (value - mean);
+	}
+	return Math.sqrt(sumOfSquaredDiffs / (values.length - 1));
+    }
+
+    private static boolean isAllocationMeasurable() {
+	return THREAD_BEAN.isThreadAllocatedMemorySupported() && THREAD_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    private static long getAllocatedBytes() {
+	if (!isAllocationMeasurable()) {
+	    return 0;
+	}
+	return THREAD_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long getGcCount() {
+	long count = 0;
+	for (GarbageCollectorMXBean gcBean : getGcBeans()) {
+	    count += Math.max(0, gcBean.getCollectionCount()); // -1 if undefined
+	}
+	return count;
+    }
+
+    private static long getGcMillis() {
+	long millis = 0;
+	for (GarbageCollectorMXBean gcBean : getGcBeans()) {
+	    millis += Math.max(0, gcBean.getCollectionTime()); // -1 if undefined
+	}
+	return millis;
+    }
+
+    private static List<GarbageCollectorMXBean> getGcBeans() {
+	return ManagementFactory.getGarbageCollectorMXBeans();
+    }
+}
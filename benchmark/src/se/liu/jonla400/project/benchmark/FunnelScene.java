@@ -0,0 +1,152 @@
+package se.liu.jonla400.project.benchmark;
+
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.CollisionHandler;
+import se.liu.jonla400.project.physics.collision.CollisionListener;
+import se.liu.jonla400.project.physics.collision.implementation.CircleCollider;
+import se.liu.jonla400.project.physics.collision.implementation.CollisionWorld;
+import se.liu.jonla400.project.physics.collision.implementation.CustomCollider;
+import se.liu.jonla400.project.physics.collision.implementation.CustomShape;
+import se.liu.jonla400.project.physics.collision.implementation.LineSegment;
+import se.liu.jonla400.project.physics.collision.implementation.TranslatedCustomShape;
+import se.liu.jonla400.project.physics.main.Body;
+import se.liu.jonla400.project.physics.main.PhysicsEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Piles of circles resting in funnels with closed spouts, for measuring the physics engine on large groups of
+ * touching bodies. Every circle touches its neighbours, so the constraints of each pile form one island. The
+ * circles start in rows that fill the funnel from the bottom, and fall into place under gravity.
+ *
+ * Each pile has a collision world of its own, so the piles never touch each other even though they are in the
+ * same place. Sleeping is turned off, so that the piles are solved every time step no matter how still they are.
+ */
+class FunnelScene
+{
+    private final static double GRAVITY = -9.82;
+    private final static double CIRCLE_RADIUS = 0.5;
+    private final static double CIRCLE_SPACING = 2.1 * CIRCLE_RADIUS;
+    private final static double SPOUT_HALF_WIDTH = 2;
+    private final static double RIM_HALF_WIDTH = 20;
+    private final static double HEIGHT = 40;
+
+    private PhysicsEngine engine;
+    private List<Body> circleBodies;
+    private List<CollisionHandler<Void>> collisionHandlers;
+
+    private FunnelScene(final PhysicsEngine engine, final List<Body> circleBodies,
+			final List<CollisionHandler<Void>> collisionHandlers)
+    {
+	this.engine = engine;
+	this.circleBodies = circleBodies;
+	this.collisionHandlers = collisionHandlers;
+    }
+
+    /**
+     * Creates a FunnelScene with a single pile that is simulated by the given engine, which should be empty
+     *
+     * @param engine The engine to add the funnel and the circles to
+     * @param circleCount The number of circles, which must fit in the funnel
+     * @return The created FunnelScene
+     */
+    static FunnelScene create(final PhysicsEngine engine, final int circleCount) {
+	return create(engine, 1, circleCount);
+    }
+
+    /**
+     * Creates a FunnelScene that is simulated by the given engine, which should be empty
+     *
+     * @param engine The engine to add the funnels and the circles to
+     * @param pileCount The number of separate piles
+     * @param circlesPerPile The number of circles of each pile, which must fit in a funnel
+     * @return The created FunnelScene
+     */
+    static FunnelScene create(final PhysicsEngine engine, final int pileCount, final int circlesPerPile) {
+	final List<Body> circleBodies = new ArrayList<>();
+	final List<CollisionHandler<Void>> collisionHandlers = new ArrayList<>();
+	for (int i = 0; i < pileCount; i++) {
+	    final CollisionWorld<Void> collisionWorld = CollisionWorld.createWithDefaultUniformMaterial(null);
+	    addPile(engine, collisionWorld, circlesPerPile, circleBodies);
+	    final CollisionHandler<Void> collisionHandler =
+		    CollisionHandler.createWithDefaultConfig(collisionWorld);
+	    engine.add(collisionHandler);
+	    collisionHandlers.add(collisionHandler);
+	}
+	engine.setSleepThresholds(0, 0, Double.POSITIVE_INFINITY);
+	return new FunnelScene(engine, circleBodies, collisionHandlers);
+    }
+
+    private static void addPile(final PhysicsEngine engine, final CollisionWorld<Void> collisionWorld, final int circleCount,
+				final List<Body> circleBodies)
+    {
+	final Body funnelBody = Body.create(Vector2D.createZero(), Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	collisionWorld.addCustom(new CustomCollider<>(
+		funnelBody, TranslatedCustomShape.copyTranslation(Vector2D.createZero(), createFunnelShape())));
+	engine.add(funnelBody);
+
+	int addedCount = 0;
+	double y = CIRCLE_RADIUS;
+	while (addedCount < circleCount) {
+	    if (y > HEIGHT) {
+		throw new IllegalArgumentException("The funnel can not fit " + circleCount + " circles");
+	    }
+	    final double halfWidth = getHalfWidthAt(y) - CIRCLE_SPACING;
+	    for (double x = -halfWidth; x <= halfWidth && addedCount < circleCount; x += CIRCLE_SPACING) {
+		final Body circleBody = Body.create(Vector2D.createCartesian(x, y), 1, 0.5 * CIRCLE_RADIUS * CIRCLE_RADIUS);
+		collisionWorld.addCircle(new CircleCollider(circleBody, CIRCLE_RADIUS));
+		engine.add(circleBody);
+		circleBodies.add(circleBody);
+		addedCount++;
+	    }
+	    y += CIRCLE_SPACING;
+	}
+    }
+
+    private static CustomShape<Void> createFunnelShape() {
+	final Vector2D leftRim = Vector2D.createCartesian(-RIM_HALF_WIDTH, HEIGHT);
+	final Vector2D leftSpout = Vector2D.createCartesian(-SPOUT_HALF_WIDTH, 0);
+	final Vector2D rightSpout = Vector2D.createCartesian(SPOUT_HALF_WIDTH, 0);
+	final Vector2D rightRim = Vector2D.createCartesian(RIM_HALF_WIDTH, HEIGHT);
+	return CustomShape.copyFrom(List.of(LineSegment.copyEndPoints(leftRim, leftSpout, null),
+					    LineSegment.copyEndPoints(leftSpout, rightSpout, null),
+					    LineSegment.copyEndPoints(rightSpout, rightRim, null)));
+    }
+
+    /**
+     * @return Half of the width of the inside of the funnel at the given height
+     */
+    private static double getHalfWidthAt(final double y) {
+	return SPOUT_HALF_WIDTH + (RIM_HALF_WIDTH - SPOUT_HALF_WIDTH) * y / HEIGHT;
+    }
+
+    /**
+     * Applies gravity to the circles and ticks the engine
+     *
+     * @param deltaTime The size of the time step
+     */
+    void tick(final double deltaTime) {
+	for (int i = 0; i < circleBodies.size(); i++) {
+	    final Body circleBody = circleBodies.get(i);
+	    circleBody.applyImpulse(0, circleBody.getMass() * GRAVITY * deltaTime);
+	}
+	engine.tick(deltaTime);
+    }
+
+    /**
+     * @param listener The listener to tell about the contacts of every pile
+     */
+    void addCollisionListener(final CollisionListener<Void> listener) {
+	for (CollisionHandler<Void> collisionHandler : collisionHandlers) {
+	    collisionHandler.addListener(listener);
+	}
+    }
+
+    /**
+     * @return The engine that simulates this scene
+     */
+    PhysicsEngine getEngine() {
+	return engine;
+    }
+}
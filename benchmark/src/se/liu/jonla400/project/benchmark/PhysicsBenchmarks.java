@@ -0,0 +1,315 @@
+package se.liu.jonla400.project.benchmark;
+
+import com.google.gson.JsonSyntaxException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.filehandling.LevelIO;
+import se.liu.jonla400.project.main.game.LevelWorld;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+import se.liu.jonla400.project.main.world.WorldGUI;
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.ActiveCollisionConstraint;
+import se.liu.jonla400.project.physics.collision.CollisionData;
+import se.liu.jonla400.project.physics.collision.implementation.CircleCollider;
+import se.liu.jonla400.project.physics.collision.implementation.CircleVsCustomCollisionDetector;
+import se.liu.jonla400.project.physics.collision.implementation.CustomCollider;
+import se.liu.jonla400.project.physics.collision.implementation.CustomShape;
+import se.liu.jonla400.project.physics.collision.implementation.LineSegment;
+import se.liu.jonla400.project.physics.collision.implementation.TranslatedCustomShape;
+import se.liu.jonla400.project.physics.main.Body;
+import se.liu.jonla400.project.physics.main.GraphColoringVelocitySolver;
+import se.liu.jonla400.project.physics.main.IslandVelocitySolver;
+import se.liu.jonla400.project.physics.main.PhysicsEngine;
+import se.liu.jonla400.project.physics.main.SequentialVelocitySolver;
+import se.liu.jonla400.project.physics.main.VelocitySolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Represents the command line program that measures the performance of the physics pipeline with a
+ * {@link BenchmarkRunner}. The following benchmarks are measured, and can be filtered by name with --filter:
+ *
+ * <ul>
+ *     <li>tick/levelX: ticking each level of the game while the level is held still. An iteration plays the
+ *     first ten seconds of the level, starting over from the level definition each iteration.</li>
+ *     <li>detectCollisions/N: detecting the collisions between a circle and a shape of N line segments, of
+ *     which the circle touches a few.</li>
+ *     <li>detectCollisions/distanceField/N: the same, but with a distance field over the shape (see
+ *     {@link CustomShape#withDistanceField}).</li>
+ *     <li>updateImpulse: solving a single collision constraint between a falling circle and a line segment.</li>
+ *     <li>solver/X: ticking a pile of circles in a funnel (see {@link FunnelScene}) that has settled before the
+ *     measurement, with each {@link VelocitySolver}. The velocity constraints are solved for a fixed number of
+ *     iterations, and the residual after the last iteration is reported along with the throughput.</li>
+ *     <li>vector/X: arithmetic on {@link Vector2D}, both with and without creating new vectors.</li>
+ * </ul>
+ *
+ * Each benchmark is reported with its throughput (mean and standard deviation over the measured iterations),
+ * the number of bytes allocated per operation, the allocation rate and the garbage collections while measuring,
+ * as well as the mean of the value returned by each operation if the benchmark names it.
+ */
+public class PhysicsBenchmarks
+{
+    private final static Logger LOGGER = Logger.getLogger(PhysicsBenchmarks.class.getName());
+
+    private final static String MANIFEST_RESOURCE_NAME = "levels/manifest.txt";
+    // Ticks at the rate the game is played at, so that the levels and the solvers see game-sized time steps
+    private final static double TICK_RATE = WorldGUI.DEFAULT_TICK_RATE;
+    private final static int TICKS_PER_ITERATION = 10 * (int) TICK_RATE;
+
+    private final static int[] SEGMENT_COUNTS = { 10, 1_000, 100_000 };
+    private final static int DETECTIONS_PER_ITERATION = 100_000;
+    private final static double CIRCLE_RADIUS = 1;
+    private final static int IMPULSE_UPDATES_PER_ITERATION = 1_000_000;
+    private final static int VECTOR_OPERATIONS_PER_ITERATION = 10_000_000;
+
+    private final static int FUNNEL_CIRCLE_COUNT = 600;
+    private final static int FUNNEL_SETTLE_TICKS = 3 * (int) TICK_RATE;
+    private final static int FUNNEL_TICKS_PER_ITERATION = (int) TICK_RATE;
+    private final static int SOLVER_VEL_ITERATIONS = 10;
+
+    private final static int DEFAULT_WARMUP_ITERATIONS = 10;
+    private final static int DEFAULT_MEASURED_ITERATIONS = 20;
+
+    private final static String FILTER_OPTION = "filter";
+    private final static String WARMUP_OPTION = "warmup";
+    private final static String ITERATIONS_OPTION = "iterations";
+    private final static String HELP_OPTION = "help";
+
+    public static void main(String[] args) {
+	System.setProperty("java.awt.headless", "true");
+
+	final Options options = createOptions();
+	try {
+	    final CommandLine commandLine = new DefaultParser().parse(options, args);
+	    if (commandLine.hasOption(HELP_OPTION)) {
+		printHelp(options);
+		return;
+	    }
+	    final Pattern filter = Pattern.compile(commandLine.getOptionValue(FILTER_OPTION, ""));
+	    final BenchmarkRunner runner = BenchmarkRunner.create(
+		    parseInt(commandLine, WARMUP_OPTION, DEFAULT_WARMUP_ITERATIONS),
+		    parseInt(commandLine, ITERATIONS_OPTION, DEFAULT_MEASURED_ITERATIONS));
+	    runBenchmarks(runner, filter);
+	} catch (ParseException | IllegalArgumentException e) {
+	    System.err.println(e.getMessage());
+	    printHelp(options);
+	    System.exit(1);
+	}
+    }
+
+    private static Options createOptions() {
+	final Options options = new Options();
+	options.addOption(Option.builder("f").longOpt(FILTER_OPTION).hasArg().argName("regex")
+				.desc("Only run the benchmarks whose names contain a match of the regex").build());
+	options.addOption(Option.builder("w").longOpt(WARMUP_OPTION).hasArg().argName("count")
+				.desc("The number of warmup iterations (default: " + DEFAULT_WARMUP_ITERATIONS + ")").build());
+	options.addOption(Option.builder("i").longOpt(ITERATIONS_OPTION).hasArg().argName("count")
+				.desc("The number of measured iterations (default: " + DEFAULT_MEASURED_ITERATIONS + ")").build());
+	options.addOption(Option.builder("h").longOpt(HELP_OPTION).desc("Print this message").build());
+	return options;
+    }
+
+    private static void printHelp(final Options options) {
+	new HelpFormatter().printHelp("PhysicsBenchmarks [options]", options);
+    }
+
+    private static int parseInt(final CommandLine commandLine, final String option, final int defaultValue) throws ParseException {
+	final String value = commandLine.getOptionValue(option, String.valueOf(defaultValue));
+	try {
+	    return Integer.parseInt(value);
+	} catch (NumberFormatException e) {
+	    throw new ParseException("The value of --" + option + " must be an integer, but was: " + value);
+	}
+    }
+
+    private static void runBenchmarks(final BenchmarkRunner runner, final Pattern filter) {
+	System.out.printf("%-40s %16s %14s %12s %12s %8s %8s%n",
+			  "Benchmark", "ops/s", "stddev", "B/op", "MB/s", "GCs", "GC ms");
+	for (Benchmark benchmark : createBenchmarks()) {
+	    if (!filter.matcher(benchmark.getName()).find()) {
+		continue;
+	    }
+	    final BenchmarkResult result = runner.run(benchmark);
+	    System.out.printf("%-40s %16.1f %14.1f %12.1f %12.1f %8d %8d",
+			      result.getName(), result.getMeanOperationsPerSecond(), result.getStdDevOperationsPerSecond(),
+			      result.getAllocatedBytesPerOperation(), result.getAllocatedMegabytesPerSecond(),
+			      result.getGcCount(), result.getGcMillis());
+	    benchmark.getReportedValueName().ifPresent(
+		    valueName -> System.out.printf("   %s: %.3e", valueName, result.getMeanOperationValue()));
+	    System.out.println();
+	}
+    }
+
+    private static List<Benchmark> createBenchmarks() {
+	final List<Benchmark> benchmarks = new ArrayList<>();
+	addLevelTickBenchmarks(benchmarks);
+	for (int segmentCount : SEGMENT_COUNTS) {
+	    benchmarks.add(createDetectCollisionsBenchmark(segmentCount));
+	}
+	for (int segmentCount : SEGMENT_COUNTS) {
+	    benchmarks.add(createDetectCollisionsWithDistanceFieldBenchmark(segmentCount));
+	}
+	benchmarks.add(createUpdateImpulseBenchmark());
+	benchmarks.add(createSolverBenchmark("sequential", SequentialVelocitySolver::new));
+	benchmarks.add(createSolverBenchmark("island", IslandVelocitySolver::createWithCommonPool));
+	benchmarks.add(createSolverBenchmark("graphColoring", GraphColoringVelocitySolver::createWithCommonPool));
+	addVectorBenchmarks(benchmarks);
+	return benchmarks;
+    }
+
+    private static void addLevelTickBenchmarks(final List<Benchmark> benchmarks) {
+	final List<String> levelResourceNames;
+	try {
+	    levelResourceNames = LevelIO.loadManifestFromResource(MANIFEST_RESOURCE_NAME);
+	} catch (IOException e) {
+	    LOGGER.log(Level.WARNING, "Skipping the level benchmarks, since the list of levels is unreadable", e);
+	    return;
+	}
+	final DrawConfiguration drawConfig = DrawConfiguration.createDefault();
+	for (String levelResourceName : levelResourceNames) {
+	    final LevelDefinition levelDefinition;
+	    try {
+		levelDefinition = LevelIO.loadLevelFromResource(levelResourceName);
+	    } catch (IOException | JsonSyntaxException e) {
+		LOGGER.log(Level.WARNING, "Skipping the benchmark of the unreadable level " + levelResourceName, e);
+		continue;
+	    }
+	    benchmarks.add(Benchmark.create("tick/" + getLevelName(levelResourceName), TICKS_PER_ITERATION, () -> {
+		final LevelWorld levelWorld = LevelWorld.create(levelDefinition, drawConfig);
+		return () -> {
+		    levelWorld.tick(1 / TICK_RATE);
+		    return 0;
+		};
+	    }));
+	}
+    }
+
+    /**
+     * @return The file name of the level resource without its directories and extension, such as "level0"
+     */
+    private static String getLevelName(final String levelResourceName) {
+	final String fileName = levelResourceName.substring(levelResourceName.lastIndexOf('/') + 1);
+	final int extensionStart = fileName.lastIndexOf('.');
+	return extensionStart == -1 ? fileName : fileName.substring(0, extensionStart);
+    }
+
+    /**
+     * The shape is a zigzag of line segments along the x-axis, each one unit wide, with the circle
+     * resting in the middle of it
+     */
+    private static Benchmark createDetectCollisionsBenchmark(final int segmentCount) {
+	final CustomShape<Void> shape = createZigzagShape(segmentCount);
+	final CircleVsCustomCollisionDetector<Void> detector = createDetectorWithCircleIn(shape);
+	return Benchmark.create("detectCollisions/" + segmentCount, DETECTIONS_PER_ITERATION,
+				() -> () -> detector.detectCollisions().size());
+    }
+
+    /**
+     * The same as {@link #createDetectCollisionsBenchmark}, but the shape has a distance field that covers the radius
+     * of the circle
+     */
+    private static Benchmark createDetectCollisionsWithDistanceFieldBenchmark(final int segmentCount) {
+	final double cellSize = 0.5;
+	final long maxBytes = 16L * 1024 * 1024;
+	final CustomShape<Void> shape = createZigzagShape(segmentCount).withDistanceField(CIRCLE_RADIUS, cellSize, maxBytes);
+	final CircleVsCustomCollisionDetector<Void> detector = createDetectorWithCircleIn(shape);
+	return Benchmark.create("detectCollisions/distanceField/" + segmentCount, DETECTIONS_PER_ITERATION,
+				() -> () -> detector.detectCollisions().size());
+    }
+
+    private static Benchmark createUpdateImpulseBenchmark() {
+	final CustomShape<Void> shape = createZigzagShape(SEGMENT_COUNTS[0]);
+	return Benchmark.create("updateImpulse", IMPULSE_UPDATES_PER_ITERATION, () -> {
+	    final CircleVsCustomCollisionDetector<Void> detector = createDetectorWithCircleIn(shape);
+	    final CollisionData<Void> collision = detector.detectCollisions().iterator().next();
+	    final ActiveCollisionConstraint constraint = ActiveCollisionConstraint.createFromCollisionData(
+		    collision, 1 / TICK_RATE, 0.05, 0.1);
+	    return constraint::updateImpulse;
+	});
+    }
+
+    /**
+     * Each iteration lets a new pile settle in its funnel before ticking it, so that the measurement covers the
+     * warm started constraints of a resting pile rather than the circles falling into place
+     */
+    private static Benchmark createSolverBenchmark(final String solverName, final Supplier<VelocitySolver> solverFactory) {
+	final String reportedValueName = "residual after " + SOLVER_VEL_ITERATIONS + " iterations";
+	return Benchmark.createReportingValue("solver/" + solverName, FUNNEL_TICKS_PER_ITERATION, reportedValueName, () -> {
+	    final PhysicsEngine engine = PhysicsEngine.createWithVelIterations(SOLVER_VEL_ITERATIONS);
+	    engine.setVelSolver(solverFactory.get());
+	    final FunnelScene scene = FunnelScene.create(engine, FUNNEL_CIRCLE_COUNT);
+	    for (int i = 0; i < FUNNEL_SETTLE_TICKS; i++) {
+		scene.tick(1 / TICK_RATE);
+	    }
+	    return () -> {
+		scene.tick(1 / TICK_RATE);
+		return engine.getLastVelResidual();
+	    };
+	});
+    }
+
+    private static CustomShape<Void> createZigzagShape(final int segmentCount) {
+	final List<LineSegment<Void>> segments = new ArrayList<>();
+	final double zigzagHeight = 0.25;
+	for (int i = 0; i < segmentCount; i++) {
+	    final double startX = i - segmentCount / 2.0;
+	    final Vector2D start = Vector2D.createCartesian(startX, i % 2 == 0 ? 0 : zigzagHeight);
+	    final Vector2D end = Vector2D.createCartesian(startX + 1, i % 2 == 0 ? zigzagHeight : 0);
+	    segments.add(LineSegment.copyEndPoints(start, end, null));
+	}
+	return CustomShape.copyFrom(segments);
+    }
+
+    /**
+     * Creates a detector between the given static shape and a falling circle that slightly overlaps the
+     * middle of the shape
+     */
+    private static CircleVsCustomCollisionDetector<Void> createDetectorWithCircleIn(final CustomShape<Void> shape) {
+	final Body shapeBody = Body.create(Vector2D.createZero(), Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	final CustomCollider<Void> customCollider = new CustomCollider<>(
+		shapeBody, TranslatedCustomShape.copyTranslation(Vector2D.createZero(), shape));
+
+	final Body circleBody = Body.create(Vector2D.createCartesian(0.1, CIRCLE_RADIUS), 1, 0.01);
+	circleBody.setVel(Vector2D.createCartesian(0, -5));
+	final CircleCollider circleCollider = new CircleCollider(circleBody, CIRCLE_RADIUS);
+
+	return CircleVsCustomCollisionDetector.createWithDefaultUniformMaterial(circleCollider, customCollider);
+    }
+
+    private static void addVectorBenchmarks(final List<Benchmark> benchmarks) {
+	benchmarks.add(createVectorBenchmark("vector/add", (a, b) -> a.add(b).getX()));
+	benchmarks.add(createVectorBenchmark("vector/addLocally", (a, b) -> {
+	    a.addLocally(b);
+	    return a.getX();
+	}));
+	benchmarks.add(createVectorBenchmark("vector/rotate", (a, b) -> a.rotate(b.getX()).getY()));
+	benchmarks.add(createVectorBenchmark("vector/normalize", (a, b) -> a.add(b).normalize().getX()));
+	benchmarks.add(createVectorBenchmark("vector/dot", Vector2D::dot));
+	benchmarks.add(createVectorBenchmark("vector/cross", Vector2D::cross));
+    }
+
+    private static Benchmark createVectorBenchmark(final String name, final VectorOperation operation) {
+	return Benchmark.create(name, VECTOR_OPERATIONS_PER_ITERATION, () -> {
+	    final Vector2D a = Vector2D.createCartesian(1.5, -2.5);
+	    final Vector2D b = Vector2D.createCartesian(1.0e-9, 2.0e-9); // Small, so that repeated additions stay finite
+	    return () -> operation.apply(a, b);
+	});
+    }
+
+    @FunctionalInterface
+    private interface VectorOperation
+    {
+	double apply(Vector2D a, Vector2D b);
+    }
+}
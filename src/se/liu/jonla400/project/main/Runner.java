@@ -1,15 +1,10 @@
 package se.liu.jonla400.project.main;
 
-import se.liu.jonla400.project.main.drawing.BallDrawer;
-import se.liu.jonla400.project.main.drawing.CrossDrawer;
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
-import se.liu.jonla400.project.main.drawing.Drawer;
-import se.liu.jonla400.project.main.drawing.LineSegmentDrawer;
 import se.liu.jonla400.project.main.game.GameRunner;
 import se.liu.jonla400.project.main.levelcreation.CreatorRunner;
 
 import javax.swing.*;
-import java.awt.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -31,7 +26,7 @@ public class Runner
 
     public static void main(String[] args) {
 	tryToConfigureLogging();
-	final DrawConfiguration drawConfig = createDrawConfig();
+	final DrawConfiguration drawConfig = DrawConfiguration.createDefault();
 
 	if (IN_DEV_MODE) {
 	    final Object[] options = {"Play", "Create"};
@@ -70,17 +65,4 @@ public class Runner
 	    LOGGER.log(Level.SEVERE, "Could not read from the logging configuration!", e);
 	}
     }
-
-    private static DrawConfiguration createDrawConfig() {
-	final Color backgroundColor = Color.WHITE;
-
-	final BallDrawer ballDrawer = BallDrawer.createDefault();
-	final LineSegmentDrawer lineSegmentDrawer = LineSegmentDrawer.createDefault();
-
-	final float centerOfMassStrokeWidth = 0.1f;
-	final float centerOfMassRadius = 1;
-	final Drawer centerOfMassDrawer = CrossDrawer.create(Color.MAGENTA, centerOfMassStrokeWidth).setRadius(centerOfMassRadius);
-
-	return new DrawConfiguration(backgroundColor, ballDrawer, lineSegmentDrawer, centerOfMassDrawer);
-    }
 }
@@ -43,7 +43,7 @@ public class BallDrawer
      * @return The {@link Drawer} used to draw the ball with the given radius at (0, 0)
      */
     public Drawer setRadius(final double radius) {
-        return g -> draw(g, radius);
+        return (g, visibleRegion) -> draw(g, radius);
     }
 
     /**
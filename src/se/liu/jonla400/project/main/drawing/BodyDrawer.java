@@ -1,39 +1,62 @@
 package se.liu.jonla400.project.main.drawing;
 
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
 import se.liu.jonla400.project.physics.main.Body;
 
 import java.awt.*;
 
 /**
- * Draws a {@link Body} by performing a given drawing procedure in the local space of the body.
- * The drawing procedure in the body's local space is specified by a {@link Drawer}
+ * Draws a snapshot of a {@link Body} by performing a given drawing procedure in the local space of the body.
+ * The drawing procedure in the body's local space is specified by a {@link Drawer}.
+ *
+ * The position and angle of the body before and after its last tick are copied when the snapshot is created,
+ * so that the body can be drawn anywhere in between them while the body itself keeps moving.
  */
-public class BodyDrawer implements Drawer
+public class BodyDrawer
 {
-    private Body body;
+    private Vector2D prevPos;
+    private Vector2D pos;
+    private double prevAngle;
+    private double angle;
     private Drawer localSpaceDrawer;
 
+    private BodyDrawer(final Vector2D prevPos, final Vector2D pos, final double prevAngle, final double angle,
+                       final Drawer localSpaceDrawer)
+    {
+        this.prevPos = prevPos;
+        this.pos = pos;
+        this.prevAngle = prevAngle;
+        this.angle = angle;
+        this.localSpaceDrawer = localSpaceDrawer;
+    }
+
     /**
-     * Returns a new BodyDrawer that draws the given {@link Body} by using the given {@link Drawer}
-     * in the body's local space
+     * Returns a new BodyDrawer that draws the given {@link Body} as it is now by using the given {@link Drawer}
+     * in the body's local space. The drawer is expected not to change afterwards.
      *
      * @param body The body to draw
      * @param localSpaceDrawer The drawing procedure in the body's local space
+     * @return The created BodyDrawer
      */
-    public BodyDrawer(final Body body, final Drawer localSpaceDrawer) {
-        this.body = body;
-        this.localSpaceDrawer = localSpaceDrawer;
+    public static BodyDrawer createSnapshotOf(final Body body, final Drawer localSpaceDrawer) {
+        return new BodyDrawer(body.getInterpolatedPos(0), body.getPos(), body.getInterpolatedAngle(0), body.getAngle(),
+                              localSpaceDrawer);
     }
 
     /**
-     * Draws the body onto the {@link Graphics2D} object according to the position and angle of the body,
+     * Draws the body onto the {@link Graphics2D} object according to the interpolated position and angle of the body,
      * as well as the drawing procedure given to this BodyDrawer
      *
      * @param g The graphics object to draw to
+     * @param visibleRegion The visible region in global space
+     * @param interpolation How far from the state before the last tick (0) towards the state after the last tick (1)
      */
-    @Override public void draw(final Graphics2D g) {
+    public void draw(final Graphics2D g, final RectangularRegion visibleRegion, final double interpolation) {
+        final Vector2D interpolatedPos = prevPos.add(pos.subtract(prevPos).multiply(interpolation));
+        final double interpolatedAngle = prevAngle + (angle - prevAngle) * interpolation;
         TransformedDrawer.draw(
-                g, Transform.createWithTranslationAndRotation(body.getPos(), body.getAngle()),
+                g, visibleRegion, Transform.createWithTranslationAndRotation(interpolatedPos, interpolatedAngle),
                 localSpaceDrawer
         );
     }
@@ -41,8 +41,9 @@ public class CameraDrawer implements Drawer
      * Draws the camera onto the given {@link Graphics2D} object
      *
      * @param g The graphics object to draw to
+     * @param visibleRegion The visible region
      */
-    @Override public void draw(final Graphics2D g) {
+    @Override public void draw(final Graphics2D g, final RectangularRegion visibleRegion) {
 	g.setColor(color);
 	g.setStroke(stroke);
 	g.draw(camera.convertToDrawableRect());
@@ -38,7 +38,7 @@ public class CrossDrawer
      * @return The {@link Drawer} used to draw the cross with the given radius at (0, 0)
      */
     public Drawer setRadius(final double radius) {
-	return g -> draw(g, radius);
+	return (g, visibleRegion) -> draw(g, radius);
     }
 
     /**
@@ -2,19 +2,63 @@ package se.liu.jonla400.project.main.drawing;
 
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.implementation.CustomShape;
 import se.liu.jonla400.project.physics.collision.implementation.LineSegment;
 import se.liu.jonla400.project.physics.collision.implementation.TranslatedCustomShape;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Draws a {@link TranslatedCustomShape} onto a {@link Graphics2D} object according to the shape's
  * translation and line segments. How each {@link LineSegment} is drawn is specified by a {@link LineSegmentDrawer}.
+ *
+ * Since the line segments of the shape never change, they are rasterized into an image once and the image is
+ * then drawn with the current transform of the graphics, which is much cheaper than stroking every line segment.
+ * The image is rasterized with as many pixels per unit as the graphics currently has, and is rasterized again
+ * when the scale of the graphics (for example the zoom of the camera) has changed too much since. If the image
+ * would become too large, the line segments are drawn as vectors instead, grouped by line segment type
+ * (see {@link LineSegmentDrawer#createBatchDrawer}). When only part of the shape is visible, the line segments
+ * to draw as vectors are found through the bounding volume hierarchy of the shape, so that zooming into a
+ * corner of a large shape only costs as much as the line segments in view. The lines found are drawn from the
+ * batch drawer by their indices, so no line segment is converted again while drawing.
+ *
+ * The image is only used when the graphics can draw images with hardware acceleration. Without it, drawing a
+ * rotated image means interpolating every pixel of it in software, which is slower than stroking the segments.
+ *
+ * The cached image and the prepared line segments are shared with the snapshots of this drawer, which are all
+ * expected to be drawn on the same thread.
  */
 public class CustomShapeDrawer implements Drawer
 {
+    // The cached image is rasterized again if the scale has grown or shrunk by more than this factor
+    private final static double MAX_SCALE_RATIO = 1.25;
+    private final static long MAX_CACHED_PIXELS = 4096L * 2048L;
+
     private TranslatedCustomShape<LineSegmentType> translatedShape;
     private LineSegmentDrawer lineSegmentDrawer;
+    // The line segments of the shape prepared for drawing without translating them, shared with the snapshots
+    private PreparedLineSegments preparedLineSegments;
+    private RasterCache rasterCache;
+
+    private CustomShapeDrawer(final TranslatedCustomShape<LineSegmentType> translatedShape, final LineSegmentDrawer lineSegmentDrawer,
+			      final PreparedLineSegments preparedLineSegments, final RasterCache rasterCache)
+    {
+	this.translatedShape = translatedShape;
+	this.lineSegmentDrawer = lineSegmentDrawer;
+	this.preparedLineSegments = preparedLineSegments;
+	this.rasterCache = rasterCache;
+    }
 
     /**
      * Returns a new CustomShapeDrawer for the given {@link TranslatedCustomShape} and with the given
@@ -24,8 +68,35 @@ public class CustomShapeDrawer implements Drawer
      * @param lineSegmentDrawer How each line segment should be drawn
      */
     public CustomShapeDrawer(final TranslatedCustomShape<LineSegmentType> translatedShape, final LineSegmentDrawer lineSegmentDrawer) {
-	this.translatedShape = translatedShape;
-	this.lineSegmentDrawer = lineSegmentDrawer;
+	this(translatedShape, lineSegmentDrawer, PreparedLineSegments.create(translatedShape.getShape(), lineSegmentDrawer),
+	     new RasterCache());
+    }
+
+    /**
+     * Creates a CustomShapeDrawer that keeps drawing the shape with its current translation, even if the
+     * translation of the shape changes later on. The snapshot shares the cached image of this drawer.
+     *
+     * @return The created CustomShapeDrawer
+     */
+    public CustomShapeDrawer createSnapshot() {
+	final TranslatedCustomShape<LineSegmentType> shapeSnapshot = TranslatedCustomShape.copyTranslation(
+		translatedShape.getTranslation(), translatedShape.getShape());
+	return new CustomShapeDrawer(shapeSnapshot, lineSegmentDrawer, preparedLineSegments, rasterCache);
+    }
+
+    /**
+     * Creates a CustomShapeDrawer for another translation of the same shape, which shares the line segments
+     * prepared for drawing and the cached image of this drawer. This is much cheaper than creating a new
+     * CustomShapeDrawer for a shape that is drawn again and again, such as the shape of a level that is restarted.
+     *
+     * @param translatedShape The translated shape to draw, whose shape must be the shape of this drawer
+     * @return The created CustomShapeDrawer
+     */
+    public CustomShapeDrawer createSharing(final TranslatedCustomShape<LineSegmentType> translatedShape) {
+	if (translatedShape.getShape() != this.translatedShape.getShape()) {
+	    throw new IllegalArgumentException("The translated shape does not have the shape of this drawer");
+	}
+	return new CustomShapeDrawer(translatedShape, lineSegmentDrawer, preparedLineSegments, rasterCache);
     }
 
     /**
@@ -33,17 +104,188 @@ public class CustomShapeDrawer implements Drawer
      * the shape's translation and line segments
      *
      * @param g The graphics object to draw to
+     * @param visibleRegion The visible region
      */
-    @Override public void draw(final Graphics2D g) {
+    @Override public void draw(final Graphics2D g, final RectangularRegion visibleRegion) {
 	TransformedDrawer.draw(
-		g, Transform.createWithTranslation(translatedShape.getTranslation()),
+		g, visibleRegion, Transform.createWithTranslation(translatedShape.getTranslation()),
 		this::drawWithoutTranslating
 	);
     }
 
-    private void drawWithoutTranslating(final Graphics2D g) {
-	for (LineSegment<LineSegmentType> lineSegment : translatedShape.getShape()) {
-	    lineSegmentDrawer.draw(g, LineSegmentDefinition.createFromCollidableSegment(lineSegment));
+    private void drawWithoutTranslating(final Graphics2D g, final RectangularRegion visibleRegion) {
+	if (!g.getDeviceConfiguration().getImageCapabilities().isAccelerated()) {
+	    drawVisibleLineSegments(g, visibleRegion);
+	    return;
+	}
+	final double scale = getScaleOf(g.getTransform());
+	final Optional<CachedImage> cachedImage = rasterCache.getImageFor(scale, () -> rasterize(g, scale));
+	if (cachedImage.isPresent()) {
+	    // Pixels outside the visible region are clipped away by the graphics
+	    cachedImage.get().draw(g);
+	} else {
+	    drawVisibleLineSegments(g, visibleRegion);
+	}
+    }
+
+    /**
+     * Draws the line segments as vectors. If the whole shape is visible, every prepared line segment is drawn.
+     * Otherwise, only the prepared line segments found in the visible region are drawn.
+     */
+    private void drawVisibleLineSegments(final Graphics2D g, final RectangularRegion visibleRegion) {
+	final CustomShape<LineSegmentType> shape = translatedShape.getShape();
+	final Optional<RectangularRegion> bounds = shape.getBoundingRegion();
+	if (bounds.isEmpty() || visibleRegion.contains(bounds.get())) {
+	    preparedLineSegments.batchDrawer.draw(g, visibleRegion);
+	    return;
+	}
+	// The strokes extend beyond the line segments, so look for line segments slightly outside the region
+	final double strokeWidth = lineSegmentDrawer.getMaxStrokeWidth();
+	final Vector2D margin = Vector2D.createCartesian(strokeWidth, strokeWidth);
+	final RectangularRegion searchRegion = RectangularRegion.createFromCornerAndSize(
+		visibleRegion.getBottomLeft().subtract(margin), visibleRegion.getSize().add(margin.multiply(2)));
+	preparedLineSegments.drawIn(g, shape, searchRegion);
+    }
+
+    /**
+     * @return The number of pixels per unit of the given transform, assuming that it scales both axes equally
+     */
+    private static double getScaleOf(final AffineTransform transform) {
+	return Math.sqrt(Math.abs(transform.getDeterminant()));
+    }
+
+    /**
+     * Rasterizes the line segments into an image compatible with the given graphics, with the given number
+     * of pixels per unit
+     *
+     * @return The rasterized image, or nothing if there are no line segments or if the image would be too large
+     */
+    private Optional<CachedImage> rasterize(final Graphics2D g, final double scale) {
+	final CustomShape<LineSegmentType> shape = translatedShape.getShape();
+	final Optional<RectangularRegion> possibleBounds = shape.getBoundingRegion();
+	if (possibleBounds.isEmpty() || scale <= 0) {
+	    return Optional.empty();
+	}
+	// Leave room for the strokes, which extend beyond the end points of the line segments
+	final double padding = lineSegmentDrawer.getMaxStrokeWidth() + 1 / scale;
+	final RectangularRegion bounds = possibleBounds.get();
+	final Vector2D origin = bounds.getBottomLeft().subtract(Vector2D.createCartesian(padding, padding));
+	final Vector2D size = bounds.getSize().add(Vector2D.createCartesian(2 * padding, 2 * padding));
+
+	final int width = (int) Math.ceil(size.getX() * scale);
+	final int height = (int) Math.ceil(size.getY() * scale);
+	if ((long) width * height > MAX_CACHED_PIXELS) {
+	    return Optional.empty();
+	}
+
+	final BufferedImage image = g.getDeviceConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	final Graphics2D imageGraphics = image.createGraphics();
+	imageGraphics.setRenderingHints(g.getRenderingHints());
+	imageGraphics.scale(scale, scale);
+	imageGraphics.translate(-origin.getX(), -origin.getY());
+	preparedLineSegments.batchDrawer.draw(imageGraphics, RectangularRegion.createFromCornerAndSize(origin, size));
+	imageGraphics.dispose();
+
+	return Optional.of(new CachedImage(image, origin, scale));
+    }
+
+    /**
+     * The line segments of a shape converted to lines once, indexed in the order of the shape. The line segments
+     * found in a region are gathered by their indices into an array that is reused every time, so that drawing
+     * part of the shape creates no new lines.
+     */
+    private static class PreparedLineSegments
+    {
+	private LineSegmentDrawer.BatchDrawer batchDrawer;
+	// The index in the batch drawer of each line segment of the shape
+	private Map<LineSegment<LineSegmentType>, Integer> indexOfSegment;
+	// The indices of the line segments found in the region being drawn, of which the first foundCount are used
+	private int[] foundIndices;
+	private int foundCount;
+	private Consumer<LineSegment<LineSegmentType>> segmentCollector;
+
+	private PreparedLineSegments(final LineSegmentDrawer.BatchDrawer batchDrawer,
+				     final Map<LineSegment<LineSegmentType>, Integer> indexOfSegment)
+	{
+	    this.batchDrawer = batchDrawer;
+	    this.indexOfSegment = indexOfSegment;
+	    foundIndices = new int[batchDrawer.getLineSegmentCount()];
+	    foundCount = 0;
+	    segmentCollector = this::collectSegment;
+	}
+
+	private static PreparedLineSegments create(final CustomShape<LineSegmentType> shape, final LineSegmentDrawer lineSegmentDrawer) {
+	    final List<LineSegmentDefinition> lineSegments = new ArrayList<>();
+	    // Line segments are told apart by identity, since two of them may be equal
+	    final Map<LineSegment<LineSegmentType>, Integer> indexOfSegment = new IdentityHashMap<>();
+	    for (LineSegment<LineSegmentType> lineSegment : shape) {
+		indexOfSegment.put(lineSegment, lineSegments.size());
+		lineSegments.add(LineSegmentDefinition.createFromCollidableSegment(lineSegment));
+	    }
+	    return new PreparedLineSegments(lineSegmentDrawer.createBatchDrawer(lineSegments), indexOfSegment);
+	}
+
+	/**
+	 * Draws the line segments of the given shape, which must be the prepared shape, that are found in the given region
+	 */
+	private void drawIn(final Graphics2D g, final CustomShape<LineSegmentType> shape, final RectangularRegion region) {
+	    foundCount = 0;
+	    shape.forEachSegmentIn(region, segmentCollector);
+	    batchDrawer.drawSubset(g, foundIndices, foundCount);
+	}
+
+	private void collectSegment(final LineSegment<LineSegmentType> lineSegment) {
+	    foundIndices[foundCount] = indexOfSegment.get(lineSegment);
+	    foundCount++;
+	}
+    }
+
+    /**
+     * An image of the line segments in the local space of the shape, with its bottom left corner at the origin
+     */
+    private static class CachedImage
+    {
+	private BufferedImage image;
+	private Vector2D origin;
+	private double scale;
+
+	private CachedImage(final BufferedImage image, final Vector2D origin, final double scale) {
+	    this.image = image;
+	    this.origin = origin;
+	    this.scale = scale;
+	}
+
+	private void draw(final Graphics2D g) {
+	    final AffineTransform imageToShape = AffineTransform.getTranslateInstance(origin.getX(), origin.getY());
+	    imageToShape.scale(1 / scale, 1 / scale);
+
+	    final Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+	    // The image is likely to be rotated, which looks jagged without interpolating between pixels
+	    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+	    g.drawImage(image, imageToShape, null);
+	    if (oldInterpolation != null) {
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+	    }
+	}
+    }
+
+    /**
+     * Holds the latest rasterized image, if any. A failed rasterization is also remembered for its scale,
+     * so that a shape too large to cache is not attempted to be rasterized every time it is drawn.
+     */
+    private static class RasterCache
+    {
+	private Optional<CachedImage> image = Optional.empty();
+	private double rasterizedScale = Double.NaN;
+
+	private Optional<CachedImage> getImageFor(final double scale, final Supplier<Optional<CachedImage>> rasterizer) {
+	    final double ratio = scale / rasterizedScale;
+	    final boolean isStale = Double.isNaN(ratio) || ratio > MAX_SCALE_RATIO || ratio < 1 / MAX_SCALE_RATIO;
+	    if (isStale) {
+		image = rasterizer.get();
+		rasterizedScale = scale;
+	    }
+	    return image;
 	}
     }
 }
@@ -32,6 +32,25 @@ public class DrawConfiguration
 	this.centerOfMassDrawer = centerOfMassDrawer;
     }
 
+    /**
+     * Creates the DrawConfiguration used by the game and the level creator: a white background, default balls
+     * and line segments, and a magenta cross at the center of mass
+     *
+     * @return The created DrawConfiguration
+     */
+    public static DrawConfiguration createDefault() {
+	final Color backgroundColor = Color.WHITE;
+
+	final BallDrawer ballDrawer = BallDrawer.createDefault();
+	final LineSegmentDrawer lineSegmentDrawer = LineSegmentDrawer.createDefault();
+
+	final float centerOfMassStrokeWidth = 0.1f;
+	final float centerOfMassRadius = 1;
+	final Drawer centerOfMassDrawer = CrossDrawer.create(Color.MAGENTA, centerOfMassStrokeWidth).setRadius(centerOfMassRadius);
+
+	return new DrawConfiguration(backgroundColor, ballDrawer, lineSegmentDrawer, centerOfMassDrawer);
+    }
+
     /**
      * @return The background color of a world
      */
@@ -1,10 +1,13 @@
 package se.liu.jonla400.project.main.drawing;
 
+import se.liu.jonla400.project.math.RectangularRegion;
+
 import java.awt.*;
 
 /**
  * Represents an object that can be drawn onto a {@link Graphics2D} object without further
- * parameterization
+ * parameterization. The drawer is told which region of its space is visible, so that it can skip
+ * drawing what lies outside of it.
  */
 public interface Drawer
 {
@@ -12,6 +15,8 @@ public interface Drawer
      * Draws this object onto the {@link Graphics2D} object
      *
      * @param g The graphics object to draw to
+     * @param visibleRegion The region that is visible, in the same space as the graphics object. Anything outside
+     *                      of it may be left undrawn.
      */
-    void draw(Graphics2D g);
+    void draw(Graphics2D g, RectangularRegion visibleRegion);
 }
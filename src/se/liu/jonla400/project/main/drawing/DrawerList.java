@@ -1,5 +1,7 @@
 package se.liu.jonla400.project.main.drawing;
 
+import se.liu.jonla400.project.math.RectangularRegion;
+
 import java.awt.*;
 import java.util.Arrays;
 import java.util.List;
@@ -29,8 +31,9 @@ public class DrawerList implements Drawer
      * Draws each drawer onto the {@link Graphics2D} object from first to last
      *
      * @param g The graphics object to draw to
+     * @param visibleRegion The visible region
      */
-    @Override public void draw(final Graphics2D g) {
-	drawers.forEach(d -> d.draw(g));
+    @Override public void draw(final Graphics2D g, final RectangularRegion visibleRegion) {
+	drawers.forEach(d -> d.draw(g, visibleRegion));
     }
 }
@@ -2,11 +2,15 @@ package se.liu.jonla400.project.main.drawing;
 
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
+import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
 import java.awt.*;
 import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,10 +55,130 @@ public class LineSegmentDrawer
 	g.draw(new Line2D.Double(start.getX(), start.getY(), end.getX(), end.getY()));
     }
 
+    /**
+     * @return The width of the widest stroke used for any {@link LineSegmentType}
+     */
+    public float getMaxStrokeWidth() {
+	float maxStrokeWidth = 0;
+	for (ColorAndStrokePair colorAndStroke : typeToColorAndStroke.values()) {
+	    maxStrokeWidth = Math.max(maxStrokeWidth, colorAndStroke.stroke.getLineWidth());
+	}
+	return maxStrokeWidth;
+    }
+
+    /**
+     * Creates a {@link Drawer} that draws all the given line segments, like drawing each of them with
+     * {@link #draw(Graphics2D, LineSegmentDefinition)} but faster. The line segments are converted to
+     * shapes once and grouped by {@link LineSegmentType}, so that the color and stroke only have to be set
+     * once per type. No reference is kept to the given line segments.
+     *
+     * Each line segment is still drawn as a shape of its own, since stroking one large path of many
+     * separate lines is much slower in Java2D than stroking the lines one by one. This also lets the
+     * drawer skip the line segments whose strokes lie entirely outside the visible region.
+     *
+     * The shapes are indexed in the order of the given line segments, so that a subset of them can be
+     * drawn later on without converting them again (see {@link BatchDrawer#drawSubset}).
+     *
+     * @param lineSegments The line segments to draw
+     * @return The created BatchDrawer
+     */
+    public BatchDrawer createBatchDrawer(final Iterable<LineSegmentDefinition> lineSegments) {
+	final List<Line2D> lines = new ArrayList<>();
+	final List<LineSegmentType> types = new ArrayList<>();
+	final Map<LineSegmentType, List<Line2D>> typeToLines = new EnumMap<>(LineSegmentType.class);
+	for (LineSegmentDefinition lineSegment : lineSegments) {
+	    final Vector2D start = lineSegment.getStart();
+	    final Vector2D end = lineSegment.getEnd();
+	    final Line2D line = new Line2D.Double(start.getX(), start.getY(), end.getX(), end.getY());
+	    lines.add(line);
+	    types.add(lineSegment.getType());
+	    typeToLines.computeIfAbsent(lineSegment.getType(), type -> new ArrayList<>()).add(line);
+	}
+	return new BatchDrawer(typeToColorAndStroke, lines, types, typeToLines);
+    }
+
+    /**
+     * @return The given rectangle expanded by the given margin in every direction
+     */
+    private static Rectangle2D expand(final Rectangle2D rect, final double margin) {
+	return new Rectangle2D.Double(rect.getX() - margin, rect.getY() - margin,
+				      rect.getWidth() + 2 * margin, rect.getHeight() + 2 * margin);
+    }
+
     private ColorAndStrokePair getColorAndStrokeOf(final LineSegmentDefinition lineSegment) {
 	return typeToColorAndStroke.get(lineSegment.getType());
     }
 
+    /**
+     * Draws line segments that have been converted to shapes once, see {@link #createBatchDrawer}
+     */
+    public static class BatchDrawer implements Drawer
+    {
+	private Map<LineSegmentType, ColorAndStrokePair> typeToColorAndStroke;
+	// The shape and type of each line segment, in the order the line segments were given
+	private List<Line2D> lines;
+	private List<LineSegmentType> types;
+	private Map<LineSegmentType, List<Line2D>> typeToLines;
+
+	private BatchDrawer(final Map<LineSegmentType, ColorAndStrokePair> typeToColorAndStroke, final List<Line2D> lines,
+			    final List<LineSegmentType> types, final Map<LineSegmentType, List<Line2D>> typeToLines)
+	{
+	    this.typeToColorAndStroke = typeToColorAndStroke;
+	    this.lines = lines;
+	    this.types = types;
+	    this.typeToLines = typeToLines;
+	}
+
+	/**
+	 * @return The number of line segments
+	 */
+	public int getLineSegmentCount() {
+	    return lines.size();
+	}
+
+	/**
+	 * Draws every line segment whose stroke lies within the visible region
+	 *
+	 * @param g The graphics object to draw to
+	 * @param visibleRegion The region that is visible
+	 */
+	@Override public void draw(final Graphics2D g, final RectangularRegion visibleRegion) {
+	    typeToLines.forEach((type, typeLines) -> {
+		final ColorAndStrokePair colorAndStroke = typeToColorAndStroke.get(type);
+		final Rectangle2D strokeVisibleRect = expand(visibleRegion.convertToDrawableRect(),
+							     colorAndStroke.stroke.getLineWidth());
+		g.setColor(colorAndStroke.color);
+		g.setStroke(colorAndStroke.stroke);
+		for (Line2D line : typeLines) {
+		    if (line.intersects(strokeVisibleRect)) {
+			g.draw(line);
+		    }
+		}
+	    });
+	}
+
+	/**
+	 * Draws the line segments with the given indices, which refer to the order the line segments were given
+	 * in. The color and stroke are still only set once per {@link LineSegmentType}.
+	 *
+	 * @param g The graphics object to draw to
+	 * @param indices The indices of the line segments to draw
+	 * @param count The number of indices to use, from the start of the array
+	 */
+	public void drawSubset(final Graphics2D g, final int[] indices, final int count) {
+	    typeToLines.forEach((type, typeLines) -> {
+		final ColorAndStrokePair colorAndStroke = typeToColorAndStroke.get(type);
+		g.setColor(colorAndStroke.color);
+		g.setStroke(colorAndStroke.stroke);
+		for (int i = 0; i < count; i++) {
+		    if (types.get(indices[i]) == type) {
+			g.draw(lines.get(indices[i]));
+		    }
+		}
+	    });
+	}
+    }
+
     private static class ColorAndStrokePair {
 	private Color color;
 	private BasicStroke stroke;
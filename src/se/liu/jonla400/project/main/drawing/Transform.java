@@ -1,5 +1,6 @@
 package se.liu.jonla400.project.main.drawing;
 
+import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
 /**
@@ -62,4 +63,35 @@ public class Transform
     public double getScale() {
 	return scale;
     }
+
+    /**
+     * Converts a region to the local space of this transform, that is the space that the
+     * drawer of a {@link TransformedDrawer} draws in. Since the local region can not be rotated,
+     * the smallest region enclosing the rotated corners is returned.
+     *
+     * @param region The region before the transform
+     * @return The smallest region in local space enclosing the given region
+     */
+    public RectangularRegion convertToLocalRegion(final RectangularRegion region) {
+	final Vector2D bottomLeft = region.getBottomLeft();
+	final Vector2D size = region.getSize();
+	final Vector2D[] corners = {
+		bottomLeft,
+		bottomLeft.add(Vector2D.createCartesian(size.getX(), 0)),
+		bottomLeft.add(Vector2D.createCartesian(0, size.getY())),
+		bottomLeft.add(size)
+	};
+	double minX = Double.POSITIVE_INFINITY;
+	double minY = Double.POSITIVE_INFINITY;
+	double maxX = Double.NEGATIVE_INFINITY;
+	double maxY = Double.NEGATIVE_INFINITY;
+	for (Vector2D corner : corners) {
+	    final Vector2D localCorner = corner.subtract(translation).rotate(-rotation).divide(scale);
+	    minX = Math.min(minX, localCorner.getX());
+	    minY = Math.min(minY, localCorner.getY());
+	    maxX = Math.max(maxX, localCorner.getX());
+	    maxY = Math.max(maxY, localCorner.getY());
+	}
+	return RectangularRegion.createFromCorners(Vector2D.createCartesian(minX, minY), Vector2D.createCartesian(maxX, maxY));
+    }
 }
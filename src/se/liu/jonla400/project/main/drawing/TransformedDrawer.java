@@ -1,5 +1,6 @@
 package se.liu.jonla400.project.main.drawing;
 
+import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
 import java.awt.*;
@@ -17,13 +18,17 @@ public class TransformedDrawer
      * 1. Translate
      * 2. Rotate
      * 3. Scale
-     * The transform of the graphics object is then reset
+     * The transform of the graphics object is then reset. The drawer is given the visible region
+     * converted to its local space, see {@link Transform#convertToLocalRegion}.
      *
      * @param g The graphics to draw to
+     * @param visibleRegion The visible region before the transform
      * @param transform The transform used to transform the graphics object
      * @param drawerAfterTransform The drawing procedure after the transform
      */
-    public static void draw(final Graphics2D g, final Transform transform, final Drawer drawerAfterTransform) {
+    public static void draw(final Graphics2D g, final RectangularRegion visibleRegion, final Transform transform,
+                            final Drawer drawerAfterTransform)
+    {
         final AffineTransform oldTransform = g.getTransform();
 
         final Vector2D translation = transform.getTranslation();
@@ -31,7 +36,7 @@ public class TransformedDrawer
         g.rotate(transform.getRotation());
         final double scale = transform.getScale();
         g.scale(scale, scale);
-        drawerAfterTransform.draw(g);
+        drawerAfterTransform.draw(g, transform.convertToLocalRegion(visibleRegion));
 
         g.setTransform(oldTransform);
     }
@@ -0,0 +1,163 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LevelShapeDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary level format. All numbers are little-endian, and the file is laid out as follows:
+ *
+ * <ol>
+ *     <li>Header: the magic number "BTLV", the format version as a short, a short reserved for flags,
+ *     and the number of vertices and line segments as ints</li>
+ *     <li>The center of mass, ball position, ball radius, camera corner and camera size as doubles</li>
+ *     <li>Vertex table: the x and y coordinates of each vertex as doubles</li>
+ *     <li>Index table: the indices of the start and end vertices of each line segment as ints</li>
+ *     <li>Type array: the {@link LineSegmentType} of each line segment as the ordinal in a byte</li>
+ * </ol>
+ *
+ * Since a vertex is usually shared by two line segments, each vertex is only stored once. The doubles all
+ * start at offsets divisible by eight, and are read directly from the buffer without any text in between.
+ */
+public class BinaryLevelCodec implements LevelCodec
+{
+    /**
+     * The first four bytes of every level in this format, "BTLV" in ASCII
+     */
+    public final static int MAGIC_NUMBER = 0x42544C56;
+    private final static short VERSION = 1;
+
+    private final static int HEADER_SIZE = 16;
+    private final static int LEVEL_PROPERTIES_SIZE = 9 * Double.BYTES;
+    private final static int VERTEX_SIZE = 2 * Double.BYTES;
+    private final static int INDICES_SIZE = 2 * Integer.BYTES;
+
+    private final static LineSegmentType[] TYPES = LineSegmentType.values();
+
+    /**
+     * @param bytes The start of some encoded level, which is not consumed
+     * @return Whether the bytes start with the magic number of this format
+     */
+    public static boolean hasMagicNumber(final ByteBuffer bytes) {
+	return bytes.remaining() >= Integer.BYTES &&
+	       bytes.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(bytes.position()) == MAGIC_NUMBER;
+    }
+
+    @Override public LevelDefinition decode(final ByteBuffer bytes) throws IOException {
+	final ByteBuffer buffer = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+	if (!hasMagicNumber(buffer)) {
+	    throw new IOException("Not a binary level: the magic number is missing");
+	}
+	if (buffer.remaining() < HEADER_SIZE + LEVEL_PROPERTIES_SIZE) {
+	    throw new IOException("The binary level is truncated");
+	}
+	final short version = buffer.getShort(4);
+	if (version != VERSION) {
+	    throw new IOException("Unsupported binary level version: " + version);
+	}
+	final int vertexCount = buffer.getInt(8);
+	final int segmentCount = buffer.getInt(12);
+	if (vertexCount < 0 || segmentCount < 0) {
+	    throw new IOException("Negative number of vertices or line segments in the binary level");
+	}
+	final long vertexTableOffset = HEADER_SIZE + LEVEL_PROPERTIES_SIZE;
+	final long indexTableOffset = vertexTableOffset + (long) vertexCount * VERTEX_SIZE;
+	final long typeArrayOffset = indexTableOffset + (long) segmentCount * INDICES_SIZE;
+	if (typeArrayOffset + segmentCount > buffer.remaining()) {
+	    throw new IOException("The binary level is truncated");
+	}
+
+	final Vector2D centerOfMass = getVector(buffer, HEADER_SIZE);
+	final Vector2D ballPos = getVector(buffer, HEADER_SIZE + VERTEX_SIZE);
+	final double ballRadius = buffer.getDouble(HEADER_SIZE + 2 * VERTEX_SIZE);
+	final Vector2D cameraCorner = getVector(buffer, HEADER_SIZE + 2 * VERTEX_SIZE + Double.BYTES);
+	final Vector2D cameraSize = getVector(buffer, HEADER_SIZE + 3 * VERTEX_SIZE + Double.BYTES);
+
+	final List<LineSegmentDefinition> segments = new ArrayList<>(segmentCount);
+	for (int i = 0; i < segmentCount; i++) {
+	    final int indicesOffset = (int) indexTableOffset + i * INDICES_SIZE;
+	    final int startIndex = buffer.getInt(indicesOffset);
+	    final int endIndex = buffer.getInt(indicesOffset + Integer.BYTES);
+	    final int typeOrdinal = buffer.get((int) typeArrayOffset + i);
+	    if (startIndex < 0 || startIndex >= vertexCount || endIndex < 0 || endIndex >= vertexCount) {
+		throw new IOException("Line segment " + i + " refers to a vertex that does not exist");
+	    }
+	    if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+		throw new IOException("Line segment " + i + " has an unknown type: " + typeOrdinal);
+	    }
+	    final Vector2D start = getVector(buffer, (int) vertexTableOffset + startIndex * VERTEX_SIZE);
+	    final Vector2D end = getVector(buffer, (int) vertexTableOffset + endIndex * VERTEX_SIZE);
+	    if (start.equals(end)) {
+		throw new IOException("Line segment " + i + " starts and ends at the same point: " + start);
+	    }
+	    segments.add(LineSegmentDefinition.copyEndPoints(start, end, TYPES[typeOrdinal]));
+	}
+
+	final LevelDefinition level = LevelDefinition.copyFrom(
+		LevelShapeDefinition.copyFrom(segments), centerOfMass, ballPos, ballRadius,
+		RectangularRegion.createFromCornerAndSize(cameraCorner, cameraSize));
+	if (level.isInvalid()) {
+	    throw new IOException("The binary level has invalid fields");
+	}
+	return level;
+    }
+
+    private static Vector2D getVector(final ByteBuffer buffer, final int offset) {
+	return Vector2D.createCartesian(buffer.getDouble(offset), buffer.getDouble(offset + Double.BYTES));
+    }
+
+    @Override public void encode(final LevelDefinition level, final OutputStream out) throws IOException {
+	final Map<Vector2D, Integer> vertexToIndex = new LinkedHashMap<>();
+	final List<LineSegmentDefinition> segments = new ArrayList<>();
+	for (LineSegmentDefinition segment : level.getShape()) {
+	    vertexToIndex.putIfAbsent(segment.getStart(), vertexToIndex.size());
+	    vertexToIndex.putIfAbsent(segment.getEnd(), vertexToIndex.size());
+	    segments.add(segment);
+	}
+
+	final int size = HEADER_SIZE + LEVEL_PROPERTIES_SIZE + vertexToIndex.size() * VERTEX_SIZE +
+			 segments.size() * (INDICES_SIZE + Byte.BYTES);
+	final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	buffer.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC_NUMBER).order(ByteOrder.LITTLE_ENDIAN);
+	buffer.putShort(VERSION);
+	buffer.putShort((short) 0); // No flags yet
+	buffer.putInt(vertexToIndex.size());
+	buffer.putInt(segments.size());
+
+	final RectangularRegion camera = level.getCamera();
+	putVector(buffer, level.getCenterOfMass());
+	putVector(buffer, level.getBallPos());
+	buffer.putDouble(level.getBallRadius());
+	putVector(buffer, camera.getBottomLeft());
+	putVector(buffer, camera.getSize());
+
+	for (Vector2D vertex : vertexToIndex.keySet()) {
+	    putVector(buffer, vertex);
+	}
+	for (LineSegmentDefinition segment : segments) {
+	    buffer.putInt(vertexToIndex.get(segment.getStart()));
+	    buffer.putInt(vertexToIndex.get(segment.getEnd()));
+	}
+	for (LineSegmentDefinition segment : segments) {
+	    buffer.put((byte) segment.getType().ordinal());
+	}
+	out.write(buffer.array());
+    }
+
+    private static void putVector(final ByteBuffer buffer, final Vector2D vector) {
+	buffer.putDouble(vector.getX());
+	buffer.putDouble(vector.getY());
+    }
+}
@@ -0,0 +1,42 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Utilities shared by the type adapters of the json level format, which validate each value as soon as it
+ * has been read and report invalid values as a {@link JsonSyntaxException} with the path to the value
+ */
+final class JsonFields
+{
+    private JsonFields() {}
+
+    /**
+     * Consumes the start of an object, which must not be null
+     */
+    static void beginObject(final JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    throw createError("Expected an object but was null", in);
+	}
+	in.beginObject();
+    }
+
+    /**
+     * Returns the value of a field after the object containing the field has been read
+     *
+     * @throws JsonSyntaxException If the field was missing
+     */
+    static <T> T require(final T value, final String name, final JsonReader in) {
+	if (value == null) {
+	    throw createError("Missing the field \"" + name + "\"", in);
+	}
+	return value;
+    }
+
+    static JsonSyntaxException createError(final String message, final JsonReader in) {
+	return new JsonSyntaxException(message + " at " + in.getPath());
+    }
+}
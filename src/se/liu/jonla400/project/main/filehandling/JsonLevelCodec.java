@@ -0,0 +1,93 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The original level format: a level definition expressed in pretty-printed json. An empty file is the empty
+ * level definition.
+ *
+ * The json is streamed through hand-written type adapters instead of being read into a string and then
+ * reflectively converted to a level definition. Each value is validated as soon as it has been read, so an
+ * invalid level is rejected at its first invalid value without reading the rest of it.
+ */
+public class JsonLevelCodec implements LevelCodec
+{
+    private final static String INDENT = "  ";
+
+    private final LevelDefinitionAdapter levelAdapter = new LevelDefinitionAdapter();
+
+    /**
+     * Decodes a level from json
+     *
+     * @param bytes The json encoded in UTF-8
+     * @return The decoded level definition
+     * @throws IOException If trouble reading the bytes
+     * @throws JsonSyntaxException If the json does not express a valid level definition
+     */
+    @Override public LevelDefinition decode(final ByteBuffer bytes) throws IOException, JsonSyntaxException {
+	if (!bytes.hasRemaining()) {
+	    return LevelDefinition.createEmpty();
+	}
+	final JsonReader in = new JsonReader(new InputStreamReader(new ByteBufferInputStream(bytes), StandardCharsets.UTF_8));
+	try {
+	    final LevelDefinition level = levelAdapter.read(in);
+	    if (in.peek() != JsonToken.END_DOCUMENT) {
+		throw JsonFields.createError("Unexpected content after the level", in);
+	    }
+	    return level;
+	} catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+	    // Thrown by the reader when the json itself is invalid or does not have the expected structure
+	    throw new JsonSyntaxException(e);
+	}
+    }
+
+    @Override public void encode(final LevelDefinition level, final OutputStream out) throws IOException {
+	final JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	writer.setIndent(INDENT);
+	levelAdapter.write(writer, level);
+	writer.flush();
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer, which lets a memory-mapped file be streamed without copying it
+     */
+    private static class ByteBufferInputStream extends InputStream
+    {
+	private ByteBuffer bytes;
+
+	private ByteBufferInputStream(final ByteBuffer bytes) {
+	    this.bytes = bytes;
+	}
+
+	@Override public int read() {
+	    return bytes.hasRemaining() ? Byte.toUnsignedInt(bytes.get()) : -1;
+	}
+
+	@Override public int read(final byte[] destination, final int offset, final int length) {
+	    if (length == 0) {
+		return 0;
+	    }
+	    if (!bytes.hasRemaining()) {
+		return -1;
+	    }
+	    final int readLength = Math.min(length, bytes.remaining());
+	    bytes.get(destination, offset, readLength);
+	    return readLength;
+	}
+    }
+}
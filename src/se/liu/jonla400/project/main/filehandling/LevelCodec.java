@@ -0,0 +1,32 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a file format of {@link LevelDefinition}s, which can convert levels to and from bytes.
+ * {@link LevelIO} chooses which codec to use for each file.
+ */
+public interface LevelCodec
+{
+    /**
+     * Decodes a level from the remaining bytes of the given buffer
+     *
+     * @param bytes The encoded level
+     * @return The decoded level definition
+     * @throws IOException If the bytes do not express a valid level definition in this format
+     */
+    LevelDefinition decode(ByteBuffer bytes) throws IOException;
+
+    /**
+     * Encodes the level and writes it to the given stream, which is not closed afterwards
+     *
+     * @param level The level to encode
+     * @param out The stream to write to
+     * @throws IOException If trouble writing to the stream
+     */
+    void encode(LevelDefinition level, OutputStream out) throws IOException;
+}
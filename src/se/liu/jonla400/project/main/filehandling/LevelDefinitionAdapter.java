@@ -0,0 +1,71 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LevelShapeDefinition;
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link LevelDefinition} as an object with the fields "shape", "centerOfMass", "ballPos",
+ * "ballRadius" and "camera". The ball radius must not be negative and the camera must not be empty.
+ */
+class LevelDefinitionAdapter extends TypeAdapter<LevelDefinition>
+{
+    private final LevelShapeDefinitionAdapter shapeAdapter = new LevelShapeDefinitionAdapter();
+    private final Vector2DAdapter vectorAdapter = new Vector2DAdapter();
+    private final RectangularRegionAdapter regionAdapter = new RectangularRegionAdapter();
+
+    @Override public void write(final JsonWriter out, final LevelDefinition level) throws IOException {
+	out.beginObject();
+	out.name("shape");
+	shapeAdapter.write(out, level.getShape());
+	out.name("centerOfMass");
+	vectorAdapter.write(out, level.getCenterOfMass());
+	out.name("ballPos");
+	vectorAdapter.write(out, level.getBallPos());
+	out.name("ballRadius").value(level.getBallRadius());
+	out.name("camera");
+	regionAdapter.write(out, level.getCamera());
+	out.endObject();
+    }
+
+    @Override public LevelDefinition read(final JsonReader in) throws IOException {
+	LevelShapeDefinition shape = null;
+	Vector2D centerOfMass = null;
+	Vector2D ballPos = null;
+	Double ballRadius = null;
+	RectangularRegion camera = null;
+	JsonFields.beginObject(in);
+	while (in.hasNext()) {
+	    switch (in.nextName()) {
+		case "shape" -> shape = shapeAdapter.read(in);
+		case "centerOfMass" -> centerOfMass = vectorAdapter.read(in);
+		case "ballPos" -> ballPos = vectorAdapter.read(in);
+		case "ballRadius" -> {
+		    ballRadius = in.nextDouble();
+		    if (ballRadius < 0) {
+			throw JsonFields.createError("Negative ball radius " + ballRadius, in);
+		    }
+		}
+		case "camera" -> {
+		    camera = regionAdapter.read(in);
+		    if (camera.getSize().isZero()) {
+			throw JsonFields.createError("The camera has no size", in);
+		    }
+		}
+		default -> in.skipValue();
+	    }
+	}
+	in.endObject();
+	return LevelDefinition.copyFrom(JsonFields.require(shape, "shape", in),
+					JsonFields.require(centerOfMass, "centerOfMass", in),
+					JsonFields.require(ballPos, "ballPos", in),
+					JsonFields.require(ballRadius, "ballRadius", in),
+					JsonFields.require(camera, "camera", in));
+    }
+}
@@ -1,23 +1,52 @@
 package se.liu.jonla400.project.main.filehandling;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Contains methods for loading {@link LevelDefinition} objects from files on the local file system
  * as well as from resource files. This class is also used to save levels to the local file system.
+ *
+ * Levels are either stored as json ({@link JsonLevelCodec}) or in a compact binary format
+ * ({@link BinaryLevelCodec}). When loading, the format is recognized by the magic number at the start of
+ * the binary format. Files are read into memory, except for files larger than a mebibyte
+ * that are memory-mapped instead. A mapping is only released once it is garbage collected, and some
+ * systems (such as Windows) do not let a mapped file be replaced until then, so small files are not mapped.
+ * When saving, the binary format is used for paths ending with {@value #BINARY_EXTENSION} and json is used
+ * otherwise. The level is first written to a temporary file next to the path, which is then moved over the
+ * path, so that a failed save never leaves a half written level behind.
+ *
+ * A level pack is listed by a manifest, which is a text file with the resource name of one level per line.
+ * Empty lines and lines starting with '#' are ignored.
  */
 public class LevelIO
 {
+    /**
+     * The file extension of levels saved in the binary format
+     */
+    public final static String BINARY_EXTENSION = ".level";
+
+    private final static LevelCodec JSON_CODEC = new JsonLevelCodec();
+    private final static LevelCodec BINARY_CODEC = new BinaryLevelCodec();
+
+    private final static long MAP_THRESHOLD_BYTES = 1024 * 1024;
+    private final static String TEMPORARY_SUFFIX = ".tmp";
+
     private LevelIO() {}
 
     /**
@@ -25,13 +54,24 @@ public class LevelIO
      * a default {@link LevelDefinition} is returned.
      *
      * @param path The path of the file
-     * @return The level definition expressed in json by the file
-     * @throws IOException If trouble reading the file
-     * @throws JsonSyntaxException If the contents of the file is unable to express a valid level definition
+     * @return The level definition expressed by the file
+     * @throws IOException If trouble reading the file, or if a binary file does not express a valid level definition
+     * @throws JsonSyntaxException If the json contents of the file is unable to express a valid level definition
      */
     public static LevelDefinition loadLevelFromFile(final Path path) throws IOException, JsonSyntaxException {
-	final String levelAsJson = Files.readString(path);
-	return convertJsonToLevel(levelAsJson);
+	try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+	    final long size = channel.size();
+	    if (size > MAP_THRESHOLD_BYTES) {
+		return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+	    }
+	    final ByteBuffer levelBytes = ByteBuffer.allocate((int) size);
+	    while (levelBytes.hasRemaining()) {
+		if (channel.read(levelBytes) == -1) {
+		    throw new IOException("The file " + path + " ended before its " + size + " bytes were read");
+		}
+	    }
+	    return decode(levelBytes.flip());
+	}
     }
 
     /**
@@ -39,58 +79,76 @@ public class LevelIO
      * a default {@link LevelDefinition} is returned.
      *
      * @param resourceName The name of the resource
-     * @return The level definition expressed in json by the resource
-     * @throws IOException If trouble reading the resource
-     * @throws JsonSyntaxException If the contents of the resource is unable to express a valid level definition
+     * @return The level definition expressed by the resource
+     * @throws IOException If trouble reading the resource, or if a binary resource does not express a valid level definition
+     * @throws JsonSyntaxException If the json contents of the resource is unable to express a valid level definition
      */
     public static LevelDefinition loadLevelFromResource(final String resourceName) throws IOException, JsonSyntaxException {
-	final String levelAsJson = readStringFromResource(resourceName);
-	return convertJsonToLevel(levelAsJson);
+	return decode(ByteBuffer.wrap(readBytesFromResource(resourceName)));
+    }
+
+    /**
+     * Loads the resource names of the levels listed by the manifest resource with the given name
+     *
+     * @param manifestResourceName The name of the manifest resource
+     * @return The resource names of the levels, in the order they are listed
+     * @throws IOException If trouble reading the manifest
+     */
+    public static List<String> loadManifestFromResource(final String manifestResourceName) throws IOException {
+	final String manifest = new String(readBytesFromResource(manifestResourceName), StandardCharsets.UTF_8);
+	final List<String> levelResourceNames = new ArrayList<>();
+	for (String line : manifest.split("\\R")) {
+	    final String trimmedLine = line.strip();
+	    if (!trimmedLine.isEmpty() && !trimmedLine.startsWith("#")) {
+		levelResourceNames.add(trimmedLine);
+	    }
+	}
+	return levelResourceNames;
     }
 
     /**
      * Saves the {@link LevelDefinition} to the file specified by the given {@link Path}.
-     * If the file does not exist, it will be created.
+     * If the file does not exist, it will be created. If the save fails, the file is left as it was.
      *
      * @param level The level definition to save
      * @param path The path to save to
      * @throws IOException If trouble writing to the file
      */
     public static void saveLevelToFile(final LevelDefinition level, final Path path) throws IOException {
-	final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-	final String levelAsJson = gson.toJson(level);
-	Files.writeString(path, levelAsJson);
+	final LevelCodec codec = path.toString().endsWith(BINARY_EXTENSION) ? BINARY_CODEC : JSON_CODEC;
+	final Path directory = path.toAbsolutePath().getParent();
+	final Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), TEMPORARY_SUFFIX);
+	try {
+	    // The codec buffers what it writes
+	    try (final OutputStream out = Files.newOutputStream(temporaryPath)) {
+		codec.encode(level, out);
+	    }
+	    moveReplacing(temporaryPath, path);
+	} finally {
+	    Files.deleteIfExists(temporaryPath);
+	}
     }
 
-    private static LevelDefinition convertJsonToLevel(final String json) throws JsonSyntaxException {
-	if (json.isEmpty()) {
-	    return LevelDefinition.createEmpty();
-	}
-	final Gson gson = new Gson();
-	final LevelDefinition level = gson.fromJson(json, LevelDefinition.class);
-	if (level.isInvalid()) {
-	    // The level definition could be loaded but it contains invalid fields.
-	    // Since the json string is not a valid representation for an object of type
-	    // LevelDefinition, we manually report a JsonSyntaxException
-	    throw new JsonSyntaxException("The json specified a level with invalid fields");
+    private static void moveReplacing(final Path source, final Path target) throws IOException {
+	try {
+	    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	} catch (AtomicMoveNotSupportedException e) {
+	    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
 	}
-	return level;
     }
 
-    private static String readStringFromResource(final String resourceName) throws IOException {
-	final StringBuilder result = new StringBuilder();
+    private static LevelDefinition decode(final ByteBuffer levelBytes) throws IOException, JsonSyntaxException {
+	final LevelCodec codec = BinaryLevelCodec.hasMagicNumber(levelBytes) ? BINARY_CODEC : JSON_CODEC;
+	return codec.decode(levelBytes);
+    }
 
+    private static byte[] readBytesFromResource(final String resourceName) throws IOException {
 	final URL resource = ClassLoader.getSystemResource(resourceName);
 	if (resource == null) {
 	    throw new IOException("Unable to access the resource " + resourceName);
 	}
-	try (final BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream()))) {
-	    String line = reader.readLine();
-	    while (line != null) {
-		result.append(line);
-		line = reader.readLine();
-	    }
+	try (final InputStream resourceStream = resource.openStream()) {
+	    return resourceStream.readAllBytes();
 	}
-	return result.toString();
     }
 }
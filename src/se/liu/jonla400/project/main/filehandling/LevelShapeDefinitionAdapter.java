@@ -0,0 +1,55 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import se.liu.jonla400.project.main.leveldefinition.LevelShapeDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes a {@link LevelShapeDefinition} as an object with the field "lineSegmentDefinitions",
+ * which is an array of line segments
+ */
+class LevelShapeDefinitionAdapter extends TypeAdapter<LevelShapeDefinition>
+{
+    private final LineSegmentDefinitionAdapter lineSegmentAdapter = new LineSegmentDefinitionAdapter();
+
+    @Override public void write(final JsonWriter out, final LevelShapeDefinition shape) throws IOException {
+	out.beginObject();
+	out.name("lineSegmentDefinitions");
+	out.beginArray();
+	for (LineSegmentDefinition lineSegment : shape) {
+	    lineSegmentAdapter.write(out, lineSegment);
+	}
+	out.endArray();
+	out.endObject();
+    }
+
+    @Override public LevelShapeDefinition read(final JsonReader in) throws IOException {
+	List<LineSegmentDefinition> lineSegments = null;
+	JsonFields.beginObject(in);
+	while (in.hasNext()) {
+	    if (in.nextName().equals("lineSegmentDefinitions")) {
+		lineSegments = readLineSegments(in);
+	    } else {
+		in.skipValue();
+	    }
+	}
+	in.endObject();
+	return LevelShapeDefinition.copyFrom(JsonFields.require(lineSegments, "lineSegmentDefinitions", in));
+    }
+
+    private List<LineSegmentDefinition> readLineSegments(final JsonReader in) throws IOException {
+	final List<LineSegmentDefinition> lineSegments = new ArrayList<>();
+	in.beginArray();
+	while (in.hasNext()) {
+	    lineSegments.add(lineSegmentAdapter.read(in));
+	}
+	in.endArray();
+	return lineSegments;
+    }
+}
@@ -0,0 +1,61 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link LineSegmentDefinition} as an object with the fields "start", "end" and "type",
+ * where the type is the name of a {@link LineSegmentType}. The start and end must be different points.
+ */
+class LineSegmentDefinitionAdapter extends TypeAdapter<LineSegmentDefinition>
+{
+    private final Vector2DAdapter vectorAdapter = new Vector2DAdapter();
+
+    @Override public void write(final JsonWriter out, final LineSegmentDefinition lineSegment) throws IOException {
+	out.beginObject();
+	out.name("start");
+	vectorAdapter.write(out, lineSegment.getStart());
+	out.name("end");
+	vectorAdapter.write(out, lineSegment.getEnd());
+	out.name("type").value(lineSegment.getType().name());
+	out.endObject();
+    }
+
+    @Override public LineSegmentDefinition read(final JsonReader in) throws IOException {
+	Vector2D start = null;
+	Vector2D end = null;
+	LineSegmentType type = null;
+	JsonFields.beginObject(in);
+	while (in.hasNext()) {
+	    switch (in.nextName()) {
+		case "start" -> start = vectorAdapter.read(in);
+		case "end" -> end = vectorAdapter.read(in);
+		case "type" -> type = readType(in);
+		default -> in.skipValue();
+	    }
+	}
+	in.endObject();
+	JsonFields.require(start, "start", in);
+	JsonFields.require(end, "end", in);
+	JsonFields.require(type, "type", in);
+	if (start.equals(end)) {
+	    throw JsonFields.createError("The line segment starts and ends at the same point " + start, in);
+	}
+	return LineSegmentDefinition.copyEndPoints(start, end, type);
+    }
+
+    private static LineSegmentType readType(final JsonReader in) throws IOException {
+	final String name = in.nextString();
+	try {
+	    return LineSegmentType.valueOf(name);
+	} catch (IllegalArgumentException e) {
+	    throw JsonFields.createError("Unknown line segment type \"" + name + "\"", in);
+	}
+    }
+}
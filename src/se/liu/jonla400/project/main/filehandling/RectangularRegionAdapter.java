@@ -0,0 +1,48 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link RectangularRegion} as an object with the fields "bottomLeft" and "size".
+ * The size must not have negative components.
+ */
+class RectangularRegionAdapter extends TypeAdapter<RectangularRegion>
+{
+    private final Vector2DAdapter vectorAdapter = new Vector2DAdapter();
+
+    @Override public void write(final JsonWriter out, final RectangularRegion region) throws IOException {
+	out.beginObject();
+	out.name("bottomLeft");
+	vectorAdapter.write(out, region.getBottomLeft());
+	out.name("size");
+	vectorAdapter.write(out, region.getSize());
+	out.endObject();
+    }
+
+    @Override public RectangularRegion read(final JsonReader in) throws IOException {
+	Vector2D bottomLeft = null;
+	Vector2D size = null;
+	JsonFields.beginObject(in);
+	while (in.hasNext()) {
+	    switch (in.nextName()) {
+		case "bottomLeft" -> bottomLeft = vectorAdapter.read(in);
+		case "size" -> {
+		    size = vectorAdapter.read(in);
+		    if (size.getX() < 0 || size.getY() < 0) {
+			throw JsonFields.createError("Negative size " + size, in);
+		    }
+		}
+		default -> in.skipValue();
+	    }
+	}
+	in.endObject();
+	return RectangularRegion.createFromCornerAndSize(JsonFields.require(bottomLeft, "bottomLeft", in),
+							  JsonFields.require(size, "size", in));
+    }
+}
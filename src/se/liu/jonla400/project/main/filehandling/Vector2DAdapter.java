@@ -0,0 +1,36 @@
+package se.liu.jonla400.project.main.filehandling;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link Vector2D} as an object with the fields "x" and "y"
+ */
+class Vector2DAdapter extends TypeAdapter<Vector2D>
+{
+    @Override public void write(final JsonWriter out, final Vector2D vector) throws IOException {
+	out.beginObject();
+	out.name("x").value(vector.getX());
+	out.name("y").value(vector.getY());
+	out.endObject();
+    }
+
+    @Override public Vector2D read(final JsonReader in) throws IOException {
+	Double x = null;
+	Double y = null;
+	JsonFields.beginObject(in);
+	while (in.hasNext()) {
+	    switch (in.nextName()) {
+		case "x" -> x = in.nextDouble();
+		case "y" -> y = in.nextDouble();
+		default -> in.skipValue();
+	    }
+	}
+	in.endObject();
+	return Vector2D.createCartesian(JsonFields.require(x, "x", in), JsonFields.require(y, "y", in));
+    }
+}
@@ -0,0 +1,96 @@
+package se.liu.jonla400.project.main.game;
+
+import se.liu.jonla400.project.main.drawing.CustomShapeDrawer;
+import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.implementation.CustomShape;
+import se.liu.jonla400.project.physics.collision.implementation.TranslatedCustomShape;
+
+/**
+ * Represents a {@link LevelDefinition} together with the parts of a level that never change while it is played,
+ * which are expensive to create. The level shape is converted to a collidable {@link CustomShape} once, including
+ * its bounding volume hierarchy and a distance field sized for the ball of the level, and the line segments are prepared for drawing once according to a
+ * {@link DrawConfiguration}. Both are then shared by every {@link LevelWorld} created from this level, which only
+ * has to create the bodies and other state that changes while playing.
+ *
+ * A CompiledLevel never changes once compiled, so it can be compiled on one thread and played on another.
+ * The levels created from it are expected to be drawn on the same thread, since they share the cached image of
+ * the level shape (see {@link CustomShapeDrawer}).
+ */
+public class CompiledLevel
+{
+    // The cells of the distance field are this fraction of the ball radius, unless the field would be too large
+    private final static double DISTANCE_FIELD_CELLS_PER_BALL_RADIUS = 2;
+    private final static long MAX_DISTANCE_FIELD_BYTES = 4L * 1024 * 1024;
+
+    private LevelDefinition definition;
+    private DrawConfiguration drawConfig;
+    private CustomShape<LineSegmentType> shape;
+    private CustomShapeDrawer shapeDrawer;
+
+    private CompiledLevel(final LevelDefinition definition, final DrawConfiguration drawConfig,
+			  final CustomShape<LineSegmentType> shape, final CustomShapeDrawer shapeDrawer)
+    {
+	this.definition = definition;
+	this.drawConfig = drawConfig;
+	this.shape = shape;
+	this.shapeDrawer = shapeDrawer;
+    }
+
+    /**
+     * Compiles the given level definition, which is expected not to change afterwards
+     *
+     * @param definition The definition of the level
+     * @param drawConfig Specifies how to draw the ball, line segments and center of mass of the level
+     * @return The created CompiledLevel
+     */
+    public static CompiledLevel compile(final LevelDefinition definition, final DrawConfiguration drawConfig) {
+	final CustomShape<LineSegmentType> shape = createShapeWithDistanceField(definition);
+	final CustomShapeDrawer shapeDrawer = new CustomShapeDrawer(
+		TranslatedCustomShape.copyTranslation(Vector2D.createZero(), shape), drawConfig.getLineSegmentDrawer());
+	return new CompiledLevel(definition, drawConfig, shape, shapeDrawer);
+    }
+
+    private static CustomShape<LineSegmentType> createShapeWithDistanceField(final LevelDefinition definition) {
+	final CustomShape<LineSegmentType> shape = definition.getShape().convertToCollidableShape();
+	final double ballRadius = definition.getBallRadius();
+	if (ballRadius <= 0) {
+	    return shape; // A point never collides with the level anyway
+	}
+	return shape.withDistanceField(ballRadius, ballRadius / DISTANCE_FIELD_CELLS_PER_BALL_RADIUS, MAX_DISTANCE_FIELD_BYTES);
+    }
+
+    /**
+     * @return The definition of the level
+     */
+    public LevelDefinition getDefinition() {
+	return definition;
+    }
+
+    /**
+     * @return The draw configuration that the level was compiled with
+     */
+    public DrawConfiguration getDrawConfig() {
+	return drawConfig;
+    }
+
+    /**
+     * @return The collidable shape of the level, in the coordinates of the level definition
+     */
+    public CustomShape<LineSegmentType> getShape() {
+	return shape;
+    }
+
+    /**
+     * Creates a drawer of the level shape with the given translation, which shares the line segments
+     * prepared for drawing with every other drawer created by this compiled level
+     *
+     * @param translatedShape The translated level shape, whose shape must be {@link #getShape()}
+     * @return The created drawer
+     */
+    public CustomShapeDrawer createShapeDrawer(final TranslatedCustomShape<LineSegmentType> translatedShape) {
+	return shapeDrawer.createSharing(translatedShape);
+    }
+}
@@ -0,0 +1,85 @@
+package se.liu.jonla400.project.main.game;
+
+import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caches {@link CompiledLevel}s by their {@link LevelDefinition}, so that a level that is started again, such
+ * as after being restarted or play-tested again without changes, does not have to be compiled again. Levels are
+ * looked up by the contents of their definitions.
+ *
+ * The memory of the cache is bounded in two ways. At most a given number of levels are cached, and the least
+ * recently used level is evicted when another level is added. The levels are also only softly referenced, so the
+ * garbage collector may evict them before running out of memory.
+ *
+ * The cache can be used from several threads.
+ */
+public class CompiledLevelCache
+{
+    private Map<LevelDefinition, SoftReference<CompiledLevel>> definitionToLevel;
+
+    private CompiledLevelCache(final Map<LevelDefinition, SoftReference<CompiledLevel>> definitionToLevel) {
+	this.definitionToLevel = definitionToLevel;
+    }
+
+    /**
+     * Creates an empty CompiledLevelCache
+     *
+     * @param maxLevels The maximum number of cached levels, must be positive
+     * @return The created CompiledLevelCache
+     */
+    public static CompiledLevelCache create(final int maxLevels) {
+	if (maxLevels <= 0) {
+	    throw new IllegalArgumentException("Non-positive maximum number of levels: " + maxLevels);
+	}
+	final boolean accessOrder = true;
+	final Map<LevelDefinition, SoftReference<CompiledLevel>> definitionToLevel = new LinkedHashMap<>(16, 0.75f, accessOrder)
+	{
+	    @Override protected boolean removeEldestEntry(final Map.Entry<LevelDefinition, SoftReference<CompiledLevel>> eldest) {
+		return size() > maxLevels;
+	    }
+	};
+	return new CompiledLevelCache(definitionToLevel);
+    }
+
+    /**
+     * Returns the cached level with the given definition and draw configuration, or compiles and caches it if
+     * there is none. Levels are compiled without locking the cache, so that several threads can compile different
+     * levels at the same time.
+     *
+     * @param definition The definition of the level, which is expected not to change afterwards
+     * @param drawConfig Specifies how to draw the level
+     * @return The compiled level
+     */
+    public CompiledLevel getOrCompile(final LevelDefinition definition, final DrawConfiguration drawConfig) {
+	final Optional<CompiledLevel> cachedLevel = getCached(definition, drawConfig);
+	if (cachedLevel.isPresent()) {
+	    return cachedLevel.get();
+	}
+	final CompiledLevel level = CompiledLevel.compile(definition, drawConfig);
+	put(definition, level);
+	return level;
+    }
+
+    private synchronized Optional<CompiledLevel> getCached(final LevelDefinition definition, final DrawConfiguration drawConfig) {
+	final SoftReference<CompiledLevel> levelReference = definitionToLevel.get(definition);
+	if (levelReference == null) {
+	    return Optional.empty();
+	}
+	final CompiledLevel level = levelReference.get();
+	if (level == null) {
+	    definitionToLevel.remove(definition); // Evicted by the garbage collector
+	    return Optional.empty();
+	}
+	return level.getDrawConfig() == drawConfig ? Optional.of(level) : Optional.empty();
+    }
+
+    private synchronized void put(final LevelDefinition definition, final CompiledLevel level) {
+	definitionToLevel.put(definition, new SoftReference<>(level));
+    }
+}
@@ -8,81 +8,135 @@ import se.liu.jonla400.project.main.world.WorldGUI;
 
 import javax.swing.*;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Represents the procedure that starts the main game with a sequence of levels for the
- * player to complete
+ * player to complete. The levels are listed by a manifest resource, and are loaded in the
+ * background while the first level is played (see {@link LevelPack}).
+ *
+ * If the manifest or a level can not be read, the player is asked whether to try again or quit. The question
+ * is asked on the event dispatch thread, and only one question is shown at a time even if several levels fail
+ * to load at once.
  */
 public class GameRunner
 {
     private final static Logger LOGGER = Logger.getLogger(GameRunner.class.getName());
 
+    private final static String MANIFEST_RESOURCE_NAME = "levels/manifest.txt";
+
+    // Held while a question is shown, so that the loading threads ask one at a time
+    private final static Object DIALOG_LOCK = new Object();
+
     /**
      * Starts the game
      *
      * @param drawConfig Defines how the ball, line segments and the level's center of mass are to be drawn
      */
     public static void run(final DrawConfiguration drawConfig) {
-	final List<LevelDefinition> levelDefinitions = getLevelsOrElseQuit();
-	final GameWorld gameWorld = GameWorld.createAndStartWithFirstLevel(drawConfig, levelDefinitions);
+	final LevelPack levelPack = LevelPack.startLoading(getLevelResourceNamesOrElseQuit(), GameRunner::loadLevel,
+							   GameRunner::retryLoadingLevelOrElseQuit);
+	final GameWorld gameWorld = GameWorld.createAndStartWithFirstLevel(drawConfig, levelPack);
 	final WorldGUI gui = WorldGUI.createFor(gameWorld);
 	gui.start();
     }
 
     /**
-     * Tries to fetch the levels of the game, but if unsuccessful quits the program
+     * Tries to read the resource names of the levels from the manifest, but if unsuccessful quits the program
      *
-     * @return The list of {@link LevelDefinition} for the game
+     * @return The resource names of the levels, in the order they are played
      */
-    private static List<LevelDefinition> getLevelsOrElseQuit() {
-	final List<LevelDefinition> levels = new ArrayList<>();
-
-	for (String levelResourceName : getLevelResourceNames()) {
-	    boolean levelLoaded = false;
-	    while (!levelLoaded) {
-		try {
-		    levels.add(LevelIO.loadLevelFromResource(levelResourceName));
-		    levelLoaded = true;
-		} catch (IOException e) {
-		    // Logging is done in the called method
-		    reportLevelErrorAndPossiblyQuit("The level \"" + levelResourceName + "\" could not be read!",
-						    "Failed to read level", e);
-		} catch (JsonSyntaxException e) {
-		    // Logging is done in the called method
-		    reportLevelErrorAndPossiblyQuit("The level \"" + levelResourceName + "\" contains invalid syntax!",
-						    "Invalid syntax", e);
-		}
+    private static List<String> getLevelResourceNamesOrElseQuit() {
+	while (true) {
+	    try {
+		return LevelIO.loadManifestFromResource(MANIFEST_RESOURCE_NAME);
+	    } catch (IOException e) {
+		// Logging is done in the called method
+		reportLevelErrorAndPossiblyQuit("The list of levels \"" + MANIFEST_RESOURCE_NAME + "\" could not be read!",
+						"Failed to read levels", e);
 	    }
 	}
-	return levels;
     }
 
-    private static String[] getLevelResourceNames() {
-	// This implementation assumes that each level resource URL is "levels/levelX.json"
-	final int lastLevelIndex = 13; // Change this value when adding a level
+    /**
+     * Loads a level of the game. This is called on the loading threads of the {@link LevelPack}, and an
+     * exception thrown here completes the future of the level exceptionally.
+     *
+     * @param levelResourceName The resource name of the level
+     * @return The {@link LevelDefinition} of the level
+     * @throws UncheckedIOException If trouble reading the level
+     * @throws JsonSyntaxException If the level contains invalid syntax
+     */
+    private static LevelDefinition loadLevel(final String levelResourceName) {
+	try {
+	    return LevelIO.loadLevelFromResource(levelResourceName);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
 
-	final String[] levelResourceNames = new String[lastLevelIndex + 1];
-	for (int levelIndex = 0; levelIndex <= lastLevelIndex; levelIndex++) {
-	    levelResourceNames[levelIndex] = "levels/level" + levelIndex + ".json"; // (Is a resource URL)
+    /**
+     * Asks whether to load a level that failed to load again, and quits the program if not. This is called on
+     * the loading threads of the {@link LevelPack}.
+     *
+     * @return True, since the program has quit otherwise
+     */
+    private static boolean retryLoadingLevelOrElseQuit(final String levelResourceName, final Throwable thrown) {
+	// Logging is done in the called method
+	if (thrown instanceof UncheckedIOException) {
+	    reportLevelErrorAndPossiblyQuit("The level \"" + levelResourceName + "\" could not be read!",
+					    "Failed to read level", thrown.getCause());
+	} else if (thrown instanceof JsonSyntaxException) {
+	    reportLevelErrorAndPossiblyQuit("The level \"" + levelResourceName + "\" contains invalid syntax!",
+					    "Invalid syntax", thrown);
+	} else {
+	    reportLevelErrorAndPossiblyQuit("The level \"" + levelResourceName + "\" could not be loaded!",
+					    "Failed to load level", thrown);
 	}
-	return levelResourceNames;
+	return true;
     }
 
     private static void reportLevelErrorAndPossiblyQuit(final String message, final String title, final Throwable thrown) {
 	LOGGER.log(Level.SEVERE, message, thrown);
-	final Object[] options = {"Retry"};
-	final int chosenOption = JOptionPane.showOptionDialog(
-		null, message, title, JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE,
-		null, options, options[0]
-	);
+	final int chosenOption;
+	synchronized (DIALOG_LOCK) {
+	    chosenOption = showRetryDialogOnEventDispatchThread(message, title);
+	}
 	if (chosenOption == JOptionPane.CLOSED_OPTION) {
 	    LOGGER.info("The user quits after level error");
 	    System.exit(0);
 	}
 	LOGGER.info("The user retries loading the level");
     }
+
+    /**
+     * Shows a dialog with a retry button on the event dispatch thread and waits for it to be closed
+     *
+     * @return The chosen option, or JOptionPane.CLOSED_OPTION if the dialog was closed without retrying
+     */
+    private static int showRetryDialogOnEventDispatchThread(final String message, final String title) {
+	final Object[] options = {"Retry"};
+	final int[] chosenOption = { JOptionPane.CLOSED_OPTION };
+	final Runnable showDialog = () -> chosenOption[0] = JOptionPane.showOptionDialog(
+		null, message, title, JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE,
+		null, options, options[0]
+	);
+	if (SwingUtilities.isEventDispatchThread()) {
+	    showDialog.run();
+	    return chosenOption[0];
+	}
+	try {
+	    SwingUtilities.invokeAndWait(showDialog);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    LOGGER.log(Level.WARNING, "Interrupted while waiting for the user to answer", e);
+	} catch (InvocationTargetException e) {
+	    LOGGER.log(Level.SEVERE, "Failed to ask the user whether to retry", e.getCause());
+	}
+	return chosenOption[0];
+    }
 }
@@ -2,62 +2,80 @@ package se.liu.jonla400.project.main.game;
 
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
 import se.liu.jonla400.project.math.RectangularRegion;
-import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
 import se.liu.jonla400.project.main.world.FilmedWorld;
+import se.liu.jonla400.project.main.world.WorldSnapshot;
 import se.liu.jonla400.project.main.world.WorldWithMovableCamera;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Represents the game world, including the camera (from which the
  * {@link se.liu.jonla400.project.main.world.WorldGUI} determines what to show of the world).
- * The game world has a list of levels and a currently active level. It also has a button
+ * The game world has a {@link LevelPack} and a currently active level. It also has a button
  * for restarting the current level. The game world resets the current level if the player loses,
  * and moves onto the next level if the player wins.
+ *
+ * While a level is played, the next level is compiled in the background so that it is ready to be
+ * started when the current level is completed. If it is not ready yet, the completed level keeps running
+ * until it is, since ticking must not wait for loading. If it could not be loaded, the current level is
+ * restarted instead.
  */
 public class GameWorld implements FilmedWorld, LevelListener
 {
     private final static Logger LOGGER = Logger.getLogger(GameWorld.class.getName());
 
     private DrawConfiguration drawConfig;
-    private List<LevelDefinition> levelDefinitions;
+    private LevelPack levelPack;
     private int currentLevelIndex;
+    private CompiledLevel currentLevel;
+    private Optional<CompletableFuture<CompiledLevel>> nextLevel;
+    private boolean waitingForNextLevel;
     private WorldWithMovableCamera<LevelWorld> currentLevelWithMovableCamera;
     private int restartKeyCode;
 
-    private GameWorld(final DrawConfiguration drawConfig, final List<LevelDefinition> levelDefinitions, final int currentLevelIndex,
-		     final WorldWithMovableCamera<LevelWorld> currentLevelWithMovableCamera, final int restartKeyCode)
+    private GameWorld(final DrawConfiguration drawConfig, final LevelPack levelPack, final int currentLevelIndex,
+		      final CompiledLevel currentLevel, final WorldWithMovableCamera<LevelWorld> currentLevelWithMovableCamera,
+		      final int restartKeyCode)
     {
 	this.drawConfig = drawConfig;
-	this.levelDefinitions = levelDefinitions;
+	this.levelPack = levelPack;
 	this.currentLevelIndex = currentLevelIndex;
+	this.currentLevel = currentLevel;
 	this.currentLevelWithMovableCamera = currentLevelWithMovableCamera;
 	this.restartKeyCode = restartKeyCode;
+	nextLevel = Optional.empty();
+	waitingForNextLevel = false;
     }
 
     /**
      * Creates a new GameWorld that starts on the first level. The restart key is set to enter.
+     * Waits until the first level has been loaded, but not for the other levels.
      *
      * @param drawConfig A specification of how the ball, line segments and the level's center of mass is to be drawn
-     * @param levelDefinitions The list of levels, must be non-empty
+     * @param levelPack The levels, must be non-empty
      * @return The created game world that has started the first level
+     * @throws CompletionException If the first level could not be loaded
      */
-    public static GameWorld createAndStartWithFirstLevel(final DrawConfiguration drawConfig, final List<LevelDefinition> levelDefinitions) {
-	if (levelDefinitions.isEmpty()) {
+    public static GameWorld createAndStartWithFirstLevel(final DrawConfiguration drawConfig, final LevelPack levelPack) {
+	if (levelPack.getLevelCount() == 0) {
 	    throw new IllegalArgumentException("No levels");
 	}
 
 	final int currentLevelIndex = 0;
+	final CompiledLevel currentLevel = levelPack.compileLevel(currentLevelIndex, drawConfig).join();
 	final int restartKeyCode = KeyEvent.VK_ENTER;
 	final GameWorld gameWorld = new GameWorld(
-		drawConfig, new ArrayList<>(levelDefinitions), currentLevelIndex, null, restartKeyCode);
+		drawConfig, levelPack, currentLevelIndex, currentLevel, null, restartKeyCode);
+	gameWorld.prefetchNextLevel();
 	gameWorld.startCurrentLevel();
 	return gameWorld;
     }
@@ -130,35 +148,42 @@ public class GameWorld implements FilmedWorld, LevelListener
     }
 
     /**
-     * Ticks time forward
+     * Advances to the next level if the current level has been completed and the next level has since
+     * been loaded, and then ticks time forward
      *
      * @param deltaTime The amount of time to tick forward
      */
     @Override public void tick(final double deltaTime) {
+	if (waitingForNextLevel && nextLevel.orElseThrow().isDone()) {
+	    advanceToNextLevel();
+	}
 	currentLevelWithMovableCamera.tick(deltaTime);
     }
 
     /**
-     * Draws the current level
+     * Creates a snapshot of the current level
      *
-     * @param g The graphics to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {
-	currentLevelWithMovableCamera.draw(g, region);
+    @Override public WorldSnapshot createSnapshot() {
+	return currentLevelWithMovableCamera.createSnapshot();
     }
 
     /**
-     * Advances to the next level if one exists
+     * Advances to the next level if one exists, once it has been loaded
      */
     @Override public void onLevelCompleted() {
-	if (currentLevelIndex == levelDefinitions.size() - 1) {
+	if (nextLevel.isEmpty()) {
 	    LOGGER.info("The last level was completed");
 	    return;
 	}
 	LOGGER.info("Level " + currentLevelIndex + " was completed");
-	currentLevelIndex++;
-	startCurrentLevel();
+	if (nextLevel.get().isDone()) {
+	    advanceToNextLevel();
+	} else if (!waitingForNextLevel) {
+	    LOGGER.info("Waiting for level " + (currentLevelIndex + 1) + " to load");
+	    waitingForNextLevel = true;
+	}
     }
 
     /**
@@ -169,10 +194,40 @@ public class GameWorld implements FilmedWorld, LevelListener
 	startCurrentLevel();
     }
 
+    /**
+     * Starts the next level, whose future must be done. If it completed exceptionally, the current level
+     * is restarted and the next level is requested again.
+     */
+    private void advanceToNextLevel() {
+	waitingForNextLevel = false;
+	final CompiledLevel loadedLevel;
+	try {
+	    loadedLevel = nextLevel.orElseThrow().join();
+	} catch (CompletionException | CancellationException e) {
+	    LOGGER.log(Level.SEVERE, "Level " + (currentLevelIndex + 1) + " could not be loaded, restarting level " +
+				     currentLevelIndex, e);
+	    prefetchNextLevel();
+	    startCurrentLevel();
+	    return;
+	}
+	currentLevel = loadedLevel;
+	currentLevelIndex++;
+	prefetchNextLevel();
+	startCurrentLevel();
+    }
+
+    private void prefetchNextLevel() {
+	final int nextLevelIndex = currentLevelIndex + 1;
+	if (nextLevelIndex < levelPack.getLevelCount()) {
+	    nextLevel = Optional.of(levelPack.compileLevel(nextLevelIndex, drawConfig));
+	} else {
+	    nextLevel = Optional.empty();
+	}
+    }
+
     private void startCurrentLevel() {
-	final LevelDefinition currentLevelDefinition = levelDefinitions.get(currentLevelIndex);
-	final LevelWorld currentLevelWorld = LevelWorld.create(currentLevelDefinition, drawConfig);
-	final RectangularRegion camera = currentLevelDefinition.getCamera();
+	final LevelWorld currentLevelWorld = LevelWorld.create(currentLevel);
+	final RectangularRegion camera = currentLevel.getDefinition().getCamera();
 
 	currentLevelWithMovableCamera = WorldWithMovableCamera.create(currentLevelWorld, camera);
 	currentLevelWorld.addListener(this); // We want to be notified when the level is failed or completed
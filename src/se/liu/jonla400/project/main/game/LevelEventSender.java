@@ -12,7 +12,8 @@ import java.util.function.Consumer;
 
 /**
  * Messages a set of {@link LevelListener} when a level is failed or completed based on line segments
- * collided with
+ * collided with. Only the beginning of each contact matters, so the listeners are messaged once when the
+ * ball hits a line segment rather than during every tick that it touches it.
  */
 public class LevelEventSender implements CollisionListener<LineSegmentType>
 {
@@ -50,11 +51,11 @@ public class LevelEventSender implements CollisionListener<LineSegmentType>
 
     /**
      * Potentially notifies listeners about a level event, depending on the type of line segment
-     * collided with
+     * that a contact began with
      *
-     * @param collision The collision that occured
+     * @param collision The collision that began the contact
      */
-    @Override public void collisionOccurred(final CollisionData<LineSegmentType> collision) {
+    @Override public void onContactBegin(final CollisionData<LineSegmentType> collision) {
         getListenerActionOf(collision).ifPresent(listeners::forEach);
     }
 
@@ -0,0 +1,112 @@
+package se.liu.jonla400.project.main.game;
+
+import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Represents the sequence of levels of the game, which are loaded in parallel in the background. The levels
+ * are queued for loading in order, so the first level is ready as soon as possible while the remaining levels
+ * keep loading behind it. The time until the first level can be played thus does not depend on the number of
+ * levels.
+ *
+ * Levels are loaded and compiled by a bounded number of daemon threads, which stop once idle. The most
+ * recently compiled levels are cached (see {@link CompiledLevelCache}). A level that fails to load is either
+ * loaded again or left failed, as decided by the given failure handler, so the future of a level completes
+ * exceptionally if it is given up on.
+ */
+public class LevelPack
+{
+    private final static int MAX_LOADING_THREADS = 4;
+    private final static long IDLE_THREAD_TIMEOUT_SECONDS = 1;
+    // Enough for the current level and the next level, as well as a few levels before them
+    private final static int MAX_CACHED_LEVELS = 4;
+
+    private List<CompletableFuture<LevelDefinition>> levelDefinitions;
+    private Executor executor;
+    private CompiledLevelCache compiledLevelCache;
+
+    private LevelPack(final List<CompletableFuture<LevelDefinition>> levelDefinitions, final Executor executor,
+		      final CompiledLevelCache compiledLevelCache)
+    {
+	this.levelDefinitions = levelDefinitions;
+	this.executor = executor;
+	this.compiledLevelCache = compiledLevelCache;
+    }
+
+    /**
+     * Starts loading the levels with the given names in the background
+     *
+     * @param levelNames The names of the levels, in the order they are played
+     * @param levelLoader Loads the level with a given name, and is called on the loading threads
+     * @param failureHandler Given the name of a level and what the loader threw, decides whether to load the
+     *                       level again. Called on the loading threads, which wait for it to return.
+     * @return The created LevelPack
+     */
+    public static LevelPack startLoading(final List<String> levelNames, final Function<String, LevelDefinition> levelLoader,
+					 final BiPredicate<String, Throwable> failureHandler)
+    {
+	final Executor executor = createExecutor();
+	final List<CompletableFuture<LevelDefinition>> levelDefinitions = new ArrayList<>(levelNames.size());
+	for (String levelName : levelNames) {
+	    levelDefinitions.add(load(levelName, levelLoader, failureHandler, executor));
+	}
+	return new LevelPack(levelDefinitions, executor, CompiledLevelCache.create(MAX_CACHED_LEVELS));
+    }
+
+    private static CompletableFuture<LevelDefinition> load(final String levelName, final Function<String, LevelDefinition> levelLoader,
+							   final BiPredicate<String, Throwable> failureHandler, final Executor executor)
+    {
+	return CompletableFuture.supplyAsync(() -> levelLoader.apply(levelName), executor).exceptionallyComposeAsync(thrown -> {
+	    // The future wraps what the loader threw
+	    final Throwable cause = thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown;
+	    if (failureHandler.test(levelName, cause)) {
+		return load(levelName, levelLoader, failureHandler, executor);
+	    }
+	    return CompletableFuture.failedFuture(cause);
+	}, executor);
+    }
+
+    private static Executor createExecutor() {
+	final int threadCount = Math.min(MAX_LOADING_THREADS, Runtime.getRuntime().availableProcessors());
+	final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+		threadCount, threadCount, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+		task -> {
+		    final Thread thread = new Thread(task, "Level loader");
+		    thread.setDaemon(true); // Loading must not keep the program alive
+		    return thread;
+		});
+	executor.allowCoreThreadTimeOut(true);
+	return executor;
+    }
+
+    /**
+     * @return The number of levels
+     */
+    public int getLevelCount() {
+	return levelDefinitions.size();
+    }
+
+    /**
+     * Compiles the level at the given index in the background as soon as it has been loaded, unless
+     * it is already cached
+     *
+     * @param levelIndex The index of the level
+     * @param drawConfig Specifies how to draw the level
+     * @return The compiled level, once it is compiled
+     */
+    public CompletableFuture<CompiledLevel> compileLevel(final int levelIndex, final DrawConfiguration drawConfig) {
+	return levelDefinitions.get(levelIndex).thenApplyAsync(
+		definition -> compiledLevelCache.getOrCompile(definition, drawConfig), executor);
+    }
+}
@@ -4,18 +4,19 @@ import se.liu.jonla400.project.main.drawing.BodyDrawer;
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
 import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.drawing.DrawerList;
-import se.liu.jonla400.project.main.drawing.LineSegmentDrawer;
-import se.liu.jonla400.project.main.leveldefinition.LevelShapeDefinition;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.main.drawing.CustomShapeDrawer;
 import se.liu.jonla400.project.main.world.AdaptingWorld;
+import se.liu.jonla400.project.main.world.WorldSnapshot;
 import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.CollisionEventBus;
 import se.liu.jonla400.project.physics.collision.CollisionHandler;
 import se.liu.jonla400.project.physics.main.Body;
 import se.liu.jonla400.project.physics.main.PhysicsEngine;
 import se.liu.jonla400.project.physics.collision.implementation.CircleCollider;
-import se.liu.jonla400.project.physics.collision.implementation.CircleVsCustomCollisionDetector;
+import se.liu.jonla400.project.physics.collision.implementation.CircleVsCustomTimeOfImpactFinder;
+import se.liu.jonla400.project.physics.collision.implementation.CollisionWorld;
 import se.liu.jonla400.project.physics.collision.implementation.CustomCollider;
 import se.liu.jonla400.project.physics.collision.implementation.CustomShape;
 import se.liu.jonla400.project.physics.collision.implementation.TranslatedCustomShape;
@@ -36,24 +37,34 @@ public class LevelWorld extends AdaptingWorld
 {
     private PhysicsEngine physicsEngine;
     private Color backgroundColor;
-    private DrawerList bodyDrawers;
+    private Body levelBody;
+    private CustomShapeDrawer levelShapeDrawer;
+    private Drawer centerOfMassDrawer;
     private Body circleBody;
+    private Drawer circleDrawer;
 
     private CenterOfMassController centerOfMassController;
     private VelocityController velController;
 
+    private CollisionEventBus<LineSegmentType> collisionEvents;
     private LevelEventSender levelEventSender;
 
-    private LevelWorld(final PhysicsEngine physicsEngine, final Color backgroundColor, final DrawerList bodyDrawers, final Body circleBody,
-                      final CenterOfMassController centerOfMassController, final VelocityController velController,
-                      final LevelEventSender levelEventSender)
+    private LevelWorld(final PhysicsEngine physicsEngine, final Color backgroundColor, final Body levelBody,
+                       final CustomShapeDrawer levelShapeDrawer, final Drawer centerOfMassDrawer, final Body circleBody,
+                       final Drawer circleDrawer, final CenterOfMassController centerOfMassController,
+                       final VelocityController velController, final CollisionEventBus<LineSegmentType> collisionEvents,
+                       final LevelEventSender levelEventSender)
     {
         this.physicsEngine = physicsEngine;
         this.backgroundColor = backgroundColor;
-        this.bodyDrawers = bodyDrawers;
+        this.levelBody = levelBody;
+        this.levelShapeDrawer = levelShapeDrawer;
+        this.centerOfMassDrawer = centerOfMassDrawer;
         this.circleBody = circleBody;
+        this.circleDrawer = circleDrawer;
         this.centerOfMassController = centerOfMassController;
         this.velController = velController;
+        this.collisionEvents = collisionEvents;
         this.levelEventSender = levelEventSender;
     }
 
@@ -66,9 +77,23 @@ public class LevelWorld extends AdaptingWorld
      * @return The created level world
      */
     public static LevelWorld create(final LevelDefinition definition, final DrawConfiguration drawConfig) {
+        return create(CompiledLevel.compile(definition, drawConfig));
+    }
+
+    /**
+     * Creates a level world based on the {@link CompiledLevel}, which also specifies how to display the ball,
+     * line segments and center of mass. The level shape and the line segments prepared for drawing are shared with
+     * the compiled level, so only the bodies and the other state that changes while playing are created.
+     *
+     * @param compiledLevel The compiled level
+     * @return The created level world
+     */
+    public static LevelWorld create(final CompiledLevel compiledLevel) {
+        final LevelDefinition definition = compiledLevel.getDefinition();
+        final DrawConfiguration drawConfig = compiledLevel.getDrawConfig();
         final Vector2D centerOfMass = definition.getCenterOfMass();
         final Body levelBody = createLevelBodyAt(centerOfMass);
-        final TranslatedCustomShape<LineSegmentType> levelShape = createLevelShape(centerOfMass, definition.getShape());
+        final TranslatedCustomShape<LineSegmentType> levelShape = createLevelShape(centerOfMass, compiledLevel.getShape());
         final CustomCollider<LineSegmentType> levelCollider = new CustomCollider<>(levelBody, levelShape);
 
         final Body ballBody = createBallBodyAt(definition.getBallPos());
@@ -78,23 +103,28 @@ public class LevelWorld extends AdaptingWorld
         final VelocityController velController = VelocityController.createWithDefaultConfigFor(levelBody);
         final CenterOfMassController centerOfMassController = CenterOfMassController.createWithDefaultConfigFor(levelCollider);
 
-        final CollisionHandler<LineSegmentType> collisionHandler = CollisionHandler.createWithDefaultConfig(
-                CircleVsCustomCollisionDetector.createWithDefaultUniformMaterial(ballCollider, levelCollider)
-        );
+        // Collisions between balls are treated as collisions with default line segments
+        final CollisionWorld<LineSegmentType> collisionWorld = CollisionWorld.createWithDefaultUniformMaterial(LineSegmentType.DEFAULT);
+        collisionWorld.addCustom(levelCollider);
+        collisionWorld.addCircle(ballCollider);
+        final CollisionHandler<LineSegmentType> collisionHandler = CollisionHandler.createWithDefaultConfig(collisionWorld);
+        // The level listeners may replace the whole level, which must wait until the physics engine has ticked
+        final CollisionEventBus<LineSegmentType> collisionEvents = CollisionEventBus.createDeliveringOnPublishingThread();
+        collisionHandler.addListener(collisionEvents);
         final LevelEventSender levelEventSender = LevelEventSender.createWithoutListeners();
-        collisionHandler.addListener(levelEventSender);
+        collisionEvents.subscribe(levelEventSender);
 
         final PhysicsEngine physicsEngine = PhysicsEngine.createWithDefaultVelIterations();
         physicsEngine.add(levelBody, ballBody);
         physicsEngine.add(velController, collisionHandler);
+        // The ball must not pass through the level between two ticks, however fast it moves
+        physicsEngine.add(CircleVsCustomTimeOfImpactFinder.createWithDefaultConfig(ballCollider, levelCollider));
 
-        final DrawerList bodyDrawers = DrawerList.create(
-                createLevelDrawer(levelBody, levelShape, drawConfig.getLineSegmentDrawer(), drawConfig.getCenterOfMassDrawer()),
-                new BodyDrawer(ballBody, drawConfig.getBallDrawer(ballRadius))
-        );
+        final CustomShapeDrawer levelShapeDrawer = compiledLevel.createShapeDrawer(levelShape);
 
-        return new LevelWorld(physicsEngine, drawConfig.getBackgroundColor(), bodyDrawers, ballBody, centerOfMassController, velController,
-                              levelEventSender);
+        return new LevelWorld(physicsEngine, drawConfig.getBackgroundColor(), levelBody, levelShapeDrawer,
+                              drawConfig.getCenterOfMassDrawer(), ballBody, drawConfig.getBallDrawer(ballRadius),
+                              centerOfMassController, velController, collisionEvents, levelEventSender);
     }
 
     private static Body createLevelBodyAt(final Vector2D pos) {
@@ -104,10 +134,9 @@ public class LevelWorld extends AdaptingWorld
     }
 
     private static TranslatedCustomShape<LineSegmentType> createLevelShape(
-            final Vector2D centerOfMass, final LevelShapeDefinition levelShapeDefinition)
+            final Vector2D centerOfMass, final CustomShape<LineSegmentType> shape)
     {
         final Vector2D translation = centerOfMass.negate();
-        final CustomShape<LineSegmentType> shape = levelShapeDefinition.convertToCollidableShape();
         return TranslatedCustomShape.copyTranslation(translation, shape);
     }
 
@@ -117,16 +146,6 @@ public class LevelWorld extends AdaptingWorld
         return Body.create(pos, ballMass, ballAngularMass);
     }
 
-    private static BodyDrawer createLevelDrawer(
-            final Body levelBody, final TranslatedCustomShape<LineSegmentType> levelShape,
-            final LineSegmentDrawer lineSegmentDrawer, final Drawer centerOfMassDrawer)
-    {
-        return new BodyDrawer(levelBody, DrawerList.create(
-                new CustomShapeDrawer(levelShape, lineSegmentDrawer),
-                centerOfMassDrawer
-        ));
-    }
-
     /**
      * Updates the considered mouse position to know where to set the center of mass when the correct
      * mouse button is pressed
@@ -165,34 +184,54 @@ public class LevelWorld extends AdaptingWorld
     }
 
     /**
-     * Ticks time forward
+     * Steers the level towards the given velocity and angular velocity without involving the keyboard
+     *
+     * @param targetVel The desired velocity of the level
+     * @param targetAngularVel The desired angular velocity of the level
+     */
+    public void steer(final Vector2D targetVel, final double targetAngularVel) {
+        velController.setTargetVelocities(targetVel, targetAngularVel);
+    }
+
+    /**
+     * Ticks time forward, and then tells the listeners if the level was failed or completed during the tick
      *
      * @param deltaTime The amount of time to tick forward
      */
     @Override public void tick(final double deltaTime) {
         applyGravityToCircle(deltaTime);
         physicsEngine.tick(deltaTime);
+        collisionEvents.publish();
     }
 
     private void applyGravityToCircle(final double deltaTime) {
+        if (circleBody.isAsleep()) {
+            return; // A resting circle stays asleep until something else wakes it up
+        }
         final Vector2D gravityAcceleration = Vector2D.createCartesian(0, -9.82);
         final Vector2D gravityDeltaVel = gravityAcceleration.multiply(deltaTime);
         circleBody.setVel(circleBody.getVel().add(gravityDeltaVel));
     }
 
     /**
-     * Draws this level world onto the {@link Graphics2D} object at the region. This method does not
-     * guarantee that nothing outside the region will be drawn.
+     * Creates a snapshot of the level and the ball as they are now. The level shape is copied
+     * since the center of mass of the level can be moved.
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {
-        drawBackground(g, region);
-        bodyDrawers.draw(g);
+    @Override public WorldSnapshot createSnapshot() {
+        final Color background = backgroundColor;
+        final BodyDrawer levelDrawer = BodyDrawer.createSnapshotOf(
+                levelBody, DrawerList.create(levelShapeDrawer.createSnapshot(), centerOfMassDrawer));
+        final BodyDrawer ballDrawer = BodyDrawer.createSnapshotOf(circleBody, circleDrawer);
+        return (g, region, interpolation) -> {
+            drawBackground(g, region, background);
+            levelDrawer.draw(g, region, interpolation);
+            ballDrawer.draw(g, region, interpolation);
+        };
     }
 
-    private void drawBackground(final Graphics2D g, final RectangularRegion region) {
+    private static void drawBackground(final Graphics2D g, final RectangularRegion region, final Color backgroundColor) {
         g.setColor(backgroundColor);
         g.fill(region.convertToDrawableRect());
     }
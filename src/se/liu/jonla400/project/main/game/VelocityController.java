@@ -9,7 +9,9 @@ import se.liu.jonla400.project.physics.constraint.implementation.AngularVelocity
 import se.liu.jonla400.project.physics.constraint.implementation.VelocitySeeker;
 
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -31,6 +33,10 @@ public class VelocityController implements VelocityConstrainer
     private Set<RotationDirection> activeRotationDirections;
     private AngularVelocitySeeker angularVelSeeker;
 
+    // The constraints of the seekers during the current time step, and a view of them
+    private List<ActiveVelocityConstraint> seekerConstraints;
+    private ActiveVelocityConstraintList constraint;
+
     public VelocityController(final Map<Integer, MovementDirection> keyToMovementDir, final double speed,
                               final Set<MovementDirection> activeMovementDirections, final VelocitySeeker velSeeker,
                               final Map<Integer, RotationDirection> keyToRotationDir, final double angularSpeed,
@@ -44,6 +50,8 @@ public class VelocityController implements VelocityConstrainer
         this.angularSpeed = angularSpeed;
         this.activeRotationDirections = activeRotationDirections;
         this.angularVelSeeker = angularVelSeeker;
+        seekerConstraints = new ArrayList<>();
+        constraint = ActiveVelocityConstraintList.createViewWithSingleIteration(seekerConstraints);
     }
 
     /**
@@ -108,6 +116,19 @@ public class VelocityController implements VelocityConstrainer
         getRotationDirectionOfKey(keyEvent).ifPresent(this::endRotationInDirection);
     }
 
+    /**
+     * Sets the desired velocity and angular velocity directly, instead of deriving them from the
+     * pressed keys. This lets the body be steered without a keyboard, for example by a script.
+     * The maximum force and torque still apply.
+     *
+     * @param targetVel The desired velocity
+     * @param targetAngularVel The desired angular velocity
+     */
+    public void setTargetVelocities(final Vector2D targetVel, final double targetAngularVel) {
+        velSeeker.setTargetVel(targetVel);
+        angularVelSeeker.setTargetAngularVel(targetAngularVel);
+    }
+
     private Optional<MovementDirection> getMovementDirectionOfKey(final KeyEvent keyEvent) {
         return Optional.ofNullable(keyToMovementDir.get(keyEvent.getKeyCode()));
     }
@@ -177,9 +198,9 @@ public class VelocityController implements VelocityConstrainer
      */
     @Override public ActiveVelocityConstraint generateConstraint(final double deltaTime) {
         // Combine the velocity and the angular velocity constraints
-        return ActiveVelocityConstraintList.createWithSingleIteration(
-                velSeeker.generateConstraint(deltaTime),
-                angularVelSeeker.generateConstraint(deltaTime)
-        );
+        seekerConstraints.clear();
+        seekerConstraints.add(velSeeker.generateConstraint(deltaTime));
+        seekerConstraints.add(angularVelSeeker.generateConstraint(deltaTime));
+        return constraint;
     }
 }
@@ -1,34 +1,41 @@
 package se.liu.jonla400.project.main.levelcreation;
 
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.game.CompiledLevelCache;
 import se.liu.jonla400.project.main.game.LevelWorld;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
 import se.liu.jonla400.project.main.world.FilmedWorld;
+import se.liu.jonla400.project.main.world.WorldSnapshot;
 import se.liu.jonla400.project.main.world.WorldWithMovableCamera;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 
 /**
  * Represents a {@link FilmedWorld} that can toggle between being a world where the user
- * creates a level and a world where the user play-tests the created level
+ * creates a level and a world where the user play-tests the created level. The compiled level is cached,
+ * so testing the level again without changing it starts immediately.
  */
 public class CreateAndTestWorld implements FilmedWorld
 {
+    // The level being created is the only level that is tested
+    private final static int MAX_CACHED_LEVELS = 1;
+
     private WorldWithMovableCamera<LevelCreator> levelCreatorWithMovableCamera;
     private FilmedWorld currentWorld;
     private int toggleTestingKeyCode;
+    private CompiledLevelCache compiledLevelCache;
 
     private CreateAndTestWorld(final WorldWithMovableCamera<LevelCreator> levelCreatorWithMovableCamera, final FilmedWorld currentWorld,
-			       final int toggleTestingKeyCode)
+			       final int toggleTestingKeyCode, final CompiledLevelCache compiledLevelCache)
     {
 	this.levelCreatorWithMovableCamera = levelCreatorWithMovableCamera;
 	this.currentWorld = currentWorld;
 	this.toggleTestingKeyCode = toggleTestingKeyCode;
+	this.compiledLevelCache = compiledLevelCache;
     }
 
     /**
@@ -47,7 +54,8 @@ public class CreateAndTestWorld implements FilmedWorld
 	final WorldWithMovableCamera<LevelCreator> levelCreatorWithMovableCamera = WorldWithMovableCamera.create(levelCreator, camera);
 
 	final int toggleTestingKeyCode = KeyEvent.VK_ENTER;
-	return new CreateAndTestWorld(levelCreatorWithMovableCamera, levelCreatorWithMovableCamera, toggleTestingKeyCode);
+	return new CreateAndTestWorld(levelCreatorWithMovableCamera, levelCreatorWithMovableCamera, toggleTestingKeyCode,
+				      CompiledLevelCache.create(MAX_CACHED_LEVELS));
     }
 
     /**
@@ -125,7 +133,7 @@ public class CreateAndTestWorld implements FilmedWorld
 	if (currentWorld.equals(levelCreatorWithMovableCamera)) {
 	    // Instantiate the level and set it as the current world (with a camera)
 	    final LevelDefinition levelDefinition = getLevelDefinition();
-	    final LevelWorld levelWorld = LevelWorld.create(levelDefinition, getDrawConfig());
+	    final LevelWorld levelWorld = LevelWorld.create(compiledLevelCache.getOrCompile(levelDefinition, getDrawConfig()));
 	    final RectangularRegion camera = levelDefinition.getCamera();
 	    currentWorld = WorldWithMovableCamera.create(levelWorld, camera);
 	} else {
@@ -152,14 +160,12 @@ public class CreateAndTestWorld implements FilmedWorld
     }
 
     /**
-     * Draws this world onto the {@link Graphics2D} object at the given region.
-     * This method might draw outside the region too.
+     * Creates a snapshot of the current world, which depends on the current mode
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {
-	currentWorld.draw(g, region);
+    @Override public WorldSnapshot createSnapshot() {
+	return currentWorld.createSnapshot();
     }
 
     private DrawConfiguration getDrawConfig() {
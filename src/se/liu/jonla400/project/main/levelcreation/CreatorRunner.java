@@ -73,7 +73,11 @@ public class CreatorRunner
 	{
 	    @Override public void keyPressed(final KeyEvent e) {
 		if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_S) {
-		    saveLevelOrMessageError(createAndTestWorld.getLevelDefinition(), path);
+		    // The world is owned by the simulation thread, but the saving and messages belong to the event dispatch thread
+		    gui.invokeLaterInSimulation(() -> {
+			final LevelDefinition levelDefinition = createAndTestWorld.getLevelDefinition();
+			SwingUtilities.invokeLater(() -> saveLevelOrMessageError(levelDefinition, path));
+		    });
 		}
 	    }
 	});
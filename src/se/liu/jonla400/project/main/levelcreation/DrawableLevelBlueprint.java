@@ -1,16 +1,20 @@
 package se.liu.jonla400.project.main.levelcreation;
 
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.drawing.Transform;
 import se.liu.jonla400.project.main.drawing.TransformedDrawer;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentDefinition;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.main.drawing.CameraDrawer;
+import se.liu.jonla400.project.main.world.WorldSnapshot;
 import se.liu.jonla400.project.math.Vector2D;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -19,9 +23,15 @@ import java.util.Set;
  */
 public class DrawableLevelBlueprint
 {
+    private final static int NEVER_MODIFIED = -1;
+
     private LevelBlueprint blueprint;
     private DrawConfiguration drawConfig;
 
+    // The line segments drawer of the last snapshot, reused until the line segments are modified
+    private Drawer lineSegmentsDrawer;
+    private int lineSegmentsDrawerModificationCount;
+
     /**
      * Creates a DrawableLevelBlueprint that wraps the given {@link LevelBlueprint} and draws it
      * according to the given {@link DrawConfiguration}
@@ -32,56 +42,65 @@ public class DrawableLevelBlueprint
     public DrawableLevelBlueprint(final LevelBlueprint blueprint, final DrawConfiguration drawConfig) {
         this.blueprint = blueprint;
         this.drawConfig = drawConfig;
+        lineSegmentsDrawer = (g, visibleRegion) -> {};
+        lineSegmentsDrawerModificationCount = NEVER_MODIFIED;
     }
 
     /**
-     * Draws the wrapped blueprint onto the {@link Graphics2D} object at the given region.
-     * This method might draw outside the region too.
+     * Creates a snapshot of the wrapped blueprint as it is now, which draws the blueprint
+     * according to the draw configuration. The line segments are drawn grouped by line segment type, and
+     * the groups are only rebuilt when the line segments of the blueprint have been modified.
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
-     */
-    public void draw(final Graphics2D g, final RectangularRegion region) {
-        drawBackground(g, region);
-        drawFullLineSegments(g);
-        drawBall(g);
-        drawCenterOfMass(g);
-        drawCamera(g);
-    }
-
-    private void drawBackground(final Graphics2D g, final RectangularRegion region) {
-        g.setColor(drawConfig.getBackgroundColor());
-        g.fill(region.convertToDrawableRect());
-    }
-
-    private void drawFullLineSegments(final Graphics2D g) {
-        final Iterator<IndexedLineSegment> lineSegmentIterator = getLineSegmentIterator();
-        while (lineSegmentIterator.hasNext()) {
-            final LineSegmentDefinition lineSegment = lineSegmentIterator.next().removeIndex();
-            drawConfig.getLineSegmentDrawer().draw(g, lineSegment);
+     * @return The created snapshot
+     */
+    public WorldSnapshot createSnapshot() {
+        final Color backgroundColor = drawConfig.getBackgroundColor();
+        final Drawer lineSegmentsDrawer = getFullLineSegmentsDrawer();
+        final Drawer ballDrawer = createBallDrawer();
+        final Drawer centerOfMassDrawer = createCenterOfMassDrawer();
+        final Drawer cameraDrawer = createCameraDrawer();
+        return (g, region, interpolation) -> {
+            g.setColor(backgroundColor);
+            g.fill(region.convertToDrawableRect());
+            lineSegmentsDrawer.draw(g, region);
+            ballDrawer.draw(g, region);
+            centerOfMassDrawer.draw(g, region);
+            cameraDrawer.draw(g, region);
+        };
+    }
+
+    private Drawer getFullLineSegmentsDrawer() {
+        final int modificationCount = blueprint.getLineSegmentModificationCount();
+        if (modificationCount != lineSegmentsDrawerModificationCount) {
+            final List<LineSegmentDefinition> lineSegments = new ArrayList<>();
+            final Iterator<IndexedLineSegment> lineSegmentIterator = getLineSegmentIterator();
+            while (lineSegmentIterator.hasNext()) {
+                lineSegments.add(lineSegmentIterator.next().removeIndex());
+            }
+            lineSegmentsDrawer = drawConfig.getLineSegmentDrawer().createBatchDrawer(lineSegments);
+            lineSegmentsDrawerModificationCount = modificationCount;
         }
+        return lineSegmentsDrawer;
     }
 
-    private void drawBall(final Graphics2D g) {
+    private Drawer createBallDrawer() {
         // Note: The ball position and radius are constant, but level creator
         // modes in the future might be able to change them
-        TransformedDrawer.draw(
-                g, Transform.createWithTranslation(blueprint.getBallPos()),
-                drawConfig.getBallDrawer(blueprint.getBallRadius())
-        );
+        final Transform ballTransform = Transform.createWithTranslation(blueprint.getBallPos());
+        final Drawer localBallDrawer = drawConfig.getBallDrawer(blueprint.getBallRadius());
+        return (g, visibleRegion) -> TransformedDrawer.draw(g, visibleRegion, ballTransform, localBallDrawer);
     }
 
-    private void drawCenterOfMass(final Graphics2D g) {
-        TransformedDrawer.draw(
-                g, Transform.createWithTranslation(blueprint.getCenterOfMass()),
-                drawConfig.getCenterOfMassDrawer()
-        );
+    private Drawer createCenterOfMassDrawer() {
+        final Transform centerOfMassTransform = Transform.createWithTranslation(blueprint.getCenterOfMass());
+        final Drawer localCenterOfMassDrawer = drawConfig.getCenterOfMassDrawer();
+        return (g, visibleRegion) -> TransformedDrawer.draw(
+                g, visibleRegion, centerOfMassTransform, localCenterOfMassDrawer);
     }
 
-    private void drawCamera(final Graphics2D g) {
+    private Drawer createCameraDrawer() {
         final float strokeWidth = 0.1f;
-        final CameraDrawer cameraDrawer = CameraDrawer.createDashed(blueprint.getCamera(), Color.BLACK, strokeWidth);
-        cameraDrawer.draw(g);
+        return CameraDrawer.createDashed(blueprint.getCamera(), Color.BLACK, strokeWidth);
     }
 
     /**
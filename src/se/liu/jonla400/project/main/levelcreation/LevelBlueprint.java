@@ -32,6 +32,9 @@ public class LevelBlueprint
     private double ballRadius;
     private RectangularRegion camera;
 
+    // Incremented each time the line segments change, see getLineSegmentModificationCount
+    private int lineSegmentModificationCount;
+
     private LevelBlueprint(final List<Vector2D> vertices, final List<LineSegmentType> lineSegmentTypes, final Vector2D centerOfMass,
                           final Vector2D ballPos, final double ballRadius, final RectangularRegion camera)
     {
@@ -41,6 +44,7 @@ public class LevelBlueprint
         this.ballPos = ballPos;
         this.ballRadius = ballRadius;
         this.camera = camera;
+        lineSegmentModificationCount = 0;
     }
 
     /**
@@ -84,6 +88,7 @@ public class LevelBlueprint
         if (!hasIncompleteLineSegment()) {
             lineSegmentTypes.add(LineSegmentType.DEFAULT);
         }
+        lineSegmentModificationCount++;
     }
 
     /**
@@ -94,6 +99,7 @@ public class LevelBlueprint
         if (hasIncompleteLineSegment()) {
             lineSegmentTypes.remove(lineSegmentTypes.size() - 1);
         }
+        lineSegmentModificationCount++;
     }
 
     /**
@@ -106,6 +112,7 @@ public class LevelBlueprint
                 v.set(newPos);
             }
         }
+        lineSegmentModificationCount++;
     }
 
     /**
@@ -118,6 +125,7 @@ public class LevelBlueprint
         final int startVertexIndex = VERTICES_PER_SEGMENT * segmentIndex;
         vertices.addAll(startVertexIndex, Arrays.asList(segment.getStart(), segment.getEnd()));
         lineSegmentTypes.add(segmentIndex, segment.getType());
+        lineSegmentModificationCount++;
     }
 
     /**
@@ -129,6 +137,7 @@ public class LevelBlueprint
         final int startVertexIndex = VERTICES_PER_SEGMENT * segmentIndex;
         vertices.subList(startVertexIndex, startVertexIndex + VERTICES_PER_SEGMENT).clear();
         lineSegmentTypes.remove(segmentIndex);
+        lineSegmentModificationCount++;
     }
 
     /**
@@ -139,6 +148,18 @@ public class LevelBlueprint
      */
     public void setLineSegmentType(final int segmentIndex, final LineSegmentType type) {
         lineSegmentTypes.set(segmentIndex, type);
+        lineSegmentModificationCount++;
+    }
+
+    /**
+     * Returns a number that changes each time a vertex or line segment is added, removed, moved or given
+     * another type. Anything derived from the line segments only needs to be derived again when this
+     * number has changed.
+     *
+     * @return The number of modifications of the line segments so far
+     */
+    public int getLineSegmentModificationCount() {
+        return lineSegmentModificationCount;
     }
 
     /**
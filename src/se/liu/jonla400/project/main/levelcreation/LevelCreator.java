@@ -1,15 +1,16 @@
 package se.liu.jonla400.project.main.levelcreation;
 
 import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.commands.Command;
 import se.liu.jonla400.project.main.levelcreation.commands.CommandTimeLine;
 import se.liu.jonla400.project.main.levelcreation.modes.Mode;
 import se.liu.jonla400.project.main.leveldefinition.LineSegmentType;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.main.world.AdaptingWorld;
+import se.liu.jonla400.project.main.world.WorldSnapshot;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.util.Optional;
@@ -139,15 +140,17 @@ public class LevelCreator extends AdaptingWorld
     }
 
     /**
-     * Draws the level creator onto the {@link Graphics2D} object at the region. This method
-     * might draw outside the region too
+     * Creates a snapshot of the level blueprint with the overlay of the current mode on top
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {
-	blueprint.draw(g, region);
-	currentMode.draw(this, g);
+    @Override public WorldSnapshot createSnapshot() {
+	final WorldSnapshot blueprintSnapshot = blueprint.createSnapshot();
+	final Drawer modeOverlay = currentMode.createOverlay(this);
+	return (g, region, interpolation) -> {
+	    blueprintSnapshot.draw(g, region, interpolation);
+	    modeOverlay.draw(g, region);
+	};
     }
 
     /**
@@ -1,8 +1,8 @@
 package se.liu.jonla400.project.main.levelcreation.modes;
 
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.LevelCreator;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 
 /**
@@ -18,5 +18,7 @@ public class AdaptingMode implements Mode
 
     @Override public void cursorReleased(final LevelCreator levelCreator) {}
 
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {}
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
+	return (g, visibleRegion) -> {};
+    }
 }
@@ -1,5 +1,6 @@
 package se.liu.jonla400.project.main.levelcreation.modes;
 
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.LevelCreator;
 import se.liu.jonla400.project.main.levelcreation.commands.ReversedCommand;
 import se.liu.jonla400.project.main.levelcreation.commands.Command;
@@ -131,22 +132,24 @@ public class AddVertexMode extends AdaptingMode
 	});
     }
 
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
 	final Vector2D upcomingVertex = getUpcomingVertex(levelCreator);
-
-	// Draw the upcoming vertex
-	final double radius = 0.2;
-	final double diameter = 2 * radius;
-	g.setColor(Color.BLACK);
-	g.setStroke(new BasicStroke(0.1f));
-	g.draw(new Ellipse2D.Double(upcomingVertex.getX() - radius, upcomingVertex.getY() - radius, diameter, diameter));
-
-	// Draw the upcoming line segment, if it exists
-	levelCreator.getIncompleteLineSegmentStart().ifPresent(start -> {
-	    g.setColor(Color.GREEN);
+	final Optional<Vector2D> incompleteLineSegmentStart = levelCreator.getIncompleteLineSegmentStart();
+	return (g, visibleRegion) -> {
+	    // Draw the upcoming vertex
+	    final double radius = 0.2;
+	    final double diameter = 2 * radius;
+	    g.setColor(Color.BLACK);
 	    g.setStroke(new BasicStroke(0.1f));
-	    g.draw(new Line2D.Double(start.getX(), start.getY(), upcomingVertex.getX(), upcomingVertex.getY()));
-	});
+	    g.draw(new Ellipse2D.Double(upcomingVertex.getX() - radius, upcomingVertex.getY() - radius, diameter, diameter));
+
+	    // Draw the upcoming line segment, if it exists
+	    incompleteLineSegmentStart.ifPresent(start -> {
+		g.setColor(Color.GREEN);
+		g.setStroke(new BasicStroke(0.1f));
+		g.draw(new Line2D.Double(start.getX(), start.getY(), upcomingVertex.getX(), upcomingVertex.getY()));
+	    });
+	};
     }
 
     private Vector2D getUpcomingVertex(final LevelCreator levelCreator) {
@@ -1,17 +1,16 @@
 package se.liu.jonla400.project.main.levelcreation.modes;
 
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.CreatorKeyListener;
 import se.liu.jonla400.project.main.levelcreation.LevelCreator;
 
-import java.awt.*;
-
 /**
  * Represents a mode of a {@link LevelCreator}. A mode gets to know when
  * the "cursor" (mouse) is pressed and when a key is pressed and can change the state of
  * the level creator at those events. A mode might have its own state, which the level creator
  * thus indirectly also has (since the level creator points to its current mode). A mode can
  * specify its own drawing procedure on top of the drawing procedure directly performed by the
- * level creator.
+ * level creator, as an overlay that captures what to draw when it is created.
  */
 public interface Mode extends CreatorKeyListener
 {
@@ -30,10 +29,12 @@ public interface Mode extends CreatorKeyListener
     void cursorReleased(LevelCreator levelCreator);
 
     /**
-     * Draw ontop of the normal drawing performed by the level creator
+     * Creates a drawing procedure to perform ontop of the normal drawing performed by the level creator.
+     * The procedure must not depend on later changes to the level creator or this mode, since it may be
+     * performed on another thread.
      *
      * @param levelCreator The parent level creator
-     * @param g The graphics object to draw to
+     * @return The drawing procedure of the overlay
      */
-    void draw(LevelCreator levelCreator, Graphics2D g);
+    Drawer createOverlay(LevelCreator levelCreator);
 }
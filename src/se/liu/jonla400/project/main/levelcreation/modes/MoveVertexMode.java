@@ -1,5 +1,6 @@
 package se.liu.jonla400.project.main.levelcreation.modes;
 
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.LevelCreator;
 import se.liu.jonla400.project.main.levelcreation.commands.ReversedCommand;
 import se.liu.jonla400.project.main.levelcreation.commands.CombinedCommand;
@@ -79,36 +80,39 @@ public class MoveVertexMode extends AdaptingMode
      * containing that vertex will change.
      *
      * @param levelCreator The considered level creator
-     * @param g The graphics object to draw to
+     * @return The drawing procedure of the highlight
      */
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
 	if (possibleSelectedVertex.isEmpty()) {
-	    drawClosestVertexToCursorIfExists(levelCreator, g);
-	} else {
+	    return createClosestVertexToCursorDrawer(levelCreator);
+	}
+
+	final Vector2D selectedVertex = possibleSelectedVertex.get().copy();
+	final Set<Vector2D> selectedVertexNeighbours = levelCreator.getNeighboursTo(selectedVertex);
+	final Vector2D cursorPos = levelCreator.getCursorPos();
+	return (g, visibleRegion) -> {
 	    g.setColor(new Color(255, 0, 150));
 	    final float dashLength = 0.5f;
 	    g.setStroke(new BasicStroke(0.1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f,
 					new float[]{dashLength}, 0));
 
-	    final Vector2D selectedVertex = possibleSelectedVertex.get();
 	    drawVertex(selectedVertex, g);
 	    // Highlight how the segments containing the selected vertex will change
-	    final Set<Vector2D> selectedVertexNeighbours = levelCreator.getNeighboursTo(selectedVertex);
-	    final Vector2D cursorPos = levelCreator.getCursorPos();
 	    for (Vector2D neighbour : selectedVertexNeighbours) {
 		g.draw(new Line2D.Double(neighbour.getX(), neighbour.getY(), cursorPos.getX(), cursorPos.getY()));
 	    }
-	}
+	};
     }
 
-    private void drawClosestVertexToCursorIfExists(final LevelCreator levelCreator, final Graphics2D g) {
-	getClosestVertexToCursor(levelCreator).ifPresent(closest -> {
+    private Drawer createClosestVertexToCursorDrawer(final LevelCreator levelCreator) {
+	final Optional<Vector2D> closestVertex = getClosestVertexToCursor(levelCreator);
+	return (g, visibleRegion) -> closestVertex.ifPresent(closest -> {
 	    g.setColor(Color.BLACK);
 	    drawVertex(closest, g);
 	});
     }
 
-    private void drawVertex(final Vector2D vertex, Graphics2D g) {
+    private static void drawVertex(final Vector2D vertex, Graphics2D g) {
 	final double radius = 0.3;
 	final double diameter = 2 * radius;
 	g.fill(new Ellipse2D.Double(vertex.getX() - radius, vertex.getY() - radius, diameter, diameter));
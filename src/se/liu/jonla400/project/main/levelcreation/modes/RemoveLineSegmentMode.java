@@ -1,5 +1,6 @@
 package se.liu.jonla400.project.main.levelcreation.modes;
 
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.main.levelcreation.IndexedLineSegment;
 import se.liu.jonla400.project.main.levelcreation.LevelCreator;
 import se.liu.jonla400.project.main.levelcreation.commands.Command;
@@ -29,10 +30,11 @@ public class RemoveLineSegmentMode extends AdaptingMode
      * Highlights the line segment about to be removed, if any line segments exist
      *
      * @param levelCreator The level creator containing the line segments
-     * @param g The graphics object to draw to
+     * @return The drawing procedure of the highlight
      */
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {
-        levelCreator.getClosestLineSegmentToCursor().ifPresent(segment -> {
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
+        final Optional<IndexedLineSegment> closestLineSegment = levelCreator.getClosestLineSegmentToCursor();
+        return (g, visibleRegion) -> closestLineSegment.ifPresent(segment -> {
             final Vector2D start = segment.getStart();
             final Vector2D end = segment.getEnd();
             g.setColor(Color.RED);
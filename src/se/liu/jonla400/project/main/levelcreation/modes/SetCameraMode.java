@@ -6,6 +6,7 @@ import se.liu.jonla400.project.main.levelcreation.commands.CombinedCommand;
 import se.liu.jonla400.project.main.levelcreation.commands.Command;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.main.drawing.CameraDrawer;
+import se.liu.jonla400.project.main.drawing.Drawer;
 import se.liu.jonla400.project.math.Vector2D;
 
 import java.awt.*;
@@ -93,17 +94,19 @@ public class SetCameraMode extends AdaptingMode
      * from the start to the cursor
      *
      * @param levelCreator The level creator containing the cursor position
-     * @param g The graphics object to draw to
+     * @return The drawing procedure of the preview
      */
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {
-	possibleStart.ifPresent(start -> drawUpcomingCamera(g, RectangularRegion.createFromCorners(start, levelCreator.getCursorPos())));
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
+	if (possibleStart.isEmpty()) {
+	    return (g, visibleRegion) -> {};
+	}
+	return createUpcomingCameraDrawer(RectangularRegion.createFromCorners(possibleStart.get(), levelCreator.getCursorPos()));
     }
 
-    private void drawUpcomingCamera(final Graphics2D g, final RectangularRegion upcomingCamera) {
+    private Drawer createUpcomingCameraDrawer(final RectangularRegion upcomingCamera) {
 	final Color color = new Color(0, 0, 0, 100);
 	final float strokeWidth = 0.1f;
-	final CameraDrawer cameraDrawer = CameraDrawer.createDashed(upcomingCamera, color, strokeWidth);
-	cameraDrawer.draw(g);
+	return CameraDrawer.createDashed(upcomingCamera, color, strokeWidth);
     }
 
     private class SelectStartCommand implements Command
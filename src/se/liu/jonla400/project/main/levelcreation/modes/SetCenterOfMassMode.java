@@ -50,13 +50,11 @@ public class SetCenterOfMassMode extends AdaptingMode
      * which is at the current cursor position
      *
      * @param levelCreator The level creator containing the cursor position
-     * @param g The graphics object to draw to
+     * @return The drawing procedure of the preview
      */
-    @Override public void draw(final LevelCreator levelCreator, final Graphics2D g) {
-	TransformedDrawer.draw(
-		g, Transform.createWithTranslation(levelCreator.getCursorPos()),
-		upcomingCenterOfMassDrawer
-	);
+    @Override public Drawer createOverlay(final LevelCreator levelCreator) {
+	final Transform cursorTransform = Transform.createWithTranslation(levelCreator.getCursorPos());
+	return (g, visibleRegion) -> TransformedDrawer.draw(g, visibleRegion, cursorTransform, upcomingCenterOfMassDrawer);
     }
 
     private static class SetCenterOfMassCommand implements Command
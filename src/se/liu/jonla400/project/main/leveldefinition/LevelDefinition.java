@@ -9,6 +9,7 @@ import se.liu.jonla400.project.math.Vector2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * Defines a level by containing the level's shape and initial center of mass
@@ -59,6 +60,22 @@ public class LevelDefinition
 	return new LevelDefinition(levelShape, levelCenterOfMass, ballPos, ballRadius, camera);
     }
 
+    /**
+     * Creates a LevelDefinition of the given parts. No references to the given vectors or camera are kept.
+     *
+     * @param shape The shape of the level
+     * @param centerOfMass The initial center of mass of the level
+     * @param ballPos The spawn position of the ball
+     * @param ballRadius The radius of the ball
+     * @param camera The initial camera of the level
+     * @return The created LevelDefinition
+     */
+    public static LevelDefinition copyFrom(final LevelShapeDefinition shape, final Vector2D centerOfMass, final Vector2D ballPos,
+					   final double ballRadius, final RectangularRegion camera)
+    {
+	return new LevelDefinition(shape, centerOfMass.copy(), ballPos.copy(), ballRadius, camera.copy());
+    }
+
     /**
      * Creates a LevelDefinition from the given {@link LevelBlueprint}. If the blueprint contains
      * an inomplete line segment it is ignored.
@@ -119,4 +136,21 @@ public class LevelDefinition
     public RectangularRegion getCamera() {
 	return camera.copy();
     }
+
+    @Override public boolean equals(final Object o) {
+	if (this == o) {
+	    return true;
+	}
+	if (o == null || getClass() != o.getClass()) {
+	    return false;
+	}
+	final LevelDefinition that = (LevelDefinition) o;
+	return Double.compare(that.ballRadius, ballRadius) == 0 && Objects.equals(shape, that.shape) &&
+	       Objects.equals(centerOfMass, that.centerOfMass) && Objects.equals(ballPos, that.ballPos) &&
+	       camera.getBottomLeft().equals(that.camera.getBottomLeft()) && camera.getSize().equals(that.camera.getSize());
+    }
+
+    @Override public int hashCode() {
+	return Objects.hash(shape, centerOfMass, ballPos, ballRadius, camera.getBottomLeft(), camera.getSize());
+    }
 }
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +66,21 @@ public class LevelShapeDefinition implements Iterable<LineSegmentDefinition>
         return lineSegmentDefinitions.iterator();
     }
 
+    @Override public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final LevelShapeDefinition that = (LevelShapeDefinition) o;
+        return Objects.equals(lineSegmentDefinitions, that.lineSegmentDefinitions);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hashCode(lineSegmentDefinitions);
+    }
+
     /**
      * @return The corresponding shape used by the {@link se.liu.jonla400.project.physics} package
      */
@@ -4,6 +4,8 @@ import se.liu.jonla400.project.math.ClosestPointFinder;
 import se.liu.jonla400.project.math.Vector2D;
 import se.liu.jonla400.project.physics.collision.implementation.LineSegment;
 
+import java.util.Objects;
+
 /**
  * Defines a line segment, including its {@link LineSegmentType}. Also contains method's
  * for finding the closest point to another point and converting to a {@link LineSegment}.
@@ -96,4 +98,19 @@ public class LineSegmentDefinition implements ClosestPointFinder
     @Override public Vector2D findClosestPointTo(final Vector2D point) {
 	return convertToCollidableSegment().findClosestPointTo(point);
     }
+
+    @Override public boolean equals(final Object o) {
+	if (this == o) {
+	    return true;
+	}
+	if (o == null || getClass() != o.getClass()) {
+	    return false;
+	}
+	final LineSegmentDefinition that = (LineSegmentDefinition) o;
+	return Objects.equals(start, that.start) && Objects.equals(end, that.end) && type == that.type;
+    }
+
+    @Override public int hashCode() {
+	return Objects.hash(start, end, type);
+    }
 }
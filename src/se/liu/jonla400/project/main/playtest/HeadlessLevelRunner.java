@@ -0,0 +1,99 @@
+package se.liu.jonla400.project.main.playtest;
+
+import se.liu.jonla400.project.main.drawing.DrawConfiguration;
+import se.liu.jonla400.project.main.game.LevelListener;
+import se.liu.jonla400.project.main.game.LevelWorld;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+
+/**
+ * Plays a level without a gui, as fast as possible. Instead of listening to a keyboard, the level is
+ * steered by a {@link SteeringScript}, and the mouse is never used so the center of mass stays where the
+ * level definition put it. Time is advanced in fixed-size ticks until the ball hits a winning or losing line
+ * segment, or until the maximum number of ticks has been performed.
+ *
+ * Each run starts from the level definition, so the same runner can be run several times with the same result.
+ */
+public class HeadlessLevelRunner
+{
+    private LevelDefinition levelDefinition;
+    private SteeringScript steeringScript;
+    private double deltaTime;
+    private int maxTicks;
+
+    private HeadlessLevelRunner(final LevelDefinition levelDefinition, final SteeringScript steeringScript, final double deltaTime,
+				final int maxTicks)
+    {
+	this.levelDefinition = levelDefinition;
+	this.steeringScript = steeringScript;
+	this.deltaTime = deltaTime;
+	this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Creates a HeadlessLevelRunner that plays the given level with the given steering
+     *
+     * @param levelDefinition The level to play
+     * @param steeringScript How to steer the level during each tick
+     * @param deltaTime The size of each tick in seconds, must be positive
+     * @param maxTicks The number of ticks after which the outcome is considered undecided, must not be negative
+     * @return The created HeadlessLevelRunner
+     */
+    public static HeadlessLevelRunner create(final LevelDefinition levelDefinition, final SteeringScript steeringScript,
+					     final double deltaTime, final int maxTicks)
+    {
+	if (deltaTime <= 0) {
+	    throw new IllegalArgumentException("Non-positive delta time: " + deltaTime);
+	}
+	if (maxTicks < 0) {
+	    throw new IllegalArgumentException("Negative maximum number of ticks: " + maxTicks);
+	}
+	return new HeadlessLevelRunner(levelDefinition, steeringScript, deltaTime, maxTicks);
+    }
+
+    /**
+     * Plays the level from its start until the outcome is decided or the maximum number of ticks is reached
+     *
+     * @return The result of the playtest
+     */
+    public PlaytestResult run() {
+	// The drawers are never used, but the level world needs them
+	final LevelWorld levelWorld = LevelWorld.create(levelDefinition, DrawConfiguration.createDefault());
+	final OutcomeRecorder outcomeRecorder = new OutcomeRecorder();
+	levelWorld.addListener(outcomeRecorder);
+
+	final long startNanoTime = System.nanoTime();
+	int tick = 0;
+	while (tick < maxTicks && outcomeRecorder.outcome == PlaytestOutcome.UNDECIDED) {
+	    final Steering steering = steeringScript.getSteeringAt(tick);
+	    levelWorld.steer(steering.getTargetVel(), steering.getTargetAngularVel());
+	    levelWorld.tick(deltaTime);
+	    tick++;
+	}
+	final long elapsedNanoTime = System.nanoTime() - startNanoTime;
+
+	return new PlaytestResult(outcomeRecorder.outcome, tick, elapsedNanoTime);
+    }
+
+    /**
+     * Remembers the first outcome of a level. Several line segments may be hit during the same tick,
+     * in which case the first one reported decides the outcome.
+     */
+    private static class OutcomeRecorder implements LevelListener
+    {
+	private PlaytestOutcome outcome = PlaytestOutcome.UNDECIDED;
+
+	@Override public void onLevelCompleted() {
+	    decide(PlaytestOutcome.COMPLETED);
+	}
+
+	@Override public void onLevelFailed() {
+	    decide(PlaytestOutcome.FAILED);
+	}
+
+	private void decide(final PlaytestOutcome decidedOutcome) {
+	    if (outcome == PlaytestOutcome.UNDECIDED) {
+		outcome = decidedOutcome;
+	    }
+	}
+    }
+}
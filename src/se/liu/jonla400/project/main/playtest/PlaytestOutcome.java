@@ -0,0 +1,22 @@
+package se.liu.jonla400.project.main.playtest;
+
+/**
+ * Represents how a playtest of a level ended
+ */
+public enum PlaytestOutcome
+{
+    /**
+     * The ball hit a winning line segment
+     */
+    COMPLETED,
+
+    /**
+     * The ball hit a losing line segment
+     */
+    FAILED,
+
+    /**
+     * The maximum number of ticks was reached before the ball hit a winning or losing line segment
+     */
+    UNDECIDED
+}
@@ -0,0 +1,62 @@
+package se.liu.jonla400.project.main.playtest;
+
+/**
+ * Represents the result of a playtest of a level: how it ended, after how many ticks and how fast
+ * the ticks were performed
+ */
+public class PlaytestResult
+{
+    private final static double NANOSECONDS_PER_SECOND = 1.0e9;
+
+    private final PlaytestOutcome outcome;
+    private final int tickCount;
+    private final long elapsedNanoTime;
+
+    /**
+     * Creates a PlaytestResult
+     *
+     * @param outcome How the playtest ended
+     * @param tickCount The number of ticks performed, including the tick during which the outcome was decided
+     * @param elapsedNanoTime The real time in nanoseconds that the ticks took
+     */
+    public PlaytestResult(final PlaytestOutcome outcome, final int tickCount, final long elapsedNanoTime) {
+	this.outcome = outcome;
+	this.tickCount = tickCount;
+	this.elapsedNanoTime = elapsedNanoTime;
+    }
+
+    /**
+     * @return How the playtest ended
+     */
+    public PlaytestOutcome getOutcome() {
+	return outcome;
+    }
+
+    /**
+     * Returns the number of ticks performed. If the outcome was decided, this is the tick of the outcome
+     * (counting from 1). Otherwise it is the maximum number of ticks.
+     *
+     * @return The number of ticks performed
+     */
+    public int getTickCount() {
+	return tickCount;
+    }
+
+    /**
+     * @return The real time in seconds that the ticks took
+     */
+    public double getElapsedSeconds() {
+	return elapsedNanoTime / NANOSECONDS_PER_SECOND;
+    }
+
+    /**
+     * @return The number of ticks performed per second of real time
+     */
+    public double getTicksPerSecond() {
+	return tickCount / getElapsedSeconds();
+    }
+
+    @Override public String toString() {
+	return String.format("%s at tick %d (%.0f ticks/s)", outcome, tickCount, getTicksPerSecond());
+    }
+}
@@ -0,0 +1,119 @@
+package se.liu.jonla400.project.main.playtest;
+
+import com.google.gson.JsonSyntaxException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import se.liu.jonla400.project.main.filehandling.LevelIO;
+import se.liu.jonla400.project.main.leveldefinition.LevelDefinition;
+import se.liu.jonla400.project.main.world.WorldGUI;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the command line program that playtests levels without a display. Each level file given as an
+ * argument is played with a {@link HeadlessLevelRunner}, and one line is printed per level with the outcome,
+ * the tick of the outcome and the number of ticks performed per second, separated by tabs:
+ *
+ * <pre>
+ * level    outcome    tick    ticks/s
+ * </pre>
+ *
+ * Levels that can not be read are reported with the outcome ERROR, and do not stop the remaining levels
+ * from being played. Run with --help to see the available options.
+ */
+public class PlaytestRunner
+{
+    private final static Logger LOGGER = Logger.getLogger(PlaytestRunner.class.getName());
+
+    private final static int DEFAULT_TICK_RATE = WorldGUI.DEFAULT_TICK_RATE;
+    private final static int DEFAULT_MAX_SECONDS = 60;
+
+    private final static String SCRIPT_OPTION = "script";
+    private final static String TICK_RATE_OPTION = "tick-rate";
+    private final static String MAX_TICKS_OPTION = "max-ticks";
+    private final static String HELP_OPTION = "help";
+
+    public static void main(String[] args) {
+	System.setProperty("java.awt.headless", "true");
+
+	final Options options = createOptions();
+	try {
+	    final CommandLine commandLine = new DefaultParser().parse(options, args);
+	    if (commandLine.hasOption(HELP_OPTION) || commandLine.getArgList().isEmpty()) {
+		printHelp(options);
+		return;
+	    }
+	    playtest(commandLine);
+	} catch (ParseException | IllegalArgumentException e) {
+	    System.err.println(e.getMessage());
+	    printHelp(options);
+	    System.exit(1);
+	} catch (IOException e) {
+	    LOGGER.log(Level.SEVERE, "Could not read the steering script", e);
+	    System.exit(1);
+	}
+    }
+
+    private static Options createOptions() {
+	final Options options = new Options();
+	options.addOption(Option.builder("s").longOpt(SCRIPT_OPTION).hasArg().argName("file")
+				.desc("The steering script to play every level with (default: hold the level still)").build());
+	options.addOption(Option.builder("r").longOpt(TICK_RATE_OPTION).hasArg().argName("ticks")
+				.desc("The number of ticks per second of game time (default: " + DEFAULT_TICK_RATE + ")").build());
+	options.addOption(Option.builder("t").longOpt(MAX_TICKS_OPTION).hasArg().argName("ticks")
+				.desc("The number of ticks after which a level is undecided (default: " + DEFAULT_MAX_SECONDS +
+				      " seconds of game time)").build());
+	options.addOption(Option.builder("h").longOpt(HELP_OPTION).desc("Print this message").build());
+	return options;
+    }
+
+    private static void printHelp(final Options options) {
+	new HelpFormatter().printHelp("PlaytestRunner [options] <level file>...", options);
+    }
+
+    private static void playtest(final CommandLine commandLine) throws ParseException, IOException {
+	final SteeringScript steeringScript = commandLine.hasOption(SCRIPT_OPTION) ?
+					      SteeringScript.readFromFile(Path.of(commandLine.getOptionValue(SCRIPT_OPTION))) :
+					      SteeringScript.createConstant(Steering.createStill());
+	final int tickRate = parsePositiveInt(commandLine, TICK_RATE_OPTION, DEFAULT_TICK_RATE);
+	final int maxTicks = parsePositiveInt(commandLine, MAX_TICKS_OPTION, DEFAULT_MAX_SECONDS * tickRate);
+
+	for (String levelFile : commandLine.getArgList()) {
+	    final LevelDefinition levelDefinition;
+	    try {
+		levelDefinition = LevelIO.loadLevelFromFile(Path.of(levelFile));
+	    } catch (IOException | JsonSyntaxException e) {
+		LOGGER.log(Level.WARNING, "Could not load the level " + levelFile, e);
+		System.out.println(levelFile + "\tERROR");
+		continue;
+	    }
+	    final PlaytestResult result = HeadlessLevelRunner.create(levelDefinition, steeringScript, 1.0 / tickRate, maxTicks).run();
+	    System.out.printf("%s\t%s\t%d\t%.0f%n", levelFile, result.getOutcome(), result.getTickCount(), result.getTicksPerSecond());
+	}
+    }
+
+    private static int parsePositiveInt(final CommandLine commandLine, final String option, final int defaultValue)
+	    throws ParseException
+    {
+	if (!commandLine.hasOption(option)) {
+	    return defaultValue;
+	}
+	final String value = commandLine.getOptionValue(option);
+	try {
+	    final int parsedValue = Integer.parseInt(value);
+	    if (parsedValue > 0) {
+		return parsedValue;
+	    }
+	} catch (NumberFormatException ignored) {
+	    // Reported below, like any other invalid value
+	}
+	throw new ParseException("The value of --" + option + " must be a positive integer, but was: " + value);
+    }
+}
@@ -0,0 +1,52 @@
+package se.liu.jonla400.project.main.playtest;
+
+import se.liu.jonla400.project.math.Vector2D;
+
+/**
+ * Represents the velocity and angular velocity that a level is steered towards during a tick,
+ * in place of the keys that a player would press
+ */
+public class Steering
+{
+    private final Vector2D targetVel;
+    private final double targetAngularVel;
+
+    private Steering(final Vector2D targetVel, final double targetAngularVel) {
+	this.targetVel = targetVel;
+	this.targetAngularVel = targetAngularVel;
+    }
+
+    /**
+     * Creates a Steering towards the given velocity and angular velocity. No reference is kept to the given vector.
+     *
+     * @param targetVel The desired velocity of the level
+     * @param targetAngularVel The desired angular velocity of the level
+     * @return The created Steering
+     */
+    public static Steering create(final Vector2D targetVel, final double targetAngularVel) {
+	return new Steering(targetVel.copy(), targetAngularVel);
+    }
+
+    /**
+     * Creates a Steering that tries to hold the level still
+     *
+     * @return The created Steering
+     */
+    public static Steering createStill() {
+	return new Steering(Vector2D.createZero(), 0);
+    }
+
+    /**
+     * @return A copy of the desired velocity of the level
+     */
+    public Vector2D getTargetVel() {
+	return targetVel.copy();
+    }
+
+    /**
+     * @return The desired angular velocity of the level
+     */
+    public double getTargetAngularVel() {
+	return targetAngularVel;
+    }
+}
@@ -0,0 +1,157 @@
+package se.liu.jonla400.project.main.playtest;
+
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a scripted sequence of {@link Steering}, one for each tick. After the last tick of the
+ * script, the last steering is kept.
+ *
+ * A script can be read from a text file where each line consists of a number of ticks followed by the target
+ * velocity's x and y coordinates and the target angular velocity, all separated by whitespace. The steering
+ * of a line is used for the given number of ticks before moving on to the next line. Each line is kept as a
+ * single run of ticks, so a line may steer for any number of ticks without taking more memory. Empty lines and lines
+ * starting with # are ignored. For example, the following script moves the level to the right for one second
+ * and then rotates it to the left, at 45 ticks per second:
+ *
+ * <pre>
+ * # ticks  velX  velY  angularVel
+ * 45       10    0     0
+ * 1        0     0     2
+ * </pre>
+ */
+public class SteeringScript
+{
+    private final static String COMMENT_PREFIX = "#";
+    private final static int VALUES_PER_LINE = 4;
+
+    // The runs in the order they are used, none of them empty
+    private List<Run> runs;
+
+    private SteeringScript(final List<Run> runs) {
+	this.runs = runs;
+    }
+
+    /**
+     * Creates a SteeringScript that steers according to the given list, one element per tick. No reference is
+     * kept to the given list.
+     *
+     * @param steeringPerTick The steering of each tick, must not be empty
+     * @return The created SteeringScript
+     */
+    public static SteeringScript create(final List<Steering> steeringPerTick) {
+	final RunListBuilder builder = new RunListBuilder();
+	for (Steering steering : steeringPerTick) {
+	    builder.add(1, steering);
+	}
+	return builder.build();
+    }
+
+    /**
+     * Creates a SteeringScript that steers the same way during every tick
+     *
+     * @param steering The steering of every tick
+     * @return The created SteeringScript
+     */
+    public static SteeringScript createConstant(final Steering steering) {
+	return create(List.of(steering));
+    }
+
+    /**
+     * Reads a SteeringScript from a text file in the format described by {@link SteeringScript}
+     *
+     * @param path The path to the file
+     * @return The read SteeringScript
+     * @throws IOException If trouble reading the file
+     * @throws IllegalArgumentException If a line of the file is malformed, or if the file contains no steering
+     */
+    public static SteeringScript readFromFile(final Path path) throws IOException {
+	final List<String> lines = Files.readAllLines(path);
+	final RunListBuilder builder = new RunListBuilder();
+	for (int lineIndex = 0; lineIndex < lines.size(); lineIndex++) {
+	    final String line = lines.get(lineIndex).strip();
+	    if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+		continue;
+	    }
+	    final String[] values = line.split("\\s+");
+	    if (values.length != VALUES_PER_LINE) {
+		throw new IllegalArgumentException(
+			"Line " + (lineIndex + 1) + " of " + path + " does not have " + VALUES_PER_LINE + " values: " + line);
+	    }
+	    try {
+		final int ticks = Integer.parseInt(values[0]);
+		if (ticks < 0) {
+		    throw new IllegalArgumentException("Line " + (lineIndex + 1) + " of " + path + " has a negative tick count");
+		}
+		final Vector2D targetVel = Vector2D.createCartesian(Double.parseDouble(values[1]), Double.parseDouble(values[2]));
+		builder.add(ticks, Steering.create(targetVel, Double.parseDouble(values[3])));
+	    } catch (NumberFormatException e) {
+		throw new IllegalArgumentException("Line " + (lineIndex + 1) + " of " + path + " contains an invalid number: " + line, e);
+	    }
+	}
+	return builder.build();
+    }
+
+    /**
+     * Returns the steering of the given tick, or the last steering if the script is shorter than that
+     *
+     * @param tick The index of the tick, starting at 0
+     * @return The steering of the tick
+     */
+    public Steering getSteeringAt(final int tick) {
+	// Binary search for the first run that ends after the tick
+	int low = 0;
+	int high = runs.size() - 1;
+	while (low < high) {
+	    final int middle = (low + high) >>> 1;
+	    if (runs.get(middle).endTick <= tick) {
+		low = middle + 1;
+	    } else {
+		high = middle;
+	    }
+	}
+	return runs.get(low).steering;
+    }
+
+    /**
+     * A steering that is used for a number of consecutive ticks, ending right before the given tick
+     */
+    private static class Run
+    {
+	private final long endTick;
+	private final Steering steering;
+
+	private Run(final long endTick, final Steering steering) {
+	    this.endTick = endTick;
+	    this.steering = steering;
+	}
+    }
+
+    /**
+     * Collects runs one after the other, skipping empty ones
+     */
+    private static class RunListBuilder
+    {
+	private final List<Run> runs = new ArrayList<>();
+	private long tickCount = 0;
+
+	private void add(final int ticks, final Steering steering) {
+	    if (ticks > 0) {
+		tickCount += ticks;
+		runs.add(new Run(tickCount, steering));
+	    }
+	}
+
+	private SteeringScript build() {
+	    if (runs.isEmpty()) {
+		throw new IllegalArgumentException("A steering script needs atleast one steering");
+	    }
+	    return new SteeringScript(runs);
+	}
+    }
+}
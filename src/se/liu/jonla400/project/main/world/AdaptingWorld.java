@@ -1,9 +1,7 @@
 package se.liu.jonla400.project.main.world;
 
-import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
@@ -28,5 +26,7 @@ public class AdaptingWorld implements World
 
     @Override public void tick(final double deltaTime) {}
 
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {}
+    @Override public WorldSnapshot createSnapshot() {
+	return (g, region, interpolation) -> {};
+    }
 }
@@ -0,0 +1,19 @@
+package se.liu.jonla400.project.main.world;
+
+/**
+ * Represents how a {@link WorldGUI} presents its frames on the screen
+ */
+public enum RenderingMode
+{
+    /**
+     * Swing is asked to repaint the gui at the rate of the screen, and paints it on the event dispatch
+     * thread whenever the repaint manager gets to it
+     */
+    PASSIVE,
+
+    /**
+     * A dedicated rendering thread draws each frame into the buffers of a {@link java.awt.Canvas} and shows
+     * it at the rate of the screen, without waiting for Swing
+     */
+    ACTIVE
+}
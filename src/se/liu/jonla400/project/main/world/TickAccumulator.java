@@ -0,0 +1,81 @@
+package se.liu.jonla400.project.main.world;
+
+/**
+ * Keeps track of how much real time has passed that the simulation has not yet caught up with,
+ * and converts it into a whole number of fixed-size ticks. The time left over after the ticks is kept
+ * until the next time, and tells how far between two ticks the current moment is.
+ *
+ * If more ticks are needed than a given maximum, for example after the application has been paused by the
+ * operating system, the remaining time is dropped. Otherwise, the ticks could take longer than the time they
+ * simulate, causing even more ticks to be needed the next time.
+ */
+public class TickAccumulator
+{
+    private double deltaTimePerTick;
+    private int maxTicksPerAdvance;
+    private double accumulatedTime;
+
+    private TickAccumulator(final double deltaTimePerTick, final int maxTicksPerAdvance, final double accumulatedTime) {
+	this.deltaTimePerTick = deltaTimePerTick;
+	this.maxTicksPerAdvance = maxTicksPerAdvance;
+	this.accumulatedTime = accumulatedTime;
+    }
+
+    /**
+     * Creates a TickAccumulator that has not accumulated any time yet
+     *
+     * @param tickRate The number of ticks per second, must be positive
+     * @param maxTicksPerAdvance The largest number of ticks to return from a single advance, must be positive
+     * @return The created TickAccumulator
+     */
+    public static TickAccumulator create(final double tickRate, final int maxTicksPerAdvance) {
+	if (tickRate <= 0) {
+	    throw new IllegalArgumentException("Non-positive tick rate: " + tickRate);
+	}
+	if (maxTicksPerAdvance <= 0) {
+	    throw new IllegalArgumentException("Non-positive maximum number of ticks: " + maxTicksPerAdvance);
+	}
+	return new TickAccumulator(1 / tickRate, maxTicksPerAdvance, 0);
+    }
+
+    /**
+     * Accumulates the given amount of elapsed time and consumes it in whole ticks
+     *
+     * @param elapsedTime The real time that has passed since the last advance, must not be negative
+     * @return The number of ticks to perform to catch up, at most the maximum number of ticks per advance
+     */
+    public int advance(final double elapsedTime) {
+	if (elapsedTime < 0) {
+	    throw new IllegalArgumentException("Negative elapsed time: " + elapsedTime);
+	}
+	accumulatedTime += elapsedTime;
+	final int ticks = (int) Math.min(Math.floor(accumulatedTime / deltaTimePerTick), maxTicksPerAdvance);
+	accumulatedTime -= ticks * deltaTimePerTick;
+	if (ticks == maxTicksPerAdvance && accumulatedTime >= deltaTimePerTick) {
+	    // We are falling behind, so skip the time we can not catch up with
+	    accumulatedTime = 0;
+	}
+	return ticks;
+    }
+
+    /**
+     * @return The size of each tick in seconds
+     */
+    public double getDeltaTimePerTick() {
+	return deltaTimePerTick;
+    }
+
+    /**
+     * @return The amount of real time left to accumulate before the next tick is due
+     */
+    public double getTimeUntilNextTick() {
+	return deltaTimePerTick - accumulatedTime;
+    }
+
+    /**
+     * @return How far the current moment is between the last tick (0) and the next tick (1)
+     */
+    public double getInterpolation() {
+	return accumulatedTime / deltaTimePerTick;
+    }
+}
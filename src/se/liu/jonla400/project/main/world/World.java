@@ -1,16 +1,15 @@
 package se.liu.jonla400.project.main.world;
 
-import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 
 /**
  * Represents a {@link World} without the knowledge about a camera. A world reacts to user input,
- * but can also tick forward in time and draw itself onto a {@link Graphics2D} object at a given region.
+ * but can also tick forward in time and create snapshots of itself that can be drawn onto a
+ * {@link java.awt.Graphics2D} object at a given region.
  */
 public interface World
 {
@@ -64,11 +63,10 @@ public interface World
     void tick(double deltaTime);
 
     /**
-     * Draws onto the {@link Graphics2D} object at the given region. This method might
-     * draw outside the region too.
+     * Creates a snapshot of how this world currently looks. The snapshot is not affected by later changes
+     * to this world, and can thus be drawn on another thread.
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    void draw(Graphics2D g, RectangularRegion region);
+    WorldSnapshot createSnapshot();
 }
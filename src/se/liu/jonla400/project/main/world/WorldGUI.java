@@ -6,16 +6,24 @@ import se.liu.jonla400.project.math.Vector2D;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
-import java.util.LinkedList;
+import java.awt.image.BufferStrategy;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Timesteps, draws and notifies a {@link FilmedWorld} about user input. Uses the camera of
@@ -24,18 +32,70 @@ import java.util.Queue;
  * different, the gui is likely to show more on one axis than what the camera requires.
  *
  * This gui also tells the filmed world about where the mouse position is in world space.
+ *
+ * Time is advanced in fixed-size ticks on a dedicated simulation thread, which measures the real time that
+ * has passed and performs as many ticks as needed to catch up. The world is only ever touched by the
+ * simulation thread: user input is passed to it through a lock-free queue, and after each batch of ticks
+ * it publishes an immutable {@link WorldSnapshot} together with the camera. The event dispatch thread draws
+ * the latest published snapshot at the rate of the screen, in between the states of the last two ticks,
+ * so that the motion looks smooth at any frame rate. Slow drawing thus never delays the simulation and
+ * vice versa. An exception thrown while advancing the simulation is logged, and the simulation goes on with the
+ * next batch of ticks instead of silently freezing the game.
+ *
+ * How the frames are presented is decided by the {@link RenderingMode}. With passive rendering, a Swing timer
+ * asks for a repaint and the event dispatch thread paints whenever Swing gets to it. With active rendering,
+ * the gui is covered by a {@link Canvas} that a dedicated rendering thread draws to through a
+ * {@link BufferStrategy}, showing each frame as soon as it is drawn and then waiting for the next frame
+ * deadline. A frame that fails to render is logged and skipped. The mode can be chosen with the system property {@value #RENDERING_MODE_PROPERTY}, which is
+ * either "passive" (the default) or "active".
  */
-public class WorldGUI extends JComponent implements MouseListener, MouseWheelListener, KeyListener
+public class WorldGUI extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener
 {
+    private final static Logger LOGGER = Logger.getLogger(WorldGUI.class.getName());
+
+    /**
+     * The system property that decides the {@link RenderingMode} of the guis created without one
+     */
+    public final static String RENDERING_MODE_PROPERTY = "worldgui.rendering";
+
+    /**
+     * The number of ticks per second of the guis created without a tick rate, which is the rate the game is
+     * played at. Balls can not pass through levels between ticks thanks to continuous collision detection, so
+     * the tick rate only has to be high enough for the motion to feel right. Drawing is interpolated between
+     * the ticks.
+     */
+    public final static int DEFAULT_TICK_RATE = 45;
+    private final static int DEFAULT_FRAME_RATE = 60;
+    // Half a second of ticks at the default tick rate
+    private final static int MAX_TICKS_PER_ADVANCE = DEFAULT_TICK_RATE / 2;
+
+    // Only used by the simulation thread once started
     private FilmedWorld filmedWorld;
+    private TickAccumulator tickAccumulator;
+
     private Queue<Runnable> eventHandlingQueue;
+    private RenderingMode renderingMode;
+
+    // Written by the event dispatch thread and read by the simulation thread
+    private volatile Optional<Point> mouseScreenPos;
+    private volatile Dimension screenSize;
+
+    // Written by the simulation thread and read by the event dispatch thread
+    private volatile PublishedFrame latestFrame;
 
     private boolean hasStarted;
 
-    private WorldGUI(final FilmedWorld filmedWorld, final Queue<Runnable> eventHandlingQueue, final boolean hasStarted) {
+    private WorldGUI(final FilmedWorld filmedWorld, final TickAccumulator tickAccumulator, final Queue<Runnable> eventHandlingQueue,
+		     final RenderingMode renderingMode, final boolean hasStarted)
+    {
 	this.filmedWorld = filmedWorld;
+	this.tickAccumulator = tickAccumulator;
 	this.eventHandlingQueue = eventHandlingQueue;
+	this.renderingMode = renderingMode;
 	this.hasStarted = hasStarted;
+	mouseScreenPos = Optional.empty();
+	screenSize = new Dimension();
+	latestFrame = null;
     }
 
     /**
@@ -45,7 +105,45 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
      * @return The created WorldGUI
      */
     public static WorldGUI createFor(final FilmedWorld filmedWorld) {
-	return new WorldGUI(filmedWorld, new LinkedList<>(), false);
+	return createFor(filmedWorld, DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Creates a WorldGUI for the given world that ticks the world the given number of times per second
+     *
+     * @param filmedWorld The world to mantain graphics-, input and time-wise
+     * @param tickRate The number of ticks per second, must be positive
+     * @return The created WorldGUI
+     */
+    public static WorldGUI createFor(final FilmedWorld filmedWorld, final int tickRate) {
+	return createFor(filmedWorld, tickRate, getRenderingModeFromProperty());
+    }
+
+    /**
+     * Creates a WorldGUI for the given world that ticks the world the given number of times per second,
+     * and presents its frames with the given {@link RenderingMode}
+     *
+     * @param filmedWorld The world to mantain graphics-, input and time-wise
+     * @param tickRate The number of ticks per second, must be positive
+     * @param renderingMode How the frames are presented
+     * @return The created WorldGUI
+     */
+    public static WorldGUI createFor(final FilmedWorld filmedWorld, final int tickRate, final RenderingMode renderingMode) {
+	final TickAccumulator tickAccumulator = TickAccumulator.create(tickRate, MAX_TICKS_PER_ADVANCE);
+	return new WorldGUI(filmedWorld, tickAccumulator, new ConcurrentLinkedQueue<>(), renderingMode, false);
+    }
+
+    private static RenderingMode getRenderingModeFromProperty() {
+	final String value = System.getProperty(RENDERING_MODE_PROPERTY);
+	if (value == null) {
+	    return RenderingMode.PASSIVE;
+	}
+	try {
+	    return RenderingMode.valueOf(value.toUpperCase(Locale.ROOT));
+	} catch (IllegalArgumentException e) {
+	    LOGGER.warning("Unknown rendering mode \"" + value + "\", rendering passively instead");
+	    return RenderingMode.PASSIVE;
+	}
     }
 
     /**
@@ -56,15 +154,46 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
 	    throw new IllegalStateException("Has already started!");
 	}
 	hasStarted = true;
-	listenToUserInput();
-	putInFrame();
-	startTickTimer();
+	switch (renderingMode) {
+	    case PASSIVE -> {
+		listenToUserInput(this);
+		putInFrame();
+		startSimulationThread();
+		startFrameTimer();
+	    }
+	    case ACTIVE -> {
+		final Canvas canvas = createCanvas();
+		// Mouse events go to the canvas on top, but key events go to this focusable gui
+		listenToUserInput(canvas);
+		putInFrame();
+		startSimulationThread();
+		startRenderingThread(canvas);
+	    }
+	}
     }
 
-    private void listenToUserInput() {
-	addMouseListener(this);
-	addMouseWheelListener(this);
+    /**
+     * Lets the given action be performed on the simulation thread before the next tick, together with the
+     * handling of user input. Since the world is only touched by the simulation thread, this is how the
+     * state of the world can safely be read or changed from other threads once this gui has started.
+     *
+     * @param action The action to perform on the simulation thread
+     */
+    public void invokeLaterInSimulation(final Runnable action) {
+	eventHandlingQueue.offer(action);
+    }
+
+    private void listenToUserInput(final Component mouseSource) {
+	mouseSource.addMouseListener(this);
+	mouseSource.addMouseMotionListener(this);
+	mouseSource.addMouseWheelListener(this);
 	addKeyListener(this);
+	addComponentListener(new ComponentAdapter()
+	{
+	    @Override public void componentResized(final ComponentEvent e) {
+		screenSize = getSize();
+	    }
+	});
 	setFocusable(true);
     }
 
@@ -76,44 +205,83 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
 	frame.setLocationRelativeTo(null);
 	frame.setExtendedState(Frame.MAXIMIZED_BOTH);
 	frame.setVisible(true);
+	screenSize = getSize();
+    }
+
+    private void startSimulationThread() {
+	final Thread simulationThread = new Thread(this::runSimulation, "Simulation");
+	simulationThread.setDaemon(true); // Closing the frame ends the program
+	simulationThread.start();
+    }
+
+    private void runSimulation() {
+	long lastNanoTime = System.nanoTime();
+	try {
+	    publishFrame(lastNanoTime);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.SEVERE, "Failed to publish the first frame of the simulation", e);
+	}
+	while (true) {
+	    final long nanoTime = System.nanoTime();
+	    try {
+		advanceSimulation((nanoTime - lastNanoTime) / 1.0e9, nanoTime);
+	    } catch (RuntimeException e) {
+		// The thread would otherwise die without a trace, leaving the game frozen
+		LOGGER.log(Level.SEVERE, "Failed to advance the simulation", e);
+	    }
+	    lastNanoTime = nanoTime;
+	    LockSupport.parkNanos((long) (tickAccumulator.getTimeUntilNextTick() * 1.0e9));
+	}
     }
 
-    private void startTickTimer() {
-	final int tickRate = 90;
-	final double deltaSecondsPerTick = 1.0 / tickRate;
-	final int deltaMillisecondsPerTick = 1000 / tickRate;
-	final Timer tickTimer = new Timer(deltaMillisecondsPerTick, e -> tick(deltaSecondsPerTick));
-	tickTimer.setCoalesce(true);
-	tickTimer.start();
+    /**
+     * Performs the ticks that the given passed time calls for, and publishes a frame if any tick was performed
+     */
+    private void advanceSimulation(final double passedTime, final long nanoTime) {
+	final int ticks = tickAccumulator.advance(passedTime);
+	for (int i = 0; i < ticks; i++) {
+	    tick(tickAccumulator.getDeltaTimePerTick());
+	}
+	if (ticks > 0) {
+	    publishFrame(nanoTime);
+	}
     }
 
     private void tick(final double deltaTime) {
 	handleEvents();
 	getMousePosInWorldSpace().ifPresent(filmedWorld::updateMousePos);
 	filmedWorld.tick(deltaTime);
-	repaint();
     }
 
     private void handleEvents() {
-	while (!eventHandlingQueue.isEmpty()) {
-	    eventHandlingQueue.poll().run();
+	Runnable event = eventHandlingQueue.poll();
+	while (event != null) {
+	    event.run();
+	    event = eventHandlingQueue.poll();
 	}
     }
 
+    private void publishFrame(final long nanoTime) {
+	latestFrame = new PublishedFrame(filmedWorld.getCamera(), filmedWorld.createSnapshot(), nanoTime,
+					 tickAccumulator.getInterpolation());
+    }
+
     private Optional<Vector2D> getMousePosInWorldSpace() {
-	final Point mousePos = getMousePosition();
-	if (mousePos == null) {
+	final Optional<Point> possibleMousePos = mouseScreenPos;
+	if (possibleMousePos.isEmpty()) {
 	    return Optional.empty();
 	}
+	final Point mousePos = possibleMousePos.get();
+	final Dimension size = screenSize;
 
-	final RectangularRegion visibleRegion = encloseCameraWithCurrentAspectRatio();
+	final RectangularRegion visibleRegion = encloseCameraWithAspectRatio(filmedWorld.getCamera(), size);
 
 	// screenX -> worldX: 0 -> left of visible region, width -> right of visible region
-	final Interval xInterval = new Interval(0, getWidth());
+	final Interval xInterval = new Interval(0, size.width);
 	final Interval xIntervalMappedTo = visibleRegion.getLeftToRightX();
 
 	// screenY -> worldY: 0 -> top of visible region, height -> bottom of visible region
-	final Interval yInterval = new Interval(0, getHeight());
+	final Interval yInterval = new Interval(0, size.height);
 	final Interval yIntervalMappedTo = visibleRegion.getTopToBottomY();
 
 	return Optional.of(Vector2D.createCartesian(
@@ -122,22 +290,109 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
 	));
     }
 
+    private Canvas createCanvas() {
+	final Canvas canvas = new Canvas();
+	canvas.setIgnoreRepaint(true); // Only the rendering thread draws to the canvas
+	canvas.setFocusable(false);
+	setLayout(new BorderLayout());
+	add(canvas, BorderLayout.CENTER);
+	return canvas;
+    }
+
+    /**
+     * Starts the thread that actively renders to the given canvas, which must be displayable
+     */
+    private void startRenderingThread(final Canvas canvas) {
+	canvas.createBufferStrategy(2);
+	final BufferStrategy bufferStrategy = canvas.getBufferStrategy();
+	final long nanosPerFrame = 1_000_000_000L / getScreenRefreshRate();
+	final Thread renderingThread = new Thread(() -> runRendering(bufferStrategy, nanosPerFrame), "Rendering");
+	renderingThread.setDaemon(true); // Closing the frame ends the program
+	renderingThread.start();
+    }
+
+    private void runRendering(final BufferStrategy bufferStrategy, final long nanosPerFrame) {
+	long nextFrameNanoTime = System.nanoTime();
+	while (true) {
+	    try {
+		renderFrame(bufferStrategy);
+		// Let the window system present the frame now, instead of whenever it flushes its buffers
+		Toolkit.getDefaultToolkit().sync();
+	    } catch (RuntimeException e) {
+		// The thread would otherwise die without a trace, leaving the last frame on the screen forever
+		LOGGER.log(Level.SEVERE, "Failed to render a frame", e);
+	    }
+
+	    nextFrameNanoTime += nanosPerFrame;
+	    final long nanoTime = System.nanoTime();
+	    if (nextFrameNanoTime < nanoTime) {
+		// The frame took too long, so skip the missed deadlines instead of rushing to catch up
+		nextFrameNanoTime = nanoTime;
+	    }
+	    LockSupport.parkNanos(nextFrameNanoTime - nanoTime);
+	}
+    }
+
+    /**
+     * Draws the latest published frame into the back buffer and shows it, drawing again if the contents of
+     * the buffers were lost meanwhile
+     */
+    private void renderFrame(final BufferStrategy bufferStrategy) {
+	do {
+	    do {
+		final Graphics2D g = (Graphics2D) bufferStrategy.getDrawGraphics();
+		try {
+		    final Dimension size = screenSize;
+		    g.clearRect(0, 0, size.width, size.height);
+		    final PublishedFrame frame = latestFrame;
+		    if (frame != null) {
+			final double interpolation = frame.getInterpolationAt(System.nanoTime(), tickAccumulator.getDeltaTimePerTick());
+			drawWorld(g, size, frame, interpolation);
+		    }
+		} finally {
+		    g.dispose();
+		}
+	    } while (bufferStrategy.contentsRestored());
+	    bufferStrategy.show();
+	} while (bufferStrategy.contentsLost());
+    }
+
+    private void startFrameTimer() {
+	final int millisecondsPerFrame = 1000 / getScreenRefreshRate();
+	final Timer frameTimer = new Timer(millisecondsPerFrame, e -> repaint());
+	frameTimer.setCoalesce(true);
+	frameTimer.start();
+    }
+
+    private int getScreenRefreshRate() {
+	final int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+	if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+	    return DEFAULT_FRAME_RATE;
+	}
+	return refreshRate;
+    }
+
     @Override protected void paintComponent(final Graphics g) {
 	super.paintComponent(g);
+	final PublishedFrame frame = latestFrame;
+	if (frame == null) {
+	    return; // Nothing has been simulated yet
+	}
 	final Graphics2D g2d = (Graphics2D) g;
-	drawWorld(g2d);
+	final double interpolation = frame.getInterpolationAt(System.nanoTime(), tickAccumulator.getDeltaTimePerTick());
+	drawWorld(g2d, getSize(), frame, interpolation);
     }
 
-    private void drawWorld(final Graphics2D g) {
+    private static void drawWorld(final Graphics2D g, final Dimension size, final PublishedFrame frame, final double interpolation) {
 	final AffineTransform oldTransform = g.getTransform();
 
-	flipGraphics(g);
-	final RectangularRegion drawRegion = encloseCameraWithCurrentAspectRatio();
-	final double scale = getWidth() / drawRegion.getSize().getX();
+	flipGraphics(g, size);
+	final RectangularRegion drawRegion = encloseCameraWithAspectRatio(frame.camera, size);
+	final double scale = size.width / drawRegion.getSize().getX();
 	g.scale(scale, scale);
 	final Vector2D bottomLeft = drawRegion.getBottomLeft();
 	g.translate(-bottomLeft.getX(), -bottomLeft.getY());
-	filmedWorld.draw(g, drawRegion);
+	frame.worldSnapshot.draw(g, drawRegion, interpolation);
 
 	g.setTransform(oldTransform);
     }
@@ -147,20 +402,20 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
      * and increasing y-coordinates means higher up on the screen
      *
      * @param g
+     * @param size The size of the screen
      */
-    private void flipGraphics(final Graphics2D g) {
+    private static void flipGraphics(final Graphics2D g, final Dimension size) {
 	g.scale(1, -1);
-	g.translate(0, -getHeight());
+	g.translate(0, -size.height);
     }
 
-    private RectangularRegion encloseCameraWithCurrentAspectRatio() {
-	final RectangularRegion camera = filmedWorld.getCamera();
+    private static RectangularRegion encloseCameraWithAspectRatio(final RectangularRegion camera, final Dimension size) {
 	final Vector2D cameraSize = camera.getSize();
 	final double cameraWidth = cameraSize.getX();
 	final double cameraHeight = cameraSize.getY();
 
 	final double cameraWidthToHeightRatio = cameraWidth / cameraHeight;
-	final double targetWidthToHeightRatio = (double) getWidth() / getHeight();
+	final double targetWidthToHeightRatio = (double) size.width / size.height;
 
 	final double enclosingWidth;
 	final double enclosingHeight;
@@ -199,11 +454,57 @@ public class WorldGUI extends JComponent implements MouseListener, MouseWheelLis
 	eventHandlingQueue.offer(() -> filmedWorld.keyReleased(e));
     }
 
-    @Override public void mouseClicked(final MouseEvent e) {}
+    @Override public void mouseMoved(final MouseEvent e) {
+	updateMouseScreenPos(e);
+    }
 
-    @Override public void mouseEntered(final MouseEvent e) {}
+    @Override public void mouseDragged(final MouseEvent e) {
+	updateMouseScreenPos(e);
+    }
 
-    @Override public void mouseExited(final MouseEvent e) {}
+    @Override public void mouseEntered(final MouseEvent e) {
+	updateMouseScreenPos(e);
+    }
+
+    @Override public void mouseExited(final MouseEvent e) {
+	mouseScreenPos = Optional.empty();
+    }
+
+    private void updateMouseScreenPos(final MouseEvent e) {
+	// Just like when asking for the mouse position, a mouse outside this component is not considered
+	final Point mousePos = e.getPoint();
+	mouseScreenPos = contains(mousePos) ? Optional.of(mousePos) : Optional.empty();
+    }
+
+    @Override public void mouseClicked(final MouseEvent e) {}
 
     @Override public void keyTyped(final KeyEvent e) {}
+
+    /**
+     * What the simulation thread has published after a batch of ticks
+     */
+    private static class PublishedFrame
+    {
+	private RectangularRegion camera;
+	private WorldSnapshot worldSnapshot;
+	private long nanoTime;
+	private double interpolation;
+
+	private PublishedFrame(final RectangularRegion camera, final WorldSnapshot worldSnapshot, final long nanoTime,
+			       final double interpolation)
+	{
+	    this.camera = camera;
+	    this.worldSnapshot = worldSnapshot;
+	    this.nanoTime = nanoTime;
+	    this.interpolation = interpolation;
+	}
+
+	/**
+	 * @return How far between the last two ticks the world is at the given time, assuming that no more ticks are performed
+	 */
+	private double getInterpolationAt(final long currentNanoTime, final double deltaTimePerTick) {
+	    final double elapsedTime = (currentNanoTime - nanoTime) / 1.0e9;
+	    return Math.min(1, interpolation + elapsedTime / deltaTimePerTick);
+	}
+    }
 }
@@ -0,0 +1,23 @@
+package se.liu.jonla400.project.main.world;
+
+import se.liu.jonla400.project.math.RectangularRegion;
+
+import java.awt.*;
+
+/**
+ * Represents an immutable picture of how a {@link World} looked at a certain tick. Since a snapshot never
+ * changes, it can be drawn on one thread while the world keeps ticking on another thread.
+ */
+public interface WorldSnapshot
+{
+    /**
+     * Draws onto the {@link Graphics2D} object at the given region. This method might
+     * draw outside the region too.
+     *
+     * @param g The graphics object to draw to
+     * @param region The region required to draw to, but not limited by
+     * @param interpolation How far from the state before the last tick (0) towards the state after the last tick (1)
+     *                      moving objects are drawn
+     */
+    void draw(Graphics2D g, RectangularRegion region, double interpolation);
+}
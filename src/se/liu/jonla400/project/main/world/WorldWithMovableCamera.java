@@ -3,7 +3,6 @@ package se.liu.jonla400.project.main.world;
 import se.liu.jonla400.project.math.RectangularRegion;
 import se.liu.jonla400.project.math.Vector2D;
 
-import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
@@ -147,13 +146,11 @@ public class WorldWithMovableCamera<T extends World> implements FilmedWorld
     }
 
     /**
-     * Draws the camera unaware world onto the {@link Graphics2D} object at the given region.
-     * This method might draw outside the region too.
+     * Creates a snapshot of the camera unaware world
      *
-     * @param g The graphics object to draw to
-     * @param region The region required to draw to, but not limited by
+     * @return The created snapshot
      */
-    @Override public void draw(final Graphics2D g, final RectangularRegion region) {
-	world.draw(g, region);
+    @Override public WorldSnapshot createSnapshot() {
+	return world.createSnapshot();
     }
 }
@@ -85,11 +85,12 @@ public class Interval
      * @return The closest value
      */
     public double clamp(final double value) {
-	final Interval sorted = sort();
-	if (value < sorted.start) {
-	    return sorted.start;
+	// Sorting is done without creating a sorted copy since clamping is done very frequently
+	final double min = Math.min(start, end);
+	if (value < min) {
+	    return min;
 	}
-	return Math.min(value, sorted.end);
+	return Math.min(value, Math.max(start, end));
     }
 
     /**
@@ -124,6 +124,16 @@ public class RectangularRegion
         return new Interval(bottomY + size.getY(), bottomY);
     }
 
+    /**
+     * @param other The other region
+     * @return Whether the other region lies entirely within this region
+     */
+    public boolean contains(final RectangularRegion other) {
+        return other.bottomLeft.getX() >= bottomLeft.getX() && other.bottomLeft.getY() >= bottomLeft.getY() &&
+               other.bottomLeft.getX() + other.size.getX() <= bottomLeft.getX() + size.getX() &&
+               other.bottomLeft.getY() + other.size.getY() <= bottomLeft.getY() + size.getY();
+    }
+
     /**
      * @return A read-only view of the bottom left position
      */
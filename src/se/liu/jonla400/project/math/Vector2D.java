@@ -120,6 +120,17 @@ public class Vector2D implements ClosestPointFinder
 	this.y = other.y;
     }
 
+    /**
+     * Set the coordinates of this vector
+     *
+     * @param x The new x-coordinate
+     * @param y The new y-coordinate
+     */
+    public void setCartesian(final double x, final double y) {
+	this.x = x;
+	this.y = y;
+    }
+
     /**
      * Returns the result of setting the magnitude of this vector.
      * The result is undefined if the vector is a zero vector
@@ -1,11 +1,12 @@
 package se.liu.jonla400.project.physics.collision;
 
-import se.liu.jonla400.project.math.Interval;
-import se.liu.jonla400.project.math.Matrix22;
 import se.liu.jonla400.project.math.Vector2D;
 import se.liu.jonla400.project.physics.constraint.ActiveImpulse1D;
 import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
 import se.liu.jonla400.project.physics.constraint.OffsetBodyPointPair;
+import se.liu.jonla400.project.physics.main.Body;
+
+import java.util.function.Consumer;
 
 /**
  * Represents an active velocity constraint between two colliding bodies. An impulse is applied
@@ -13,6 +14,14 @@ import se.liu.jonla400.project.physics.constraint.OffsetBodyPointPair;
  * bodies bounce according to the collision's bounce factor. An impulse is also applied in the
  * tangent direction of the collision to simulate friction, and its scale is limited by the
  * collision's friction coefficient.
+ *
+ * Since the impulses are updated many times each time step, updating them does not create any objects.
+ *
+ * The constraint can be warm started with the impulses accumulated by the same contact during the
+ * previous time step. The solver then starts close to the solution instead of from nothing, which
+ * means that resting contact stays stable with far fewer iterations. The constraint of a contact that
+ * persists can also be reinitialized in place, so that no objects are created for it either, and the
+ * constraint of a contact that has ended can be reinitialized for another collision.
  */
 public class ActiveCollisionConstraint implements ActiveVelocityConstraint
 {
@@ -30,17 +39,23 @@ public class ActiveCollisionConstraint implements ActiveVelocityConstraint
     private ActiveImpulse1D normalImpulse;
     private ActiveImpulse1D tangentImpulse;
 
-    private ActiveCollisionConstraint(final OffsetBodyPointPair contactPoints, final Vector2D normal, final Vector2D tangent,
-                                      final double targetNormalVel, final double frictionCoefficient, final double normalMass,
-                                      final double tangentMass, final ActiveImpulse1D normalImpulse, final ActiveImpulse1D tangentImpulse)
-    {
-        this.contactPoints = contactPoints;
-        this.normal = normal;
-        this.tangent = tangent;
-        this.targetNormalVel = targetNormalVel;
-        this.frictionCoefficient = frictionCoefficient;
-        this.normalMass = normalMass;
-        this.tangentMass = tangentMass;
+    // The normal impulse can only push the bodies apart, never pull them together
+    private final static double MIN_NORMAL_IMPULSE = 0;
+    private final static double MAX_NORMAL_IMPULSE = Double.POSITIVE_INFINITY;
+
+    // Contact points approaching each other slower than this are considered to be resting on each other,
+    // and do not bounce. Otherwise, the velocity gained from gravity during a single time step would make
+    // resting bodies jitter forever (and never fall asleep).
+    private final static double MIN_BOUNCE_SPEED = 0.5;
+
+    private ActiveCollisionConstraint(final ActiveImpulse1D normalImpulse, final ActiveImpulse1D tangentImpulse) {
+        contactPoints = null; // Set when initialized from the collision data
+        normal = Vector2D.createZero();
+        tangent = Vector2D.createZero();
+        targetNormalVel = 0;
+        frictionCoefficient = 0;
+        normalMass = 0;
+        tangentMass = 0;
         this.normalImpulse = normalImpulse;
         this.tangentImpulse = tangentImpulse;
     }
@@ -63,25 +78,95 @@ public class ActiveCollisionConstraint implements ActiveVelocityConstraint
             final CollisionData<?> collisionData, final double deltaTime,
             final double penetrationTolerance, final double penetrationCorrectionFraction)
     {
-        final OffsetBodyPointPair contactPoints = collisionData.getContactPoints();
-        final Vector2D normal = collisionData.getNormal();
-        final Vector2D tangent = normal.rotate90Degrees();
+        return createFromCollisionData(collisionData, deltaTime, penetrationTolerance, penetrationCorrectionFraction, 0, 0);
+    }
+
+    /**
+     * Creates an ActiveCollisionConstraint based on the {@link CollisionData}, like
+     * {@link #createFromCollisionData(CollisionData, double, double, double)}, but warm started with the given
+     * initial impulses. The initial impulses are immediately applied to the bodies, and are typically the impulses
+     * that the same contact ended up with during the previous time step (see {@link #getNormalImpulse()} and
+     * {@link #getTangentImpulse()}).
+     *
+     * @param collisionData The collision data
+     * @param deltaTime The size of the time step after solving this velocity constraint
+     * @param penetrationTolerance How much of the penetration that is tolerated
+     * @param penetrationCorrectionFraction How much to fix of the penetration error, between 0 and 1
+     * @param initNormalImpulse The initial impulse along the normal, should not be negative
+     * @param initTangentImpulse The initial impulse along the tangent
+     * @return The created ActiveCollisionConstraint
+     */
+    public static ActiveCollisionConstraint createFromCollisionData(
+            final CollisionData<?> collisionData, final double deltaTime,
+            final double penetrationTolerance, final double penetrationCorrectionFraction,
+            final double initNormalImpulse, final double initTangentImpulse)
+    {
+        final ActiveCollisionConstraint constraint = new ActiveCollisionConstraint(
+                new ActiveImpulse1D(initNormalImpulse), new ActiveImpulse1D(initTangentImpulse));
+        constraint.initialize(collisionData, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+        return constraint;
+    }
+
+    /**
+     * Reinitializes this constraint based on the {@link CollisionData} of a collision that may be unrelated to the
+     * one this constraint was created for. The result is the same as creating a new constraint with
+     * {@link #createFromCollisionData(CollisionData, double, double, double)}, but no objects are created.
+     *
+     * @param collisionData The collision data
+     * @param deltaTime The size of the time step after solving this velocity constraint
+     * @param penetrationTolerance How much of the penetration that is tolerated
+     * @param penetrationCorrectionFraction How much to fix of the penetration error, between 0 and 1
+     */
+    public void reinitialize(final CollisionData<?> collisionData, final double deltaTime,
+                             final double penetrationTolerance, final double penetrationCorrectionFraction)
+    {
+        normalImpulse.set(0);
+        tangentImpulse.set(0);
+        initialize(collisionData, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+    }
+
+    /**
+     * Reinitializes this constraint based on the {@link CollisionData} of the same contact detected during a new time
+     * step, warm started with the impulses that this constraint ended up with. The result is the same as creating a
+     * new constraint with {@link #createFromCollisionData(CollisionData, double, double, double, double, double)} and
+     * the impulses of this constraint, but no objects are created.
+     *
+     * @param collisionData The collision data of the new time step
+     * @param deltaTime The size of the time step after solving this velocity constraint
+     * @param penetrationTolerance How much of the penetration that is tolerated
+     * @param penetrationCorrectionFraction How much to fix of the penetration error, between 0 and 1
+     */
+    public void reinitializeWarmStarted(final CollisionData<?> collisionData, final double deltaTime,
+                                        final double penetrationTolerance, final double penetrationCorrectionFraction)
+    {
+        initialize(collisionData, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+    }
+
+    /**
+     * Sets up this constraint for the given collision, and applies the current impulses to the bodies
+     */
+    private void initialize(final CollisionData<?> collisionData, final double deltaTime,
+                            final double penetrationTolerance, final double penetrationCorrectionFraction)
+    {
+        contactPoints = collisionData.getContactPoints();
+        normal.setCartesian(collisionData.getNormalX(), collisionData.getNormalY());
+        // The normal rotated 90 degrees
+        tangent.setCartesian(-normal.getY(), normal.getX());
 
-        final double targetNormalVel = getTargetNormalVel(
+        targetNormalVel = getTargetNormalVel(
                 contactPoints, normal, collisionData.getPenetration(), penetrationTolerance, penetrationCorrectionFraction,
                 collisionData.getBounceCoefficient(), deltaTime
         );
+        frictionCoefficient = collisionData.getFrictionCoefficient();
 
-        final Matrix22 invertedMass = contactPoints.getInvertedMass();
-        final double normalMass = projectMassAlongDirection(invertedMass, normal);
-        final double tangentMass = projectMassAlongDirection(invertedMass, tangent);
-
-        final ActiveImpulse1D normalImpulse = new ActiveImpulse1D();
-        final ActiveImpulse1D tangentImpulse = new ActiveImpulse1D();
+        // See derivation at doc/math/projectedInvertedMassDerivation
+        normalMass = 1 / contactPoints.getInvertedMassAlong(normal);
+        tangentMass = 1 / contactPoints.getInvertedMassAlong(tangent);
 
-        return new ActiveCollisionConstraint(
-                contactPoints, normal, tangent, targetNormalVel, collisionData.getFrictionCoefficient(), normalMass, tangentMass,
-                normalImpulse, tangentImpulse);
+        // The target normal velocity depends on the velocities before any impulse is applied,
+        // which is why the initial impulses are applied afterwards
+        contactPoints.applyImpulseAlong(normal, normalImpulse.get());
+        contactPoints.applyImpulseAlong(tangent, tangentImpulse.get());
     }
 
     private static double getTargetNormalVel(
@@ -109,51 +194,63 @@ public class ActiveCollisionConstraint implements ActiveVelocityConstraint
 
     private static double getBounceVel(final OffsetBodyPointPair contactPoints, final Vector2D normal, final double bounceCoefficient) {
         final double initNormalVel = getVelAlong(normal, contactPoints);
-        if (initNormalVel >= 0) {
-            // The contact points are moving away from each other
+        if (initNormalVel > -MIN_BOUNCE_SPEED) {
+            // The contact points are moving away from each other or are resting on each other
             return 0;
         }
         return -bounceCoefficient * initNormalVel;
     }
 
-    private static double projectMassAlongDirection(final Matrix22 invertedMass, final Vector2D dir) {
-        // See derivation at doc/math/projectedInvertedMassDerivation
-        final double dirX = dir.getX();
-        final double dirY = dir.getY();
-        final double commonWeight = dirX * dirY;
-        final Matrix22 weights = Matrix22.create(
-                dirX * dirX, commonWeight,
-                commonWeight, dirY * dirY
-        );
+    /**
+     * @return The total impulse currently applied along the normal
+     */
+    public double getNormalImpulse() {
+        return normalImpulse.get();
+    }
 
-        final double invertedProjectedMass = invertedMass.getWeightedSum(weights);
-        return 1 / invertedProjectedMass;
+    /**
+     * @return The total impulse currently applied along the tangent
+     */
+    public double getTangentImpulse() {
+        return tangentImpulse.get();
     }
 
     /**
      * Constrains the velocities of the pair of bodies participating in the collision. Impulses
      * are applied for both non-penetration and friction
+     *
+     * @return The largest absolute change of the normal and tangent impulses
      */
-    @Override public void updateImpulse() {
-        updateNormalImpulse();
-        updateTangentImpulse(); // Depends on the magnitude of the normal impulse
+    @Override public double updateImpulse() {
+        final double deltaNormalImpulse = updateNormalImpulse();
+        final double deltaTangentImpulse = updateTangentImpulse(); // Depends on the magnitude of the normal impulse
+        return Math.max(Math.abs(deltaNormalImpulse), Math.abs(deltaTangentImpulse));
     }
 
-    private void updateNormalImpulse() {
-        final Interval normalImpulseRange = new Interval(0, Double.POSITIVE_INFINITY);
+    /**
+     * @param action The action to perform for both bodies in contact
+     */
+    @Override public void forEachBody(final Consumer<Body> action) {
+        action.accept(contactPoints.getBodyPointA().getBody());
+        action.accept(contactPoints.getBodyPointB().getBody());
+    }
 
+    private double updateNormalImpulse() {
         final double targetDeltaNormalVel = targetNormalVel - getVelAlong(normal);
-        final double deltaNormalImpulse = normalImpulse.update(targetDeltaNormalVel, normalMass, normalImpulseRange);
+        final double deltaNormalImpulse = normalImpulse.update(
+                targetDeltaNormalVel, normalMass, MIN_NORMAL_IMPULSE, MAX_NORMAL_IMPULSE);
         applyImpulse(normal, deltaNormalImpulse);
+        return deltaNormalImpulse;
     }
 
-    private void updateTangentImpulse() {
+    private double updateTangentImpulse() {
         final double maxTangentImpulse = frictionCoefficient * normalImpulse.get();
-        final Interval tangentImpulseRange = new Interval(-maxTangentImpulse, maxTangentImpulse);
 
         final double targetDeltaTangentVel = -getVelAlong(tangent);
-        final double deltaTangentImpulse = tangentImpulse.update(targetDeltaTangentVel, tangentMass, tangentImpulseRange);
+        final double deltaTangentImpulse = tangentImpulse.update(
+                targetDeltaTangentVel, tangentMass, -maxTangentImpulse, maxTangentImpulse);
         applyImpulse(tangent, deltaTangentImpulse);
+        return deltaTangentImpulse;
     }
 
     private double getVelAlong(final Vector2D dir) {
@@ -161,10 +258,10 @@ public class ActiveCollisionConstraint implements ActiveVelocityConstraint
     }
 
     private static double getVelAlong(final Vector2D dir, final OffsetBodyPointPair contactPoints) {
-        return dir.dot(contactPoints.getVel());
+        return contactPoints.getVelAlong(dir);
     }
 
     private void applyImpulse(final Vector2D dir, final double magnitude) {
-        contactPoints.applyImpulse(dir.multiply(magnitude));
+        contactPoints.applyImpulseAlong(dir, magnitude);
     }
 }
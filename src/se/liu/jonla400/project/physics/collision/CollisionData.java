@@ -5,12 +5,15 @@ import se.liu.jonla400.project.physics.constraint.OffsetBodyPoint;
 import se.liu.jonla400.project.physics.constraint.OffsetBodyPointPair;
 import se.liu.jonla400.project.physics.main.Body;
 
+import java.util.Optional;
+
 /**
  * Represents the data associated with a collision between two bodies. The shapes used to detect
  * the collision have been abstracted away. The data includes the bodies in contact,
  * the points on those bodies that are actually in contact, the collision normal (direction of
  * the collision), penetration (how much overlap there is along the normal) and {@link Material}.
- * The collision data also includes custom user data that are unique for each type of collision.
+ * The collision data also includes custom user data that are unique for each type of collision,
+ * and optionally a {@link ContactKey} that identifies the contact across time steps.
  *
  * @param <T> The type of user data
  */
@@ -25,14 +28,17 @@ public class CollisionData<T>
 
     private T userData;
 
+    private ContactKey contactKey;
+
     private CollisionData(final OffsetBodyPointPair contactPoints, final Vector2D normal, final double penetration,
-			 final Material material, final T userData)
+			 final Material material, final T userData, final ContactKey contactKey)
     {
 	this.contactPoints = contactPoints;
 	this.normal = normal;
 	this.penetration = penetration;
 	this.material = material;
 	this.userData = userData;
+	this.contactKey = contactKey;
     }
 
     /**
@@ -52,12 +58,37 @@ public class CollisionData<T>
     public static <T> CollisionData<T> create(
 	    final Body bodyA, final Vector2D contactPointOffsetA, final Body bodyB, final Vector2D contactPointOffsetB,
 	    final Vector2D normal, final double penetration, final Material material, final T userData)
+    {
+	return create(bodyA, contactPointOffsetA, bodyB, contactPointOffsetB, normal, penetration, material, userData, null);
+    }
+
+    /**
+     * Creates a CollisionData object that is identified across time steps by the given {@link ContactKey}.
+     * Collisions detected during consecutive time steps with equal contact keys are considered to be the
+     * same contact.
+     *
+     * @param bodyA One of the colliding bodies
+     * @param contactPointOffsetA bodyA's contact point described as an offset from the body's position
+     * @param bodyB The other colliding body
+     * @param contactPointOffsetB bodyB's contact point described as an offset from the body's position
+     * @param normal The direction A's contact point should bounce in relative to B's contact point, should be a unit vector
+     * @param penetration The penetration of the contact points along the normal
+     * @param material The bounce and friction coefficients
+     * @param userData The user data
+     * @param contactKey The identity of the contact, or null if the contact cannot be identified across time steps
+     * @param <T> The type of user data
+     * @return The created collision data
+     */
+    public static <T> CollisionData<T> create(
+	    final Body bodyA, final Vector2D contactPointOffsetA, final Body bodyB, final Vector2D contactPointOffsetB,
+	    final Vector2D normal, final double penetration, final Material material, final T userData,
+	    final ContactKey contactKey)
     {
 	final OffsetBodyPointPair contactPoints = new OffsetBodyPointPair(
 		OffsetBodyPoint.copyOffset(bodyA, contactPointOffsetA),
 		OffsetBodyPoint.copyOffset(bodyB, contactPointOffsetB)
 	);
-	return new CollisionData<>(contactPoints, normal.copy(), penetration, material, userData);
+	return new CollisionData<>(contactPoints, normal.copy(), penetration, material, userData, contactKey);
     }
 
     public OffsetBodyPointPair getContactPoints() {
@@ -71,6 +102,28 @@ public class CollisionData<T>
 	return normal.copy();
     }
 
+    /**
+     * @return The x-coordinate of the collision normal, which unlike {@link #getNormal()} creates no vector
+     */
+    double getNormalX() {
+	return normal.getX();
+    }
+
+    /**
+     * @return The y-coordinate of the collision normal, which unlike {@link #getNormal()} creates no vector
+     */
+    double getNormalY() {
+	return normal.getY();
+    }
+
+    /**
+     * @return The identity of this contact across time steps, or null if the contact cannot be identified. Unlike
+     *         {@link #getContactKey()}, this creates no optional.
+     */
+    ContactKey getContactKeyOrNull() {
+	return contactKey;
+    }
+
     /**
      * @return The overlap along the normal
      */
@@ -95,4 +148,11 @@ public class CollisionData<T>
     public T getUserData() {
 	return userData;
     }
+
+    /**
+     * @return The identity of this contact across time steps, if any
+     */
+    public Optional<ContactKey> getContactKey() {
+	return Optional.ofNullable(contactKey);
+    }
 }
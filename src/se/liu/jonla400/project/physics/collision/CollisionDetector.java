@@ -1,6 +1,6 @@
 package se.liu.jonla400.project.physics.collision;
 
-import java.util.Collection;
+import java.util.List;
 
 /**
  * Represents a detector of collisions and their {@link CollisionData}.
@@ -9,9 +9,10 @@ import java.util.Collection;
 public interface CollisionDetector<T>
 {
     /**
-     * Returns a collection of the current collisions and their {@link CollisionData}.
+     * Returns a list of the current collisions and their {@link CollisionData}. The detector may
+     * reuse the returned list for the next detection, so it should not be kept after that.
      *
      * @return The data of each collision
      */
-    Collection<CollisionData<T>> detectCollisions();
+    List<CollisionData<T>> detectCollisions();
 }
@@ -0,0 +1,160 @@
+package se.liu.jonla400.project.physics.collision;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Collects the contact events of a {@link CollisionHandler} during a time step and delivers them to its subscribers
+ * in one batch once the time step is over. The bus is registered to the collision handler as a
+ * {@link CollisionListener}, and its subscribers are collision listeners as well. They are told about the same
+ * contacts in the same order as if they had been registered to the collision handler, but only when
+ * {@link #publish()} is called, which should be after the physics engine has been ticked. A slow subscriber then
+ * never runs in the middle of a time step, and may safely change the world, for example by replacing the level.
+ *
+ * The events are collected into buffers that are allocated once and reused every time step, so collecting events
+ * allocates nothing unless a time step has more events than ever before.
+ *
+ * The batch is delivered on the thread that publishes it, unless the bus was created with an {@link Executor}. In
+ * that case, the batch is copied and delivered by the executor, so that publishing never waits for the subscribers.
+ * The subscribers then run concurrently with the physics engine, and must not use the bodies of the collisions.
+ * The batches are delivered in order only if the executor runs its tasks in order.
+ *
+ * @param <T> The type of user data associated with each collision
+ */
+public class CollisionEventBus<T> implements CollisionListener<T>
+{
+    private final static int DEFAULT_CAPACITY = 64;
+
+    private Optional<Executor> executor;
+    private List<CollisionListener<T>> subscribers;
+    // The subset of the subscribers that listen to persisting contacts
+    private List<CollisionListener<T>> persistSubscribers;
+
+    // The events of the current time step, as parallel lists that keep their capacity when cleared
+    private List<ContactEventType> eventTypes;
+    private List<CollisionData<T>> eventCollisions;
+
+    private CollisionEventBus(final Optional<Executor> executor, final int capacity) {
+	this.executor = executor;
+	// Subscribers may be added while a batch is being delivered by the executor
+	subscribers = new CopyOnWriteArrayList<>();
+	persistSubscribers = new CopyOnWriteArrayList<>();
+	eventTypes = new ArrayList<>(capacity);
+	eventCollisions = new ArrayList<>(capacity);
+    }
+
+    /**
+     * Creates a CollisionEventBus that delivers each batch on the thread that publishes it
+     *
+     * @param <T> The type of user data associated with each collision
+     * @return The created CollisionEventBus
+     */
+    public static <T> CollisionEventBus<T> createDeliveringOnPublishingThread() {
+	return new CollisionEventBus<>(Optional.empty(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a CollisionEventBus that delivers each batch with the given executor
+     *
+     * @param executor The executor that delivers the batches, which should run its tasks in order
+     * @param <T> The type of user data associated with each collision
+     * @return The created CollisionEventBus
+     */
+    public static <T> CollisionEventBus<T> createDeliveringWith(final Executor executor) {
+	return new CollisionEventBus<>(Optional.of(executor), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Adds a subscriber, which is told about the events of the batches published from now on
+     *
+     * @param subscriber The subscriber to add
+     */
+    public void subscribe(final CollisionListener<T> subscriber) {
+	subscribers.add(subscriber);
+	if (subscriber.listensToPersistingContacts()) {
+	    persistSubscribers.add(subscriber);
+	}
+    }
+
+    /**
+     * Collects the beginning of a contact
+     *
+     * @param collision The collision that was detected
+     */
+    @Override public void onContactBegin(final CollisionData<T> collision) {
+	collect(ContactEventType.BEGIN, collision);
+    }
+
+    /**
+     * Collects that a contact persists, if any subscriber listens to persisting contacts
+     *
+     * @param collision The collision that was detected during this time step
+     */
+    @Override public void onContactPersist(final CollisionData<T> collision) {
+	if (!persistSubscribers.isEmpty()) {
+	    collect(ContactEventType.PERSIST, collision);
+	}
+    }
+
+    /**
+     * Collects the end of a contact
+     *
+     * @param lastCollision The collision that was detected the last time the contact was detected
+     */
+    @Override public void onContactEnd(final CollisionData<T> lastCollision) {
+	collect(ContactEventType.END, lastCollision);
+    }
+
+    /**
+     * The bus listens to persisting contacts, since subscribers that do may be added later on. Persisting contacts
+     * are not collected while no subscriber listens to them.
+     *
+     * @return True
+     */
+    @Override public boolean listensToPersistingContacts() {
+	return true;
+    }
+
+    private void collect(final ContactEventType eventType, final CollisionData<T> collision) {
+	eventTypes.add(eventType);
+	eventCollisions.add(collision);
+    }
+
+    /**
+     * Delivers the events collected since the last time this was called to the subscribers, either directly or
+     * with the executor of this bus
+     */
+    public void publish() {
+	if (eventTypes.isEmpty()) {
+	    return;
+	}
+	if (executor.isPresent()) {
+	    final List<ContactEventType> batchTypes = new ArrayList<>(eventTypes);
+	    final List<CollisionData<T>> batchCollisions = new ArrayList<>(eventCollisions);
+	    executor.get().execute(() -> deliver(batchTypes, batchCollisions));
+	} else {
+	    deliver(eventTypes, eventCollisions);
+	}
+	eventTypes.clear();
+	eventCollisions.clear();
+    }
+
+    private void deliver(final List<ContactEventType> batchTypes, final List<CollisionData<T>> batchCollisions) {
+	for (int i = 0; i < batchTypes.size(); i++) {
+	    final CollisionData<T> collision = batchCollisions.get(i);
+	    switch (batchTypes.get(i)) {
+		case BEGIN -> subscribers.forEach(subscriber -> subscriber.onContactBegin(collision));
+		case PERSIST -> persistSubscribers.forEach(subscriber -> subscriber.onContactPersist(collision));
+		case END -> subscribers.forEach(subscriber -> subscriber.onContactEnd(collision));
+	    }
+	}
+    }
+
+    private enum ContactEventType
+    {
+	BEGIN, PERSIST, END
+    }
+}
@@ -2,17 +2,35 @@ package se.liu.jonla400.project.physics.collision;
 
 import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
 import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
+import se.liu.jonla400.project.physics.constraint.OffsetBodyPointPair;
 import se.liu.jonla400.project.physics.constraint.VelocityConstrainer;
+import se.liu.jonla400.project.physics.main.Body;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Handles collisions by detecting them using a {@link CollisionDetector}, notifying
- * {@link CollisionListener}s about the collisions and finally solving the collisions
+ * {@link CollisionListener}s about the contacts that begin, persist and end, and finally solving the collisions
  * using {@link ActiveCollisionConstraint}s.
  *
+ * The handler remembers each contact identified by a {@link ContactKey}, together with its constraint and its
+ * latest collision data. If the same contact is detected during the next time step, its constraint is reinitialized
+ * and warm started with the impulses that it ended up with. Contacts that are no longer detected are forgotten, but
+ * their constraints and bookkeeping are kept and reused by contacts that begin later on, as are the constraints of
+ * collisions without a contact key. Handling collisions thus creates no objects beyond the map entry of each contact
+ * that begins, unless there are more contacts at once than ever before.
+ *
+ * The listeners are told which contacts are new, which have persisted since the previous time step and which have
+ * ended. Listeners that do not listen to persisting contacts are only told when something changes, which for a
+ * resting contact is never.
+ *
+ * Bodies in contact fall asleep together (see {@link Body#shareSleepWith(Body)}). No constraint is solved
+ * for a contact between two bodies that are asleep or static, since it could not change anything. Such a contact
+ * is still remembered, so that it can be warm started once one of its bodies wakes up.
+ *
  * @param <T> The type of user data associated with each collision
  */
 public class CollisionHandler<T> implements VelocityConstrainer
@@ -21,6 +39,25 @@ public class CollisionHandler<T> implements VelocityConstrainer
     private double penetrationTolerance;
     private double penetrationCorrectionFraction;
     private List<CollisionListener<T>> listeners;
+    // The subset of the listeners that listen to persisting contacts
+    private List<CollisionListener<T>> persistListeners;
+
+    // The contacts detected during the previous time step, and then also those detected during the current one.
+    // The list holds the same contacts as the map, so that they can be gone through without creating an iterator.
+    private Map<ContactKey, Contact<T>> contacts;
+    private List<Contact<T>> contactList;
+    // Contacts that have ended, to be reused by contacts that begin
+    private List<Contact<T>> freeContacts;
+    // Increased each time step, so that each contact can tell when it was last detected
+    private long timeStep;
+
+    // The constraints of the collisions without a contact key, of which the first keylessCount are used this time step
+    private List<ActiveCollisionConstraint> keylessConstraints;
+    private int keylessCount;
+
+    // The constraints of the current time step, and a view of them
+    private List<ActiveVelocityConstraint> subConstraints;
+    private ActiveVelocityConstraintList constraint;
 
     public CollisionHandler(final CollisionDetector<T> collisionDetector, final double penetrationTolerance,
 			    final double penetrationCorrectionFraction, final List<CollisionListener<T>> listeners)
@@ -28,7 +65,17 @@ public class CollisionHandler<T> implements VelocityConstrainer
 	this.collisionDetector = collisionDetector;
 	this.penetrationTolerance = penetrationTolerance;
 	this.penetrationCorrectionFraction = penetrationCorrectionFraction;
-	this.listeners = listeners;
+	this.listeners = new ArrayList<>();
+	persistListeners = new ArrayList<>();
+	contacts = new HashMap<>();
+	contactList = new ArrayList<>();
+	freeContacts = new ArrayList<>();
+	timeStep = 0;
+	keylessConstraints = new ArrayList<>();
+	keylessCount = 0;
+	subConstraints = new ArrayList<>();
+	constraint = ActiveVelocityConstraintList.createViewWithSingleIteration(subConstraints);
+	listeners.forEach(this::addListener);
     }
 
     /**
@@ -51,33 +98,164 @@ public class CollisionHandler<T> implements VelocityConstrainer
      */
     public void addListener(final CollisionListener<T> listener) {
 	listeners.add(listener);
-    }
-
-    private void notifyListeners(final CollisionData<T> collision) {
-	for (CollisionListener<T> listener : listeners) {
-	    listener.collisionOccurred(collision);
+	if (listener.listensToPersistingContacts()) {
+	    persistListeners.add(listener);
 	}
     }
 
     /**
      * Generates a collective constraint for each collision by first detecting the collisions using the
-     * collision detector. Also notifies each listener about the collisions that are detected.
+     * collision detector. Also notifies the listeners about the contacts that began, persisted and ended. Contacts
+     * that were also detected during the previous time step are warm started with their previous impulses. The same
+     * collective constraint is returned every time step, but with the constraints of the newly detected collisions.
      *
      * @param deltaTime The size of the time step after solving the collisions
      * @return The collective velocity constraint used to solve the collisions
      */
     @Override public ActiveVelocityConstraint generateConstraint(final double deltaTime) {
-	final Collection<ActiveVelocityConstraint> subConstraints = detectCollisionsAndGenerateConstraints(deltaTime);
-	return ActiveVelocityConstraintList.createWithSingleIteration(subConstraints);
+	timeStep++;
+	keylessCount = 0;
+	subConstraints.clear();
+	final List<CollisionData<T>> collisions = collisionDetector.detectCollisions();
+	// Indexing instead of iterating, since this runs every time step and must not create any iterators
+	for (int i = 0; i < collisions.size(); i++) {
+	    handleCollision(collisions.get(i), deltaTime);
+	}
+	forgetEndedContacts();
+	return constraint;
+    }
+
+    private void handleCollision(final CollisionData<T> collision, final double deltaTime) {
+	final OffsetBodyPointPair contactPoints = collision.getContactPoints();
+	contactPoints.getBodyPointA().getBody().shareSleepWith(contactPoints.getBodyPointB().getBody());
+
+	final ContactKey contactKey = collision.getContactKeyOrNull();
+	final Contact<T> contact = contactKey == null ? null : contacts.get(contactKey);
+	if (contact == null || contact.lastDetectedTimeStep == timeStep) {
+	    // The contact either begins, can not be recognized or has already been detected during this time step
+	    notifyListenersOfBeginning(collision);
+	    if (contactKey != null && contact == null) {
+		beginContact(contactKey, collision, deltaTime);
+	    } else if (!isInactive(collision)) {
+		subConstraints.add(getKeylessConstraint(collision, deltaTime));
+	    }
+	    return;
+	}
+
+	notifyListenersOfPersisting(collision);
+	contact.lastCollision = collision;
+	contact.lastDetectedTimeStep = timeStep;
+	if (isInactive(collision)) {
+	    return; // The constraint is kept as it is, so that it can be warm started once a body wakes up
+	}
+	if (contact.constraint == null) {
+	    contact.constraint = createConstraint(collision, deltaTime);
+	} else if (contact.isWarm) {
+	    contact.constraint.reinitializeWarmStarted(collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+	} else {
+	    contact.constraint.reinitialize(collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+	}
+	contact.isWarm = true;
+	subConstraints.add(contact.constraint);
+    }
+
+    private void beginContact(final ContactKey contactKey, final CollisionData<T> collision, final double deltaTime) {
+	final Contact<T> contact = freeContacts.isEmpty() ? new Contact<>() : freeContacts.remove(freeContacts.size() - 1);
+	contact.contactKey = contactKey;
+	contact.lastCollision = collision;
+	contact.lastDetectedTimeStep = timeStep;
+	contact.isWarm = false;
+	contacts.put(contactKey, contact);
+	contactList.add(contact);
+	if (isInactive(collision)) {
+	    return;
+	}
+	if (contact.constraint == null) {
+	    contact.constraint = createConstraint(collision, deltaTime);
+	} else {
+	    contact.constraint.reinitialize(collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+	}
+	contact.isWarm = true;
+	subConstraints.add(contact.constraint);
+    }
+
+    private ActiveCollisionConstraint getKeylessConstraint(final CollisionData<T> collision, final double deltaTime) {
+	final ActiveCollisionConstraint keylessConstraint;
+	if (keylessCount == keylessConstraints.size()) {
+	    keylessConstraint = createConstraint(collision, deltaTime);
+	    keylessConstraints.add(keylessConstraint);
+	} else {
+	    keylessConstraint = keylessConstraints.get(keylessCount);
+	    keylessConstraint.reinitialize(collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+	}
+	keylessCount++;
+	return keylessConstraint;
+    }
+
+    private ActiveCollisionConstraint createConstraint(final CollisionData<T> collision, final double deltaTime) {
+	return ActiveCollisionConstraint.createFromCollisionData(
+		collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction);
+    }
+
+    private boolean isInactive(final CollisionData<T> collision) {
+	final OffsetBodyPointPair contactPoints = collision.getContactPoints();
+	return isInactive(contactPoints.getBodyPointA().getBody()) && isInactive(contactPoints.getBodyPointB().getBody());
+    }
+
+    private static boolean isInactive(final Body body) {
+	return body.isAsleep() || body.isStatic();
+    }
+
+    private void notifyListenersOfBeginning(final CollisionData<T> collision) {
+	for (int i = 0; i < listeners.size(); i++) {
+	    listeners.get(i).onContactBegin(collision);
+	}
     }
 
-    private Collection<ActiveVelocityConstraint> detectCollisionsAndGenerateConstraints(final double deltaTime) {
-	final Collection<ActiveVelocityConstraint> subConstraints = new ArrayList<>();
-	for (CollisionData<T> collision : collisionDetector.detectCollisions()) {
-	    notifyListeners(collision);
-	    subConstraints.add(ActiveCollisionConstraint.createFromCollisionData(
-		    collision, deltaTime, penetrationTolerance, penetrationCorrectionFraction));
+    private void notifyListenersOfPersisting(final CollisionData<T> collision) {
+	for (int i = 0; i < persistListeners.size(); i++) {
+	    persistListeners.get(i).onContactPersist(collision);
 	}
-	return subConstraints;
+    }
+
+    /**
+     * Tells the listeners about every contact that was not detected during this time step, and forgets it
+     */
+    private void forgetEndedContacts() {
+	int i = 0;
+	while (i < contactList.size()) {
+	    final Contact<T> contact = contactList.get(i);
+	    if (contact.lastDetectedTimeStep == timeStep) {
+		i++;
+		continue;
+	    }
+	    for (int j = 0; j < listeners.size(); j++) {
+		listeners.get(j).onContactEnd(contact.lastCollision);
+	    }
+	    contacts.remove(contact.contactKey);
+	    // Replace the ended contact with the last one, which is then checked next
+	    final Contact<T> lastContact = contactList.remove(contactList.size() - 1);
+	    if (i < contactList.size()) {
+		contactList.set(i, lastContact);
+	    }
+	    contact.contactKey = null;
+	    contact.lastCollision = null;
+	    freeContacts.add(contact);
+	}
+    }
+
+    /**
+     * A contact identified by a contact key, which is remembered for as long as it is detected. Once it has ended,
+     * the contact and its constraint are reused by a contact that begins.
+     */
+    private static class Contact<T>
+    {
+	private ContactKey contactKey = null;
+	private CollisionData<T> lastCollision = null;
+	private long lastDetectedTimeStep = 0;
+	// The constraint of the contact, or null if no contact using this bookkeeping has been active so far
+	private ActiveCollisionConstraint constraint = null;
+	// Whether the constraint holds the impulses of this contact, rather than those of an ended contact
+	private boolean isWarm = false;
     }
 }
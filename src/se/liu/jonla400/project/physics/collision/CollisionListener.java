@@ -1,18 +1,51 @@
 package se.liu.jonla400.project.physics.collision;
 
 /**
- * Represents a listener to collisions with a certain type of user data. A collision listener
- * will, after being registered to a {@link CollisionHandler}, receive {@link CollisionData} for each
- * detected collision.
+ * Represents a listener to contacts with a certain type of user data. A collision listener will, after being
+ * registered to a {@link CollisionHandler}, be told when a contact begins and when it ends. A contact is identified
+ * across time steps by its {@link ContactKey}, and begins during the first time step it is detected and ends
+ * during the first time step it is no longer detected. A collision without a contact key can not be recognized
+ * across time steps, so each detection of it is reported as the beginning of a new contact that never ends.
+ *
+ * Most listeners only care about when contacts begin. A listener that wants to be told about every time step
+ * that a contact persists must opt in to it (see {@link #listensToPersistingContacts()}), since a resting contact
+ * persists during every time step.
  *
  * @param <T> The type of user data associated with each collision
  */
 public interface CollisionListener<T>
 {
     /**
-     * Reacts to a detected collision
+     * Reacts to a contact that was detected during this time step, but not during the previous one
      *
      * @param collision The collision that was detected
      */
-    void collisionOccurred(final CollisionData<T> collision);
+    void onContactBegin(final CollisionData<T> collision);
+
+    /**
+     * Reacts to a contact that was detected during both this and the previous time step. Only called if this
+     * listener listens to persisting contacts.
+     *
+     * @param collision The collision that was detected during this time step
+     */
+    default void onContactPersist(final CollisionData<T> collision) {
+    }
+
+    /**
+     * Reacts to a contact that was detected during the previous time step, but not during this one
+     *
+     * @param lastCollision The collision that was detected the last time the contact was detected
+     */
+    default void onContactEnd(final CollisionData<T> lastCollision) {
+    }
+
+    /**
+     * Decides whether this listener is told about every time step that a contact persists. This is asked once,
+     * when the listener is registered.
+     *
+     * @return Whether {@link #onContactPersist} should be called, false by default
+     */
+    default boolean listensToPersistingContacts() {
+	return false;
+    }
 }
@@ -0,0 +1,59 @@
+package se.liu.jonla400.project.physics.collision;
+
+/**
+ * Identifies a contact between two colliders across time steps. A contact is identified by the
+ * two colliders in contact together with the feature (for example a line segment) of the second
+ * collider that is touched. All parts are compared by identity, which means that two keys are
+ * equal if and only if they refer to the very same objects.
+ *
+ * This is used by {@link CollisionHandler} to recognize that a contact detected during one time step is the same
+ * contact as one detected during the previous time step.
+ */
+public class ContactKey
+{
+    private Object colliderA;
+    private Object colliderB;
+    private Object featureB;
+
+    private ContactKey(final Object colliderA, final Object colliderB, final Object featureB) {
+	this.colliderA = colliderA;
+	this.colliderB = colliderB;
+	this.featureB = featureB;
+    }
+
+    /**
+     * Creates a ContactKey identifying a contact between the given colliders at the given feature
+     * of the second collider
+     *
+     * @param colliderA The first collider in contact
+     * @param colliderB The second collider in contact
+     * @param featureB The part of the second collider that is in contact with the first collider, or null
+     *                 if the second collider consists of a single part
+     * @return The created ContactKey
+     */
+    public static ContactKey create(final Object colliderA, final Object colliderB, final Object featureB) {
+	return new ContactKey(colliderA, colliderB, featureB);
+    }
+
+    @Override public boolean equals(final Object o) {
+	if (this == o) {
+	    return true;
+	}
+	if (o == null || getClass() != o.getClass()) {
+	    return false;
+	}
+	final ContactKey other = (ContactKey) o;
+	return colliderA == other.colliderA && colliderB == other.colliderB && featureB == other.featureB;
+    }
+
+    @Override public int hashCode() {
+	int hash = System.identityHashCode(colliderA);
+	hash = 31 * hash + System.identityHashCode(colliderB);
+	hash = 31 * hash + System.identityHashCode(featureB);
+	return hash;
+    }
+
+    @Override public String toString() {
+	return "ContactKey{" + "colliderA=" + colliderA + ", colliderB=" + colliderB + ", featureB=" + featureB + '}';
+    }
+}
@@ -3,18 +3,21 @@ package se.liu.jonla400.project.physics.collision.implementation;
 import se.liu.jonla400.project.math.Vector2D;
 import se.liu.jonla400.project.physics.collision.CollisionData;
 import se.liu.jonla400.project.physics.collision.CollisionDetector;
+import se.liu.jonla400.project.physics.collision.ContactKey;
 import se.liu.jonla400.project.physics.collision.Material;
 import se.liu.jonla400.project.physics.main.Body;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 
 /**
  * Represents a {@link CollisionDetector} that detects collisions between a {@link CircleCollider} and
  * a {@link CustomCollider}. Each line segment in the custom collider has custom user data, and collisions
- * detected will contain that user data, see {@link CollisionData}.
+ * detected will contain that user data, see {@link CollisionData}. Each collision is identified across time steps
+ * by the colliders and the line segment collided with, see {@link ContactKey}.
  *
  * @param <T> The type of user data bound to line segments
  */
@@ -23,6 +26,8 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
     private CircleCollider circleCollider;
     private CustomCollider<T> customCollider;
     private Function<T, Material> materialProvider;
+    // Cleared and refilled by each detection
+    private List<CollisionData<T>> collisions;
 
     private CircleVsCustomCollisionDetector(final CircleCollider circleCollider, final CustomCollider<T> customCollider,
 					   final Function<T, Material> materialProvider)
@@ -30,6 +35,7 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
 	this.circleCollider = circleCollider;
 	this.customCollider = customCollider;
 	this.materialProvider = materialProvider;
+	collisions = new ArrayList<>();
     }
 
     /**
@@ -61,38 +67,58 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
     public static <T> CircleVsCustomCollisionDetector<T> createWithDefaultUniformMaterial(
 	    final CircleCollider circleCollider, final CustomCollider<T> customCollider)
     {
-	final Material material = new Material(0.3, 1);
-	return createWithUniformMaterial(circleCollider, customCollider, material);
+	return createWithUniformMaterial(circleCollider, customCollider, createDefaultMaterial());
+    }
+
+    /**
+     * @return The default material of collisions between circles and line segments
+     */
+    static Material createDefaultMaterial() {
+	return new Material(0.3, 1);
     }
 
     /**
      * Detects the collisions between the circle and the line segments. Each generated
-     * collision data contains the user data of the line segment collided with.
+     * collision data contains the user data of the line segment collided with. Only the line
+     * segments near the circle are tested, see {@link CustomShape#forEachSegmentNear}. If the custom shape has
+     * a distance field covering the radius of the circle, finding them is a single lookup, and a circle far from
+     * every line segment is rejected without testing any of them.
      *
-     * @return The collection of {@link CollisionData}
+     * @return The list of {@link CollisionData}, which is reused by the next detection
      */
-    @Override public Collection<CollisionData<T>> detectCollisions() {
-	final Collection<CollisionData<T>> collisions = new ArrayList<>();
+    @Override public List<CollisionData<T>> detectCollisions() {
+	collisions.clear();
+	detectCollisions(circleCollider, customCollider, materialProvider, collisions);
+	return collisions;
+    }
 
-	final Vector2D circlePosInCustomShape = getCirclePosInCustomShape();
-	for (LineSegment<T> segment : getCustomShape()) {
-	    detectCircleVsSegmentCollision(circlePosInCustomShape, circleCollider.getRadius(), segment).ifPresent(c -> {
-		final Vector2D circleContactPointOffset = convertCustomShapeVecToGlobalVec(c.circleContactPointOffset);
-		final Vector2D customContactPointOffset = convertCustomShapePointToColliderOffset(c.segmentContactPoint);
-		final Vector2D normal = convertCustomShapeVecToGlobalVec(c.normal);
+    /**
+     * Detects the collisions between the given circle and the line segments of the given custom collider,
+     * and adds them to the given collection. This is shared with {@link CollisionWorld}.
+     */
+    static <T> void detectCollisions(final CircleCollider circleCollider, final CustomCollider<T> customCollider,
+				     final Function<T, Material> materialProvider, final Collection<CollisionData<T>> collisions)
+    {
+	final Vector2D circlePosInCustomShape = getCirclePosInCustomShape(circleCollider, customCollider);
+	final double circleRadius = circleCollider.getRadius();
+	getCustomShape(customCollider).forEachSegmentNear(circlePosInCustomShape, circleRadius, segment -> {
+	    detectCircleVsSegmentCollision(circlePosInCustomShape, circleRadius, segment).ifPresent(c -> {
+		final Vector2D circleContactPointOffset = convertCustomShapeVecToGlobalVec(customCollider, c.circleContactPointOffset);
+		final Vector2D customContactPointOffset = convertCustomShapePointToColliderOffset(customCollider, c.segmentContactPoint);
+		final Vector2D normal = convertCustomShapeVecToGlobalVec(customCollider, c.normal);
 
 		collisions.add(CollisionData.create(
 			circleCollider.getBody(), circleContactPointOffset, customCollider.getBody(), customContactPointOffset,
-			normal, c.penetration, getMaterialOf(segment), segment.getUserData()));
+			normal, c.penetration, materialProvider.apply(segment.getUserData()), segment.getUserData(),
+			ContactKey.create(circleCollider, customCollider, segment)));
 	    });
-	}
-	return collisions;
+	});
     }
 
     /**
      * @return The circle's position in the local space of the custom collider's translated shape
      */
-    private Vector2D getCirclePosInCustomShape() {
+    private static Vector2D getCirclePosInCustomShape(final CircleCollider circleCollider, final CustomCollider<?> customCollider) {
 	final Vector2D circlePos = circleCollider.getBody().getPos();
 	final Body customColliderBody = customCollider.getBody();
 	final Vector2D customShapeTranslation = customCollider.getShape().getTranslation();
@@ -104,7 +130,7 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
     /**
      * @return The custom collider's shape at the translation (=without the translation)
      */
-    private CustomShape<T> getCustomShape() {
+    private static <T> CustomShape<T> getCustomShape(final CustomCollider<T> customCollider) {
 	return customCollider.getShape().getShape();
     }
 
@@ -130,7 +156,7 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
      * @param customShapeVec A vector in the local space of the custom collider's translated shape
      * @return The vector in global space
      */
-    private Vector2D convertCustomShapeVecToGlobalVec(final Vector2D customShapeVec) {
+    private static Vector2D convertCustomShapeVecToGlobalVec(final CustomCollider<?> customCollider, final Vector2D customShapeVec) {
 	final Body customBody = customCollider.getBody();
 	return customBody.convertLocalToGlobalVector(customShapeVec);
     }
@@ -139,7 +165,9 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
      * @param customShapePoint A point in the local space of the custom collider's translated shape
      * @return The point's global offset from the custom collider's position
      */
-    private Vector2D convertCustomShapePointToColliderOffset(final Vector2D customShapePoint) {
+    private static Vector2D convertCustomShapePointToColliderOffset(final CustomCollider<?> customCollider,
+								   final Vector2D customShapePoint)
+    {
 	final Body customBody = customCollider.getBody();
 	final Vector2D customShapeTranslation = customCollider.getShape().getTranslation();
 
@@ -147,10 +175,6 @@ public class CircleVsCustomCollisionDetector<T> implements CollisionDetector<T>
 	return customBody.convertLocalToGlobalVector(customColliderPoint);
     }
 
-    private Material getMaterialOf(final LineSegment<T> segment) {
-	return materialProvider.apply(segment.getUserData());
-    }
-
     private static class CircleVsSegmentCollision
     {
 	private Vector2D circleContactPointOffset;
@@ -0,0 +1,159 @@
+package se.liu.jonla400.project.physics.collision.implementation;
+
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.main.Body;
+import se.liu.jonla400.project.physics.main.PhysicsEngine;
+import se.liu.jonla400.project.physics.main.TimeOfImpactFinder;
+
+/**
+ * Represents a {@link TimeOfImpactFinder} that finds when a {@link CircleCollider} first hits a line segment of a
+ * {@link CustomCollider}. Adding it to a {@link PhysicsEngine} keeps a fast circle from passing through the line
+ * segments between two time steps.
+ *
+ * The motion is swept in the local space of the custom shape. Since the custom collider may rotate during the
+ * time step, the circle then moves along a curve rather than a straight line. The curve never strays further than
+ * a computable distance from the straight line between its start and end, so a circle that is larger by that
+ * distance is swept along the straight line instead, which hits everything that the circle could hit along the
+ * curve. The circle is stopped on that line, where it is relative to the custom collider at its time of impact.
+ *
+ * The circle is stopped once it penetrates the line segments by a small distance. Line segments that the circle
+ * already penetrates that deep at the start of the time step are ignored, since they are in contact with the circle
+ * and handled as such. Otherwise, a circle resting or rolling on the line segments could never move. The distance
+ * should be larger than the penetration that the collision handling tolerates (see
+ * {@link se.liu.jonla400.project.physics.collision.CollisionHandler}), since a circle rolling on a line segment
+ * penetrates it that deep, and would otherwise hit the next line segment along a straight floor.
+ *
+ * @param <T> The type of user data associated with each line segment
+ */
+public class CircleVsCustomTimeOfImpactFinder<T> implements TimeOfImpactFinder
+{
+    // Twice the penetration tolerated by the default collision handling
+    private final static double DEFAULT_IMPACT_PENETRATION = 0.1;
+
+    private CircleCollider circleCollider;
+    private CustomCollider<T> customCollider;
+    private double impactPenetration;
+
+    // The straight line that the circle was swept along during the current time step, in the local space of the shape
+    private Vector2D sweepStart;
+    private Vector2D sweepMotion;
+
+    private CircleVsCustomTimeOfImpactFinder(final CircleCollider circleCollider, final CustomCollider<T> customCollider,
+					     final double impactPenetration)
+    {
+	this.circleCollider = circleCollider;
+	this.customCollider = customCollider;
+	this.impactPenetration = impactPenetration;
+	sweepStart = Vector2D.createZero();
+	sweepMotion = Vector2D.createZero();
+    }
+
+    /**
+     * Creates a CircleVsCustomTimeOfImpactFinder
+     *
+     * @param circleCollider The circle collider whose motion is to be stopped at its first impact
+     * @param customCollider The custom collider that the circle collider should not pass through
+     * @param impactPenetration How deep the circle penetrates a line segment when stopped, must not be negative
+     * @param <T> The type of user data associated with each line segment
+     * @return The created CircleVsCustomTimeOfImpactFinder
+     */
+    public static <T> CircleVsCustomTimeOfImpactFinder<T> create(final CircleCollider circleCollider, final CustomCollider<T> customCollider,
+								 final double impactPenetration)
+    {
+	if (impactPenetration < 0 || impactPenetration >= circleCollider.getRadius()) {
+	    throw new IllegalArgumentException("Invalid impact penetration: " + impactPenetration);
+	}
+	return new CircleVsCustomTimeOfImpactFinder<>(circleCollider, customCollider, impactPenetration);
+    }
+
+    /**
+     * Creates a CircleVsCustomTimeOfImpactFinder that stops the circle at twice the penetration tolerated by
+     * default collision handling, or at half of the circle radius if the circle is that small
+     *
+     * @param circleCollider The circle collider whose motion is to be stopped at its first impact
+     * @param customCollider The custom collider that the circle collider should not pass through
+     * @param <T> The type of user data associated with each line segment
+     * @return The created CircleVsCustomTimeOfImpactFinder
+     */
+    public static <T> CircleVsCustomTimeOfImpactFinder<T> createWithDefaultConfig(final CircleCollider circleCollider,
+										 final CustomCollider<T> customCollider)
+    {
+	final double impactPenetration = Math.min(DEFAULT_IMPACT_PENETRATION, circleCollider.getRadius() / 2);
+	return create(circleCollider, customCollider, impactPenetration);
+    }
+
+    /**
+     * @return The body of the circle collider
+     */
+    @Override public Body getBody() {
+	return circleCollider.getBody();
+    }
+
+    /**
+     * Finds the fraction of the time step after which the circle first penetrates a line segment by the impact
+     * penetration, ignoring the line segments that it already penetrates that deep
+     *
+     * @param deltaTime The size of the time step
+     * @return The fraction of the time step, between 0 and 1, where 1 means that nothing is hit
+     */
+    @Override public double findTimeOfImpact(final double deltaTime) {
+	final Body circleBody = circleCollider.getBody();
+	if (circleBody.isAsleep()) {
+	    return 1;
+	}
+	final Body customBody = customCollider.getBody();
+	final Vector2D customVel = customBody.isAsleep() ? Vector2D.createZero() : customBody.getVel();
+	final double customAngularVel = customBody.isAsleep() ? 0 : customBody.getAngularVel();
+
+	// The circle's offset from the custom collider is moved linearly, and is rotated by the custom collider
+	final Vector2D relativeVel = circleBody.getVel().subtract(customVel);
+	final Vector2D startOffset = circleBody.getPos().subtract(customBody.getPos());
+	final Vector2D endOffset = startOffset.add(relativeVel.multiply(deltaTime));
+	final double startAngle = customBody.getAngle();
+	final double endAngle = startAngle + customAngularVel * deltaTime;
+
+	final Vector2D translation = customCollider.getShape().getTranslation();
+	final Vector2D start = startOffset.rotate(-startAngle).subtract(translation);
+	final Vector2D end = endOffset.rotate(-endAngle).subtract(translation);
+	final Vector2D motion = end.subtract(start);
+	sweepStart = start;
+	sweepMotion = motion;
+
+	// The acceleration along the curve is at most w^2 * |offset| + 2 * |w| * |v|, and a curve with bounded
+	// acceleration a strays at most a * t^2 / 8 from the straight line between its end points
+	final double maxOffsetDist = Math.max(startOffset.getMagnitude(), endOffset.getMagnitude());
+	final double maxAcceleration = customAngularVel * customAngularVel * maxOffsetDist +
+				       2 * Math.abs(customAngularVel) * relativeVel.getMagnitude();
+	final double maxCurveDist = maxAcceleration * deltaTime * deltaTime / 8;
+
+	final double motionDist = motion.getMagnitude();
+	if (motionDist + maxCurveDist <= impactPenetration) {
+	    return 1; // Too slow to penetrate any line segment much deeper than the impact penetration
+	}
+	final double sweptRadius = circleCollider.getRadius() - impactPenetration + maxCurveDist;
+	final double sweptRadiusSquared = sweptRadius * sweptRadius;
+
+	final double[] timeOfImpact = { 1 }; // Updated by the lambda below
+	final Vector2D middle = start.add(motion.getHalf());
+	customCollider.getShape().getShape().forEachSegmentNear(middle, motionDist / 2 + sweptRadius, segment -> {
+	    final boolean isInContact = segment.findClosestPointTo(start).getDistanceSquaredTo(start) <= sweptRadiusSquared;
+	    if (!isInContact) {
+		timeOfImpact[0] = Math.min(timeOfImpact[0], segment.findTimeOfImpact(start, motion, sweptRadius));
+	    }
+	});
+	return timeOfImpact[0];
+    }
+
+    /**
+     * Finds where the circle was relative to the custom collider at the time of impact, and where that is now that
+     * the custom collider has moved
+     *
+     * @param timeOfImpact The time of impact found for this time step
+     * @return The global position of the circle at the impact
+     */
+    @Override public Vector2D findPosAtImpact(final double timeOfImpact) {
+	final Vector2D shapePosAtImpact = sweepStart.add(sweepMotion.multiply(timeOfImpact));
+	final Vector2D colliderPosAtImpact = shapePosAtImpact.add(customCollider.getShape().getTranslation());
+	return customCollider.getBody().convertLocalToGlobalPoint(colliderPosAtImpact);
+    }
+}
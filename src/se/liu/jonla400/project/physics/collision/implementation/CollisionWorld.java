@@ -0,0 +1,276 @@
+package se.liu.jonla400.project.physics.collision.implementation;
+
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.collision.CollisionData;
+import se.liu.jonla400.project.physics.collision.CollisionDetector;
+import se.liu.jonla400.project.physics.collision.ContactKey;
+import se.liu.jonla400.project.physics.collision.Material;
+import se.liu.jonla400.project.physics.main.Body;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Represents a {@link CollisionDetector} that detects collisions between any number of
+ * {@link CircleCollider}s and {@link CustomCollider}s. Collisions are detected between
+ * circles and custom colliders as well as between pairs of circles, but not between pairs of
+ * custom colliders.
+ *
+ * Candidate pairs are found with a sweep and prune broadphase: every collider is enclosed by an
+ * axis-aligned box in global space, the boxes are sorted along the x-axis and only colliders whose
+ * boxes overlap are tested further. Since colliders move little between time steps, the boxes are
+ * kept in the order of the previous time step and re-sorted with insertion sort, which is close to
+ * linear for nearly sorted input.
+ *
+ * Collisions between a circle and a custom collider contain the user data of the line segment collided
+ * with, while collisions between circles all contain the same given user data.
+ *
+ * @param <T> The type of user data associated with each collision
+ */
+public class CollisionWorld<T> implements CollisionDetector<T>
+{
+    private Function<T, Material> materialProvider;
+    private Material circleVsCircleMaterial;
+    private T circleVsCircleUserData;
+
+    private List<Proxy> proxies;
+    private int nextProxyId;
+    // Cleared and refilled by each detection
+    private List<CollisionData<T>> collisions;
+
+    private CollisionWorld(final Function<T, Material> materialProvider, final Material circleVsCircleMaterial,
+			   final T circleVsCircleUserData)
+    {
+	this.materialProvider = materialProvider;
+	this.circleVsCircleMaterial = circleVsCircleMaterial;
+	this.circleVsCircleUserData = circleVsCircleUserData;
+	proxies = new ArrayList<>();
+	nextProxyId = 0;
+	collisions = new ArrayList<>();
+    }
+
+    /**
+     * Creates an empty CollisionWorld.
+     *
+     * @param materialProvider Provides the material of collisions between circles and line segments, given the
+     *                         user data of the line segment
+     * @param circleVsCircleMaterial The material of collisions between circles
+     * @param circleVsCircleUserData The user data of collisions between circles
+     * @param <T> The type of user data associated with each collision
+     * @return The created CollisionWorld
+     */
+    public static <T> CollisionWorld<T> create(final Function<T, Material> materialProvider, final Material circleVsCircleMaterial,
+					       final T circleVsCircleUserData)
+    {
+	return new CollisionWorld<>(materialProvider, circleVsCircleMaterial, circleVsCircleUserData);
+    }
+
+    /**
+     * Creates an empty CollisionWorld where every collision has the same default {@link Material}
+     *
+     * @param circleVsCircleUserData The user data of collisions between circles
+     * @param <T> The type of user data associated with each collision
+     * @return The created CollisionWorld
+     */
+    public static <T> CollisionWorld<T> createWithDefaultUniformMaterial(final T circleVsCircleUserData) {
+	final Material material = CircleVsCustomCollisionDetector.createDefaultMaterial();
+	return create(ignoredUserData -> material, material, circleVsCircleUserData);
+    }
+
+    /**
+     * @param circleCollider The circle collider to detect collisions for
+     */
+    public void addCircle(final CircleCollider circleCollider) {
+	proxies.add(new CircleProxy(nextProxyId, circleCollider));
+	nextProxyId++;
+    }
+
+    /**
+     * @param customCollider The custom collider to detect collisions for
+     */
+    public void addCustom(final CustomCollider<T> customCollider) {
+	proxies.add(new CustomProxy(nextProxyId, customCollider));
+	nextProxyId++;
+    }
+
+    /**
+     * Detects the collisions between every pair of circles as well as between every circle and every
+     * custom collider
+     *
+     * @return The list of {@link CollisionData}, which is reused by the next detection
+     */
+    @Override public List<CollisionData<T>> detectCollisions() {
+	collisions.clear();
+	for (int i = 0; i < proxies.size(); i++) {
+	    proxies.get(i).updateBounds();
+	}
+	sortProxiesByMinX();
+
+	for (int i = 0; i < proxies.size(); i++) {
+	    final Proxy proxy = proxies.get(i);
+	    // Every following proxy starts further to the right, so we can stop at the first one starting after this one ends
+	    for (int j = i + 1; j < proxies.size() && proxies.get(j).minX <= proxy.maxX; j++) {
+		final Proxy otherProxy = proxies.get(j);
+		if (proxy.overlapsY(otherProxy)) {
+		    proxy.detectCollisionsWith(otherProxy, collisions);
+		}
+	    }
+	}
+	return collisions;
+    }
+
+    private void sortProxiesByMinX() {
+	for (int i = 1; i < proxies.size(); i++) {
+	    final Proxy proxy = proxies.get(i);
+	    int j = i - 1;
+	    while (j >= 0 && proxies.get(j).minX > proxy.minX) {
+		proxies.set(j + 1, proxies.get(j));
+		j--;
+	    }
+	    proxies.set(j + 1, proxy);
+	}
+    }
+
+    private Optional<CollisionData<T>> detectCircleVsCircleCollision(final CircleCollider circleA, final CircleCollider circleB) {
+	final Body bodyA = circleA.getBody();
+	final Body bodyB = circleB.getBody();
+	final Vector2D offsetFromB = bodyA.getPos().subtract(bodyB.getPos());
+	final double dist = offsetFromB.getMagnitude();
+	if (dist == 0) {
+	    return Optional.empty(); // We don't want a division with zero
+	}
+	final double penetration = circleA.getRadius() + circleB.getRadius() - dist;
+	if (penetration < 0) {
+	    return Optional.empty();
+	}
+	final Vector2D normal = offsetFromB.divide(dist);
+	final Vector2D contactPointOffsetA = normal.multiply(-circleA.getRadius());
+	final Vector2D contactPointOffsetB = normal.multiply(circleB.getRadius());
+	return Optional.of(CollisionData.create(
+		bodyA, contactPointOffsetA, bodyB, contactPointOffsetB, normal, penetration, circleVsCircleMaterial,
+		circleVsCircleUserData, ContactKey.create(circleA, circleB, null)));
+    }
+
+    /**
+     * An axis-aligned box in global space enclosing a collider. The kind of narrowphase test to perform
+     * for a pair of proxies is chosen by letting the first proxy call back the second proxy with its own kind.
+     */
+    private abstract class Proxy
+    {
+	private int id;
+
+	private double minX = 0;
+	private double minY = 0;
+	private double maxX = 0;
+	private double maxY = 0;
+
+	private Proxy(final int id) {
+	    this.id = id;
+	}
+
+	protected int getId() {
+	    return id;
+	}
+
+	protected abstract void updateBounds();
+
+	protected void setBounds(final double minX, final double minY, final double maxX, final double maxY) {
+	    this.minX = minX;
+	    this.minY = minY;
+	    this.maxX = maxX;
+	    this.maxY = maxY;
+	}
+
+	private boolean overlapsY(final Proxy other) {
+	    return minY <= other.maxY && other.minY <= maxY;
+	}
+
+	protected abstract void detectCollisionsWith(Proxy other, Collection<CollisionData<T>> collisions);
+
+	protected abstract void detectCollisionsWithCircle(CircleProxy circle, Collection<CollisionData<T>> collisions);
+
+	protected abstract void detectCollisionsWithCustom(CustomProxy custom, Collection<CollisionData<T>> collisions);
+    }
+
+    private class CircleProxy extends Proxy
+    {
+	private CircleCollider collider;
+
+	private CircleProxy(final int id, final CircleCollider collider) {
+	    super(id);
+	    this.collider = collider;
+	}
+
+	@Override protected void updateBounds() {
+	    final Vector2D pos = collider.getBody().getPos();
+	    final double radius = collider.getRadius();
+	    setBounds(pos.getX() - radius, pos.getY() - radius, pos.getX() + radius, pos.getY() + radius);
+	}
+
+	@Override protected void detectCollisionsWith(final Proxy other, final Collection<CollisionData<T>> collisions) {
+	    other.detectCollisionsWithCircle(this, collisions);
+	}
+
+	@Override protected void detectCollisionsWithCircle(final CircleProxy circle, final Collection<CollisionData<T>> collisions) {
+	    // Keep the order of the circles independent of the sorting so that the contact is recognized across time steps
+	    final Optional<CollisionData<T>> collision;
+	    if (circle.getId() < getId()) {
+		collision = detectCircleVsCircleCollision(circle.collider, collider);
+	    } else {
+		collision = detectCircleVsCircleCollision(collider, circle.collider);
+	    }
+	    collision.ifPresent(collisions::add);
+	}
+
+	@Override protected void detectCollisionsWithCustom(final CustomProxy custom, final Collection<CollisionData<T>> collisions) {
+	    CircleVsCustomCollisionDetector.detectCollisions(collider, custom.collider, materialProvider, collisions);
+	}
+    }
+
+    private class CustomProxy extends Proxy
+    {
+	private CustomCollider<T> collider;
+
+	private CustomProxy(final int id, final CustomCollider<T> collider) {
+	    super(id);
+	    this.collider = collider;
+	}
+
+	@Override protected void updateBounds() {
+	    final TranslatedCustomShape<T> shape = collider.getShape();
+	    final Optional<RectangularRegion> localBounds = shape.getShape().getBoundingRegion();
+	    if (localBounds.isEmpty()) {
+		// An empty shape can not collide with anything
+		setBounds(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+		return;
+	    }
+
+	    // Enclose the rotated local box by a box in global space
+	    final Body body = collider.getBody();
+	    final Vector2D localCenter = localBounds.get().getCenter().add(shape.getTranslation());
+	    final Vector2D center = body.convertLocalToGlobalPoint(localCenter);
+	    final Vector2D localHalfSize = localBounds.get().getSize().multiply(0.5);
+	    final double cos = Math.abs(Math.cos(body.getAngle()));
+	    final double sin = Math.abs(Math.sin(body.getAngle()));
+	    final double halfWidth = cos * localHalfSize.getX() + sin * localHalfSize.getY();
+	    final double halfHeight = sin * localHalfSize.getX() + cos * localHalfSize.getY();
+	    setBounds(center.getX() - halfWidth, center.getY() - halfHeight, center.getX() + halfWidth, center.getY() + halfHeight);
+	}
+
+	@Override protected void detectCollisionsWith(final Proxy other, final Collection<CollisionData<T>> collisions) {
+	    other.detectCollisionsWithCustom(this, collisions);
+	}
+
+	@Override protected void detectCollisionsWithCircle(final CircleProxy circle, final Collection<CollisionData<T>> collisions) {
+	    CircleVsCustomCollisionDetector.detectCollisions(circle.collider, collider, materialProvider, collisions);
+	}
+
+	@Override protected void detectCollisionsWithCustom(final CustomProxy custom, final Collection<CollisionData<T>> collisions) {
+	    // Collisions between custom colliders are not supported
+	}
+    }
+}
@@ -1,23 +1,43 @@
 package se.liu.jonla400.project.physics.collision.implementation;
 
 import org.jetbrains.annotations.NotNull;
+import se.liu.jonla400.project.math.RectangularRegion;
+import se.liu.jonla400.project.math.Vector2D;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Represents a set of {@link LineSegment}s. Each line segment is associated with custom
  * user data.
  *
+ * A bounding volume hierarchy over the line segments is built once when the shape is created,
+ * so that the line segments near a point can be found without visiting every line segment.
+ * Since the shape never changes, the hierarchy never has to be rebuilt, even if the shape is
+ * attached to a moving and rotating body.
+ *
+ * A shape can also be given a distance field (see {@link #withDistanceField}), which finds the line segments
+ * near a point by looking up a single cell of a grid instead of traversing the hierarchy. It is only used for
+ * distances small enough, such as the radius of a ball colliding with the shape, and the hierarchy is used
+ * for the rest.
+ *
  * @param <T> The type of user data associated with each line segment
  */
 public class CustomShape<T> implements Iterable<LineSegment<T>>
 {
     private Collection<LineSegment<T>> lineSegments;
+    private LineSegmentTree<T> lineSegmentTree;
+    private Optional<SegmentDistanceField<T>> distanceField;
 
-    private CustomShape(final Collection<LineSegment<T>> lineSegments) {
+    private CustomShape(final Collection<LineSegment<T>> lineSegments, final LineSegmentTree<T> lineSegmentTree,
+			final Optional<SegmentDistanceField<T>> distanceField)
+    {
 	this.lineSegments = lineSegments;
+	this.lineSegmentTree = lineSegmentTree;
+	this.distanceField = distanceField;
     }
 
     /**
@@ -29,7 +49,83 @@ public class CustomShape<T> implements Iterable<LineSegment<T>>
      * @return The created CustomShape
      */
     public static <T> CustomShape<T> copyFrom(final Collection<LineSegment<T>> lineSegments) {
-	return new CustomShape<>(new ArrayList<>(lineSegments));
+	final Collection<LineSegment<T>> lineSegmentsCopy = new ArrayList<>(lineSegments);
+	return new CustomShape<>(lineSegmentsCopy, LineSegmentTree.build(lineSegmentsCopy), Optional.empty());
+    }
+
+    /**
+     * Creates a CustomShape with the same line segments as this shape, which also has a distance field over the
+     * line segments. The distance field answers {@link #forEachSegmentNear} for distances up to the given max
+     * distance in constant time, by looking up the cell of the point in a grid. The grid is memory bounded: if it
+     * would use more than the given number of bytes with the given cell size, larger cells are used instead. If it
+     * does not fit at all, or if this shape has no line segments, the created shape has no distance field.
+     *
+     * @param maxDist The largest distance that the distance field is to be used for, must be positive
+     * @param cellSize The preferred width and height of each cell of the grid, must be positive
+     * @param maxBytes The largest number of bytes that the distance field may use, must be positive
+     * @return The created CustomShape
+     */
+    public CustomShape<T> withDistanceField(final double maxDist, final double cellSize, final long maxBytes) {
+	if (lineSegments.isEmpty()) {
+	    return new CustomShape<>(lineSegments, lineSegmentTree, Optional.empty());
+	}
+	final Optional<SegmentDistanceField<T>> field = SegmentDistanceField.build(lineSegments, maxDist, cellSize, maxBytes);
+	return new CustomShape<>(lineSegments, lineSegmentTree, field);
+    }
+
+    /**
+     * @return Whether this shape has a distance field, see {@link #withDistanceField}
+     */
+    public boolean hasDistanceField() {
+	return distanceField.isPresent();
+    }
+
+    /**
+     * @return The smallest region enclosing every line segment, or nothing if this shape has no line segments
+     */
+    public Optional<RectangularRegion> getBoundingRegion() {
+	if (lineSegmentTree.isEmpty()) {
+	    return Optional.empty();
+	}
+	return Optional.of(RectangularRegion.createFromCorners(
+		Vector2D.createCartesian(lineSegmentTree.getMinX(), lineSegmentTree.getMinY()),
+		Vector2D.createCartesian(lineSegmentTree.getMaxX(), lineSegmentTree.getMaxY())));
+    }
+
+    /**
+     * Performs the given action for each line segment that may be within the given distance from
+     * the given point. Every line segment within the distance is guaranteed to be included, but line
+     * segments slightly further away may be included as well.
+     *
+     * The line segments are found through the distance field if this shape has one that covers the distance,
+     * and through the bounding volume hierarchy otherwise.
+     *
+     * @param point The point
+     * @param maxDist The distance from the point
+     * @param action The action to perform for each line segment
+     */
+    public void forEachSegmentNear(final Vector2D point, final double maxDist, final Consumer<? super LineSegment<T>> action) {
+	final double x = point.getX();
+	final double y = point.getY();
+	if (distanceField.isPresent() && maxDist <= distanceField.get().getMaxQueryDist()) {
+	    distanceField.get().forEachSegmentNear(x, y, maxDist, action);
+	    return;
+	}
+	lineSegmentTree.forEachOverlapping(x - maxDist, y - maxDist, x + maxDist, y + maxDist, action);
+    }
+
+    /**
+     * Performs the given action for each line segment that may overlap the given region. Every line
+     * segment overlapping the region is guaranteed to be included, but line segments slightly outside
+     * of it may be included as well.
+     *
+     * @param region The region
+     * @param action The action to perform for each line segment
+     */
+    public void forEachSegmentIn(final RectangularRegion region, final Consumer<? super LineSegment<T>> action) {
+	final Vector2D bottomLeft = region.getBottomLeft();
+	final Vector2D topRight = bottomLeft.add(region.getSize());
+	lineSegmentTree.forEachOverlapping(bottomLeft.getX(), bottomLeft.getY(), topRight.getX(), topRight.getY(), action);
     }
 
     /**
@@ -78,6 +78,34 @@ public class LineSegment<T> implements ClosestPointFinder
 	return end.copy();
     }
 
+    /**
+     * @return The smallest x-coordinate of this line segment
+     */
+    public double getMinX() {
+	return Math.min(start.getX(), end.getX());
+    }
+
+    /**
+     * @return The smallest y-coordinate of this line segment
+     */
+    public double getMinY() {
+	return Math.min(start.getY(), end.getY());
+    }
+
+    /**
+     * @return The largest x-coordinate of this line segment
+     */
+    public double getMaxX() {
+	return Math.max(start.getX(), end.getX());
+    }
+
+    /**
+     * @return The largest y-coordinate of this line segment
+     */
+    public double getMaxY() {
+	return Math.max(start.getY(), end.getY());
+    }
+
     /**
      * @return The user data
      */
@@ -96,4 +124,58 @@ public class LineSegment<T> implements ClosestPointFinder
 	final double closestTangentPos = new Interval(tangentStart, tangentEnd).clamp(tangentPos);
 	return tangent.multiply(closestTangentPos).add(normal.multiply(normalPos));
     }
+
+    /**
+     * Finds when a circle moving along a straight line first touches this line segment. The circle is
+     * expected not to touch this line segment at the start of the motion.
+     *
+     * @param start The center of the circle at the start of the motion
+     * @param motion The displacement of the center of the circle during the motion
+     * @param radius The radius of the circle
+     * @return The fraction of the motion, between 0 and 1, after which the circle first touches this line segment,
+     *         or positive infinity if it does not touch this line segment during the motion
+     */
+    public double findTimeOfImpact(final Vector2D start, final Vector2D motion, final double radius) {
+	// The circle touches the line segment when its center enters the capsule around the line segment. The
+	// capsule is a rectangle along the sides of the line segment and a circle around each end point.
+	double timeOfImpact = Double.POSITIVE_INFINITY;
+
+	final double startNormalPos = normal.dot(start) - normalPos;
+	final double approach = -Math.signum(startNormalPos) * normal.dot(motion);
+	final double gap = Math.abs(startNormalPos) - radius;
+	if (gap >= 0 && approach > 0 && gap <= approach) {
+	    final double sideTimeOfImpact = gap / approach;
+	    final double tangentPos = tangent.dot(start) + sideTimeOfImpact * tangent.dot(motion);
+	    if (tangentPos >= tangentStart && tangentPos <= tangentEnd) {
+		timeOfImpact = sideTimeOfImpact;
+	    }
+	}
+	timeOfImpact = Math.min(timeOfImpact, findTimeOfImpactWithPoint(start, motion, radius, this.start));
+	return Math.min(timeOfImpact, findTimeOfImpactWithPoint(start, motion, radius, end));
+    }
+
+    /**
+     * Finds when a moving circle first touches the given point by solving |start + t * motion - point| = radius
+     */
+    private static double findTimeOfImpactWithPoint(final Vector2D start, final Vector2D motion, final double radius,
+						    final Vector2D point)
+    {
+	final double offsetX = start.getX() - point.getX();
+	final double offsetY = start.getY() - point.getY();
+	final double a = motion.getMagnitudeSquared();
+	final double halfB = offsetX * motion.getX() + offsetY * motion.getY();
+	final double c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+	if (c <= 0) {
+	    return 0; // Already touching
+	}
+	if (halfB >= 0) {
+	    return Double.POSITIVE_INFINITY; // Not moving towards the point
+	}
+	final double discriminant = halfB * halfB - a * c;
+	if (discriminant < 0) {
+	    return Double.POSITIVE_INFINITY; // Passing by the point
+	}
+	final double timeOfImpact = (-halfB - Math.sqrt(discriminant)) / a;
+	return timeOfImpact <= 1 ? timeOfImpact : Double.POSITIVE_INFINITY;
+    }
 }
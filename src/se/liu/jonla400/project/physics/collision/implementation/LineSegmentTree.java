@@ -0,0 +1,223 @@
+package se.liu.jonla400.project.physics.collision.implementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Represents a bounding volume hierarchy over a fixed set of {@link LineSegment}s. Each node
+ * of the tree has an axis-aligned bounding box that encloses all line segments below it, which
+ * makes it possible to find the line segments overlapping a box without visiting every line segment.
+ *
+ * The tree is built once and is never changed. The nodes are stored in parallel arrays, and the
+ * line segments are ordered so that the line segments of each leaf are stored contiguously.
+ *
+ * @param <T> The type of user data associated with each line segment
+ */
+class LineSegmentTree<T>
+{
+    private final static int MAX_SEGMENTS_PER_LEAF = 4;
+    private final static int NO_NODE = -1;
+
+    private List<LineSegment<T>> segments;
+
+    private double[] minX;
+    private double[] minY;
+    private double[] maxX;
+    private double[] maxY;
+
+    // For inner nodes, the indices of the two children. For leaves, the range of line segments.
+    private int[] leftChild;
+    private int[] rightChild;
+    private int[] segmentStart;
+    private int[] segmentEnd;
+
+    private int nodeCount;
+    private int root;
+
+    private LineSegmentTree(final List<LineSegment<T>> segments) {
+	this.segments = segments;
+	// A binary tree with at least one line segment per leaf never has more than 2n - 1 nodes
+	final int maxNodeCount = Math.max(1, 2 * segments.size() - 1);
+	minX = new double[maxNodeCount];
+	minY = new double[maxNodeCount];
+	maxX = new double[maxNodeCount];
+	maxY = new double[maxNodeCount];
+	leftChild = new int[maxNodeCount];
+	rightChild = new int[maxNodeCount];
+	segmentStart = new int[maxNodeCount];
+	segmentEnd = new int[maxNodeCount];
+	nodeCount = 0;
+	root = NO_NODE;
+    }
+
+    /**
+     * Builds a LineSegmentTree over the given line segments. No reference is kept to the input collection.
+     *
+     * @param segments The line segments
+     * @param <T> The type of user data associated with each line segment
+     * @return The built tree
+     */
+    static <T> LineSegmentTree<T> build(final Collection<LineSegment<T>> segments) {
+	final LineSegmentTree<T> tree = new LineSegmentTree<>(new ArrayList<>(segments));
+	if (!segments.isEmpty()) {
+	    tree.root = tree.buildNode(0, segments.size());
+	}
+	return tree;
+    }
+
+    private int buildNode(final int start, final int end) {
+	final int node = nodeCount;
+	nodeCount++;
+	encloseSegments(node, start, end);
+
+	if (end - start <= MAX_SEGMENTS_PER_LEAF) {
+	    makeLeaf(node, start, end);
+	    return node;
+	}
+
+	// Split the line segments in two halves along the axis where their centers are the most spread out
+	final List<LineSegment<T>> nodeSegments = segments.subList(start, end);
+	if (getCenterSpreadX(nodeSegments) >= getCenterSpreadY(nodeSegments)) {
+	    nodeSegments.sort(Comparator.comparingDouble(LineSegmentTree::getCenterX));
+	} else {
+	    nodeSegments.sort(Comparator.comparingDouble(LineSegmentTree::getCenterY));
+	}
+	final int middle = (start + end) / 2;
+	leftChild[node] = buildNode(start, middle);
+	rightChild[node] = buildNode(middle, end);
+	segmentStart[node] = 0;
+	segmentEnd[node] = 0;
+	return node;
+    }
+
+    private void makeLeaf(final int node, final int start, final int end) {
+	leftChild[node] = NO_NODE;
+	rightChild[node] = NO_NODE;
+	segmentStart[node] = start;
+	segmentEnd[node] = end;
+    }
+
+    private void encloseSegments(final int node, final int start, final int end) {
+	minX[node] = Double.POSITIVE_INFINITY;
+	minY[node] = Double.POSITIVE_INFINITY;
+	maxX[node] = Double.NEGATIVE_INFINITY;
+	maxY[node] = Double.NEGATIVE_INFINITY;
+	for (int i = start; i < end; i++) {
+	    final LineSegment<T> segment = segments.get(i);
+	    minX[node] = Math.min(minX[node], segment.getMinX());
+	    minY[node] = Math.min(minY[node], segment.getMinY());
+	    maxX[node] = Math.max(maxX[node], segment.getMaxX());
+	    maxY[node] = Math.max(maxY[node], segment.getMaxY());
+	}
+    }
+
+    private static double getCenterSpreadX(final List<? extends LineSegment<?>> segments) {
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+	for (LineSegment<?> segment : segments) {
+	    min = Math.min(min, getCenterX(segment));
+	    max = Math.max(max, getCenterX(segment));
+	}
+	return max - min;
+    }
+
+    private static double getCenterSpreadY(final List<? extends LineSegment<?>> segments) {
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+	for (LineSegment<?> segment : segments) {
+	    min = Math.min(min, getCenterY(segment));
+	    max = Math.max(max, getCenterY(segment));
+	}
+	return max - min;
+    }
+
+    private static double getCenterX(final LineSegment<?> segment) {
+	return (segment.getMinX() + segment.getMaxX()) / 2;
+    }
+
+    private static double getCenterY(final LineSegment<?> segment) {
+	return (segment.getMinY() + segment.getMaxY()) / 2;
+    }
+
+    /**
+     * @return Whether this tree contains no line segments
+     */
+    boolean isEmpty() {
+	return root == NO_NODE;
+    }
+
+    /**
+     * @return The smallest x-coordinate of all line segments, or positive infinity if the tree is empty
+     */
+    double getMinX() {
+	return isEmpty() ? Double.POSITIVE_INFINITY : minX[root];
+    }
+
+    /**
+     * @return The smallest y-coordinate of all line segments, or positive infinity if the tree is empty
+     */
+    double getMinY() {
+	return isEmpty() ? Double.POSITIVE_INFINITY : minY[root];
+    }
+
+    /**
+     * @return The largest x-coordinate of all line segments, or negative infinity if the tree is empty
+     */
+    double getMaxX() {
+	return isEmpty() ? Double.NEGATIVE_INFINITY : maxX[root];
+    }
+
+    /**
+     * @return The largest y-coordinate of all line segments, or negative infinity if the tree is empty
+     */
+    double getMaxY() {
+	return isEmpty() ? Double.NEGATIVE_INFINITY : maxY[root];
+    }
+
+    /**
+     * Performs the given action for each line segment whose bounding box overlaps the given box.
+     * Line segments that merely touch the box are included.
+     *
+     * @param boxMinX The smallest x-coordinate of the box
+     * @param boxMinY The smallest y-coordinate of the box
+     * @param boxMaxX The largest x-coordinate of the box
+     * @param boxMaxY The largest y-coordinate of the box
+     * @param action The action to perform for each overlapping line segment
+     */
+    void forEachOverlapping(final double boxMinX, final double boxMinY, final double boxMaxX, final double boxMaxY,
+			    final Consumer<? super LineSegment<T>> action)
+    {
+	if (root != NO_NODE) {
+	    forEachOverlapping(root, boxMinX, boxMinY, boxMaxX, boxMaxY, action);
+	}
+    }
+
+    private void forEachOverlapping(final int node, final double boxMinX, final double boxMinY, final double boxMaxX,
+				    final double boxMaxY, final Consumer<? super LineSegment<T>> action)
+    {
+	if (boxMaxX < minX[node] || boxMinX > maxX[node] || boxMaxY < minY[node] || boxMinY > maxY[node]) {
+	    return;
+	}
+	if (leftChild[node] == NO_NODE) {
+	    for (int i = segmentStart[node]; i < segmentEnd[node]; i++) {
+		final LineSegment<T> segment = segments.get(i);
+		if (overlapsSegmentBox(segment, boxMinX, boxMinY, boxMaxX, boxMaxY)) {
+		    action.accept(segment);
+		}
+	    }
+	    return;
+	}
+	forEachOverlapping(leftChild[node], boxMinX, boxMinY, boxMaxX, boxMaxY, action);
+	forEachOverlapping(rightChild[node], boxMinX, boxMinY, boxMaxX, boxMaxY, action);
+    }
+
+    private static boolean overlapsSegmentBox(final LineSegment<?> segment, final double boxMinX, final double boxMinY,
+					      final double boxMaxX, final double boxMaxY)
+    {
+	return boxMaxX >= segment.getMinX() && boxMinX <= segment.getMaxX() &&
+	       boxMaxY >= segment.getMinY() && boxMinY <= segment.getMaxY();
+    }
+}
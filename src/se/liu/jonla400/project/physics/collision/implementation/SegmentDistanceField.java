@@ -0,0 +1,267 @@
+package se.liu.jonla400.project.physics.collision.implementation;
+
+import se.liu.jonla400.project.math.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Represents a distance field sampled over a fixed set of {@link LineSegment}s, which answers the question of
+ * which line segments are near a point by looking up a single cell of a uniform grid.
+ *
+ * Each cell stores a lower bound of the distance from its center to the nearest line segment, and the line
+ * segments that are near enough the cell to be within the max query distance of some point in it. The distances
+ * are only computed within this narrow band around the line segments. A cell further away than the band has no
+ * line segments and an infinite distance, and the grid only covers the bounds of the line segments expanded by
+ * the band, since there is nothing to find beyond that.
+ *
+ * A query with a distance larger than the max query distance can not be answered by the field, and must be
+ * answered by other means (see {@link LineSegmentTree}).
+ *
+ * The grid is stored in flat arrays. The line segments of each cell are stored contiguously in one array of
+ * line segment indices, in the same way as a compressed sparse row matrix.
+ *
+ * @param <T> The type of user data associated with each line segment
+ */
+class SegmentDistanceField<T>
+{
+    // The distances of the cells, the offsets into the candidates and the candidates are all four bytes each
+    private final static long BYTES_PER_CELL = 2 * Integer.BYTES;
+    private final static long BYTES_PER_CANDIDATE = Integer.BYTES;
+
+    private List<LineSegment<T>> segments;
+
+    private double maxQueryDist;
+    private double originX;
+    private double originY;
+    private double cellSize;
+    private double halfCellDiagonal;
+    private int columnCount;
+    private int rowCount;
+
+    private float[] cellDists;
+    // The candidates of cell i are the line segments at the indices candidates[candidateStart[i]..candidateStart[i + 1]]
+    private int[] candidateStart;
+    private int[] candidates;
+
+    private SegmentDistanceField(final List<LineSegment<T>> segments, final double maxQueryDist, final double originX,
+				 final double originY, final double cellSize, final int columnCount, final int rowCount)
+    {
+	this.segments = segments;
+	this.maxQueryDist = maxQueryDist;
+	this.originX = originX;
+	this.originY = originY;
+	this.cellSize = cellSize;
+	this.columnCount = columnCount;
+	this.rowCount = rowCount;
+	halfCellDiagonal = cellSize * Math.sqrt(2) / 2;
+	cellDists = null;
+	candidateStart = null;
+	candidates = null;
+    }
+
+    /**
+     * Builds a SegmentDistanceField over the given line segments, which must not be empty. No reference is kept
+     * to the input collection.
+     *
+     * The cells are made as small as the given cell size if the field then fits in the given number of bytes.
+     * Otherwise, the cells are made larger until it does. Larger cells mean more line segments per cell to test.
+     *
+     * @param segments The line segments
+     * @param maxQueryDist The largest distance that the field can be queried with, must be positive
+     * @param cellSize The preferred width and height of each cell, must be positive
+     * @param maxBytes The largest number of bytes that the field may use, not counting the line segments
+     * @param <T> The type of user data associated with each line segment
+     * @return The built field, or nothing if the field would not fit in the given number of bytes no matter the
+     * 	       cell size
+     */
+    static <T> Optional<SegmentDistanceField<T>> build(final Collection<LineSegment<T>> segments, final double maxQueryDist,
+							final double cellSize, final long maxBytes)
+    {
+	if (segments.isEmpty()) {
+	    throw new IllegalArgumentException("Cannot build a distance field without line segments");
+	}
+	if (!(maxQueryDist > 0) || Double.isInfinite(maxQueryDist)) {
+	    throw new IllegalArgumentException("Invalid max query distance: " + maxQueryDist);
+	}
+	if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+	    throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+	}
+	if (maxBytes <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of bytes: " + maxBytes);
+	}
+	final List<LineSegment<T>> segmentsCopy = new ArrayList<>(segments);
+
+	double minX = Double.POSITIVE_INFINITY;
+	double minY = Double.POSITIVE_INFINITY;
+	double maxX = Double.NEGATIVE_INFINITY;
+	double maxY = Double.NEGATIVE_INFINITY;
+	for (LineSegment<T> segment : segmentsCopy) {
+	    minX = Math.min(minX, segment.getMinX());
+	    minY = Math.min(minY, segment.getMinY());
+	    maxX = Math.max(maxX, segment.getMaxX());
+	    maxY = Math.max(maxY, segment.getMaxY());
+	}
+	final double originX = minX - maxQueryDist;
+	final double originY = minY - maxQueryDist;
+	final double width = maxX - minX + 2 * maxQueryDist;
+	final double height = maxY - minY + 2 * maxQueryDist;
+
+	double currentCellSize = cellSize;
+	while (true) {
+	    final long columnCount = (long) Math.floor(width / currentCellSize) + 1;
+	    final long rowCount = (long) Math.floor(height / currentCellSize) + 1;
+	    final long cellCount = columnCount * rowCount;
+	    if (cellCount * BYTES_PER_CELL > maxBytes || cellCount >= Integer.MAX_VALUE) {
+		if (cellCount == 1) {
+		    return Optional.empty();
+		}
+		// Grow the cells enough to roughly fit the budget at once
+		final double budgetRatio = (double) cellCount * BYTES_PER_CELL / Math.min(maxBytes, Integer.MAX_VALUE);
+		currentCellSize *= Math.max(2, Math.sqrt(budgetRatio));
+		continue;
+	    }
+
+	    final SegmentDistanceField<T> field = new SegmentDistanceField<>(
+		    segmentsCopy, maxQueryDist, originX, originY, currentCellSize, (int) columnCount, (int) rowCount);
+	    final long candidateCount = field.countCandidates();
+	    final long byteCount = cellCount * BYTES_PER_CELL + candidateCount * BYTES_PER_CANDIDATE;
+	    if (byteCount <= maxBytes && candidateCount < Integer.MAX_VALUE) {
+		field.fillCandidates((int) candidateCount);
+		return Optional.of(field);
+	    }
+	    if (cellCount == 1) {
+		return Optional.empty();
+	    }
+	    // Larger cells need fewer candidates in total, since a line segment is then a candidate of fewer cells
+	    currentCellSize *= 2;
+	}
+    }
+
+    /**
+     * Computes the distances of the cells, and counts the candidates of each cell into the candidate offsets
+     *
+     * @return The total number of candidates
+     */
+    private long countCandidates() {
+	final int cellCount = columnCount * rowCount;
+	cellDists = new float[cellCount];
+	Arrays.fill(cellDists, Float.POSITIVE_INFINITY);
+	candidateStart = new int[cellCount + 1];
+	for (int i = 0; i < segments.size(); i++) {
+	    forEachCandidateCell(i, (cell, dist) -> {
+		cellDists[cell] = Math.min(cellDists[cell], roundDown(dist));
+		candidateStart[cell + 1]++;
+	    });
+	}
+
+	long total = 0;
+	for (int cell = 0; cell < cellCount; cell++) {
+	    total += candidateStart[cell + 1];
+	    candidateStart[cell + 1] = (int) Math.min(total, Integer.MAX_VALUE);
+	}
+	return total;
+    }
+
+    private void fillCandidates(final int candidateCount) {
+	candidates = new int[candidateCount];
+	final int[] nextCandidate = Arrays.copyOf(candidateStart, candidateStart.length - 1);
+	for (int i = 0; i < segments.size(); i++) {
+	    final int segmentIndex = i;
+	    forEachCandidateCell(i, (cell, dist) -> {
+		candidates[nextCandidate[cell]] = segmentIndex;
+		nextCandidate[cell]++;
+	    });
+	}
+    }
+
+    /**
+     * Performs the given action for each cell that the line segment at the given index is a candidate of, that is,
+     * each cell whose center is within the max query distance plus half the cell diagonal from the line segment
+     */
+    private void forEachCandidateCell(final int segmentIndex, final CellAction action) {
+	final LineSegment<T> segment = segments.get(segmentIndex);
+	final double reach = maxQueryDist + halfCellDiagonal;
+	final int minColumn = Math.max(0, getColumnOf(segment.getMinX() - reach));
+	final int maxColumn = Math.min(columnCount - 1, getColumnOf(segment.getMaxX() + reach));
+	final int minRow = Math.max(0, getRowOf(segment.getMinY() - reach));
+	final int maxRow = Math.min(rowCount - 1, getRowOf(segment.getMaxY() + reach));
+	for (int row = minRow; row <= maxRow; row++) {
+	    for (int column = minColumn; column <= maxColumn; column++) {
+		final Vector2D cellCenter = Vector2D.createCartesian(
+			originX + (column + 0.5) * cellSize, originY + (row + 0.5) * cellSize);
+		final double dist = segment.findClosestPointTo(cellCenter).subtract(cellCenter).getMagnitude();
+		if (dist <= reach) {
+		    action.apply(row * columnCount + column, dist);
+		}
+	    }
+	}
+    }
+
+    private int getColumnOf(final double x) {
+	return (int) Math.floor((x - originX) / cellSize);
+    }
+
+    private int getRowOf(final double y) {
+	return (int) Math.floor((y - originY) / cellSize);
+    }
+
+    /**
+     * @return The largest float not larger than the given value, so that the stored distances stay lower bounds
+     */
+    private static float roundDown(final double value) {
+	final float rounded = (float) value;
+	return rounded > value ? Math.nextDown(rounded) : rounded;
+    }
+
+    /**
+     * @return The largest distance that this field can be queried with
+     */
+    double getMaxQueryDist() {
+	return maxQueryDist;
+    }
+
+    /**
+     * Performs the given action for each line segment that may be within the given distance from the given point,
+     * which must not be larger than the max query distance. Every line segment within the distance is guaranteed
+     * to be included. Of the line segments further away, only those whose bounding box overlaps the box around the
+     * point, and which are near enough the cell of the point, are included.
+     *
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param maxDist The distance from the point
+     * @param action The action to perform for each line segment
+     */
+    void forEachSegmentNear(final double x, final double y, final double maxDist, final Consumer<? super LineSegment<T>> action) {
+	if (maxDist > maxQueryDist) {
+	    throw new IllegalArgumentException("The distance " + maxDist + " is larger than the max query distance " + maxQueryDist);
+	}
+	final double column = Math.floor((x - originX) / cellSize);
+	final double row = Math.floor((y - originY) / cellSize);
+	if (!(column >= 0 && column < columnCount && row >= 0 && row < rowCount)) {
+	    return; // Beyond the band around every line segment (or not a number)
+	}
+	final int cell = (int) row * columnCount + (int) column;
+	// No point of the cell is closer to a line segment than the distance of its center minus half its diagonal
+	if (cellDists[cell] - halfCellDiagonal > maxDist) {
+	    return;
+	}
+	for (int i = candidateStart[cell]; i < candidateStart[cell + 1]; i++) {
+	    final LineSegment<T> segment = segments.get(candidates[i]);
+	    if (x + maxDist >= segment.getMinX() && x - maxDist <= segment.getMaxX() &&
+		y + maxDist >= segment.getMinY() && y - maxDist <= segment.getMaxY()) {
+		action.accept(segment);
+	    }
+	}
+    }
+
+    @FunctionalInterface
+    private interface CellAction
+    {
+	void apply(int cell, double dist);
+    }
+}
@@ -16,7 +16,27 @@ public class ActiveImpulse1D
      * Creates an ActiveImpulse1D initially set to 0
      */
     public ActiveImpulse1D() {
-	impulse = 0;
+	this(0);
+    }
+
+    /**
+     * Creates an ActiveImpulse1D initially set to the given impulse. This is useful for continuing
+     * from the impulse of an earlier time step (warm starting).
+     *
+     * @param initImpulse The initial impulse
+     */
+    public ActiveImpulse1D(final double initImpulse) {
+	impulse = initImpulse;
+    }
+
+    /**
+     * Sets the current impulse without applying anything, for example to start over from 0 when the
+     * impulse is reused for a new time step
+     *
+     * @param impulse The new current impulse
+     */
+    public void set(final double impulse) {
+	this.impulse = impulse;
     }
 
     /**
@@ -46,4 +66,26 @@ public class ActiveImpulse1D
 
 	return deltaImpulse;
     }
+
+    /**
+     * Updates the current impulse by trying to reach the given targeted change in velocity.
+     * The total impulse is however limited to be between the minimum and maximum impulse.
+     * This method returns the change of the total impulse. Unlike
+     * {@link #update(double, double, Interval)}, no {@link Interval} has to be created.
+     *
+     * @param targetDeltaVel The target delta velocity of the "1D system"
+     * @param mass The mass of the "1D system"
+     * @param minImpulse The smallest allowed total impulse
+     * @param maxImpulse The largest allowed total impulse, must not be smaller than the minimum impulse
+     * @return The change of current impulse
+     */
+    public double update(final double targetDeltaVel, final double mass, final double minImpulse, final double maxImpulse) {
+	final double targetImpulse = impulse + targetDeltaVel * mass;
+
+	final double nextImpulse = Math.max(minImpulse, Math.min(targetImpulse, maxImpulse));
+	final double deltaImpulse = nextImpulse - impulse;
+	impulse = nextImpulse;
+
+	return deltaImpulse;
+    }
 }
@@ -1,16 +1,46 @@
 package se.liu.jonla400.project.physics.constraint;
 
+import se.liu.jonla400.project.physics.main.Body;
+
+import java.util.function.Consumer;
+
 /**
  * Represents an active velocity constraint of one or more
  * {@link se.liu.jonla400.project.physics.main.Body} objects before a time step occurs.
  * An active velocity constraint keeps track of the current impulse(s) being applied, and
  * can update the impulse on demand according to the current velocities of the involved bodies.
+ *
+ * An active velocity constraint also tells which bodies it involves. Constraints that involve
+ * no common bodies are independent of each other, and can thus be solved separately (for example
+ * in parallel).
  */
 public interface ActiveVelocityConstraint
 {
     /**
      * Updates the impulse(s) currently applied to the bodies to try to satisfy
-     * this constraint
+     * this constraint. The returned change tells how far from converged the constraint was,
+     * a change of 0 meaning that the constraint was already satisfied.
+     *
+     * @return The largest absolute change of any impulse applied by this update
+     */
+    double updateImpulse();
+
+    /**
+     * Performs the given action for each body that this constraint applies impulses to or
+     * depends on the velocity of
+     *
+     * @param action The action to perform for each body
+     */
+    void forEachBody(Consumer<Body> action);
+
+    /**
+     * Performs the given action for each of the smallest constraints that this constraint consists of,
+     * which can be solved one-by-one in the same order instead of this constraint. A constraint that can not
+     * be split up performs the action on itself.
+     *
+     * @param action The action to perform for each constraint
      */
-    void updateImpulse();
+    default void forEachLeaf(final Consumer<ActiveVelocityConstraint> action) {
+	action.accept(this);
+    }
 }
@@ -1,24 +1,45 @@
 package se.liu.jonla400.project.physics.constraint;
 
+import se.liu.jonla400.project.physics.main.Body;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Represents a list of {@link ActiveVelocityConstraint}s that can be solved one-by-one.
  * Optionally an iteration count can be set, describing how many times to solve each
  * constraint one-by-one each time this whole list is attempted to be solved. The more iterations,
  * the more likely it is that the constraints will converge to a global solution.
+ *
+ * Optionally a tolerance can also be set, in which case the iteration count is only the maximum.
+ * The iterations then stop early as soon as no impulse changed by more than the tolerance during
+ * an iteration, which means that the constraints have converged. The number of iterations performed
+ * and the largest change of the last iteration (the residual) can be retrieved afterwards.
+ *
+ * A list is usually created from a copy of its sub constraints. A view of a list of sub constraints can be
+ * created instead, which lets a {@link VelocityConstrainer} refill the same list and return the same view every
+ * time step, rather than creating a new list each time step.
  */
 public class ActiveVelocityConstraintList implements ActiveVelocityConstraint
 {
     private List<ActiveVelocityConstraint> subConstraints;
-    private int iterations;
+    private int maxIterations;
+    private double tolerance;
+
+    private int lastIterationCount;
+    private double lastResidual;
 
-    private ActiveVelocityConstraintList(final List<ActiveVelocityConstraint> subConstraints, final int iterations) {
+    private ActiveVelocityConstraintList(final List<ActiveVelocityConstraint> subConstraints, final int maxIterations,
+					 final double tolerance)
+    {
 	this.subConstraints = subConstraints;
-	this.iterations = iterations;
+	this.maxIterations = maxIterations;
+	this.tolerance = tolerance;
+	lastIterationCount = 0;
+	lastResidual = 0;
     }
 
     /**
@@ -30,7 +51,24 @@ public class ActiveVelocityConstraintList implements ActiveVelocityConstraint
      * @return The created ActiveVelocityConstraintList
      */
     public static ActiveVelocityConstraintList create(final Collection<ActiveVelocityConstraint> subConstraints, final int iterations) {
-	return new ActiveVelocityConstraintList(new ArrayList<>(subConstraints), iterations);
+	// No change of impulse is smaller than 0, so every iteration is always performed
+	return createWithTolerance(subConstraints, iterations, 0);
+    }
+
+    /**
+     * Creates an ActiveVelocityConstraintList of the given constraints that stops iterating as soon as no impulse
+     * changed by more than the given tolerance during an iteration, but never performs more than the given
+     * maximum number of iterations. No reference is kept to the given collection of sub constraints.
+     *
+     * @param subConstraints The constraints to fill the list with, in the order of the collection's iterator
+     * @param maxIterations The largest number of times the constraints are solved one after the other
+     * @param tolerance The largest change of impulse during an iteration that is considered converged
+     * @return The created ActiveVelocityConstraintList
+     */
+    public static ActiveVelocityConstraintList createWithTolerance(final Collection<ActiveVelocityConstraint> subConstraints,
+								   final int maxIterations, final double tolerance)
+    {
+	return new ActiveVelocityConstraintList(new ArrayList<>(subConstraints), maxIterations, tolerance);
     }
 
     /**
@@ -55,13 +93,126 @@ public class ActiveVelocityConstraintList implements ActiveVelocityConstraint
 	return createWithSingleIteration(Arrays.asList(subConstraints));
     }
 
+    /**
+     * Creates an ActiveVelocityConstraintList that is a view of the given list of sub constraints, like
+     * {@link #createWithTolerance(Collection, int, double)} but without copying the list. Changes of the given list
+     * are thus seen by the created list, which must not be solved while the given list is being changed.
+     *
+     * @param subConstraints The list of sub constraints to view, which should be a random access list
+     * @param maxIterations The largest number of times the constraints are solved one after the other
+     * @param tolerance The largest change of impulse during an iteration that is considered converged
+     * @return The created ActiveVelocityConstraintList
+     */
+    public static ActiveVelocityConstraintList createViewWithTolerance(final List<ActiveVelocityConstraint> subConstraints,
+								       final int maxIterations, final double tolerance)
+    {
+	return new ActiveVelocityConstraintList(subConstraints, maxIterations, tolerance);
+    }
+
+    /**
+     * Creates an ActiveVelocityConstraintList that is a view of the given list of sub constraints, and that goes
+     * through each sub constraint once when attempted to be solved, see
+     * {@link #createViewWithTolerance(List, int, double)}
+     *
+     * @param subConstraints The list of sub constraints to view, which should be a random access list
+     * @return The created ActiveVelocityConstraintList
+     */
+    public static ActiveVelocityConstraintList createViewWithSingleIteration(final List<ActiveVelocityConstraint> subConstraints) {
+	// No change of impulse is smaller than 0, so the single iteration is always performed
+	return createViewWithTolerance(subConstraints, 1, 0);
+    }
+
     /**
      * Goes through each sub constraint and solves it individually. Does this for the given number
-     * of iterations
+     * of iterations, or until the largest change of impulse during an iteration is smaller than the tolerance.
+     *
+     * @return The largest absolute change of any impulse during all iterations
+     */
+    @Override public double updateImpulse() {
+	double maxDeltaImpulse = 0;
+	lastIterationCount = 0;
+	lastResidual = 0;
+	while (lastIterationCount < maxIterations) {
+	    lastResidual = updateSubImpulses();
+	    lastIterationCount++;
+	    maxDeltaImpulse = Math.max(maxDeltaImpulse, lastResidual);
+	    if (lastResidual < tolerance) {
+		break;
+	    }
+	}
+	return maxDeltaImpulse;
+    }
+
+    private double updateSubImpulses() {
+	double maxDeltaImpulse = 0;
+	// Indexing instead of iterating, since this runs many times each time step and must not create any iterators
+	for (int i = 0; i < subConstraints.size(); i++) {
+	    maxDeltaImpulse = Math.max(maxDeltaImpulse, subConstraints.get(i).updateImpulse());
+	}
+	return maxDeltaImpulse;
+    }
+
+    /**
+     * @param action The action to perform for each body involved in any of the sub constraints
      */
-    @Override public void updateImpulse() {
-	for (int i = 0; i < iterations; i++) {
-	    subConstraints.forEach(ActiveVelocityConstraint::updateImpulse);
+    @Override public void forEachBody(final Consumer<Body> action) {
+	for (int i = 0; i < subConstraints.size(); i++) {
+	    subConstraints.get(i).forEachBody(action);
 	}
     }
+
+    /**
+     * Performs the given action for the leaves of each sub constraint if this list only performs a single
+     * iteration. Solving the leaves one-by-one is then equivalent to solving this list. A list with more
+     * iterations can not be split up, and performs the action on itself.
+     *
+     * @param action The action to perform for each constraint
+     */
+    @Override public void forEachLeaf(final Consumer<ActiveVelocityConstraint> action) {
+	if (maxIterations != 1) {
+	    action.accept(this);
+	    return;
+	}
+	forEachSubLeaf(action);
+    }
+
+    /**
+     * Performs the given action for the leaves of each sub constraint, see {@link #forEachLeaf(Consumer)}.
+     * Iterating over the leaves as many times as this list would is equivalent to solving this list.
+     *
+     * @param action The action to perform for each constraint
+     */
+    public void forEachSubLeaf(final Consumer<ActiveVelocityConstraint> action) {
+	for (int i = 0; i < subConstraints.size(); i++) {
+	    subConstraints.get(i).forEachLeaf(action);
+	}
+    }
+
+    /**
+     * @return The largest number of iterations to perform each update
+     */
+    public int getMaxIterations() {
+	return maxIterations;
+    }
+
+    /**
+     * @return The largest change of impulse during an iteration that is considered converged
+     */
+    public double getTolerance() {
+	return tolerance;
+    }
+
+    /**
+     * @return The number of iterations performed during the last update
+     */
+    public int getLastIterationCount() {
+	return lastIterationCount;
+    }
+
+    /**
+     * @return The largest absolute change of any impulse during the last iteration of the last update
+     */
+    public double getLastResidual() {
+	return lastResidual;
+    }
 }
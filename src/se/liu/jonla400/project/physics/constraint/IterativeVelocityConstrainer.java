@@ -2,6 +2,7 @@ package se.liu.jonla400.project.physics.constraint;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -9,15 +10,22 @@ import java.util.List;
  * global solution. This attempt is done through iterating over and updating the
  * solution to each velocity constraint for multiple iterations. This will hopefully
  * result in an approximation of a global solution through convergence. However, if
- * any pair of constraints contradict each other, no global solution exists.
+ * any pair of constraints contradict each other, no global solution exists. If a tolerance
+ * is given, the iterations stop early once the solution has converged.
  *
  * An object of this class is a VelocityConstrainer, and can thus be part of
  * a larger IterativeVelocityConstrainer
+ *
+ * The generated constraint is a view of a list of sub constraints that is refilled every time step, so
+ * generating it creates no objects besides what the sub constrainers create.
  */
 public class IterativeVelocityConstrainer implements VelocityConstrainer
 {
     private List<VelocityConstrainer> subConstrainers;
-    private int iterations;
+
+    // The constraints generated by the sub constrainers during the current time step, and a view of them
+    private List<ActiveVelocityConstraint> subConstraints;
+    private ActiveVelocityConstraintList constraint;
 
     /**
      * Creates a new iterative velocity constrainer
@@ -26,8 +34,21 @@ public class IterativeVelocityConstrainer implements VelocityConstrainer
      * @param subConstrainers The sub velocity constrainers to find a global solution for
      */
     public IterativeVelocityConstrainer(final int iterations, final VelocityConstrainer... subConstrainers) {
-	this.iterations = iterations;
+	this(iterations, 0, subConstrainers);
+    }
+
+    /**
+     * Creates a new iterative velocity constrainer that stops iterating early once the solution has converged
+     *
+     * @param maxIterations The largest number of times to solve the sub velocity constraints one-by-one
+     * @param tolerance The largest change of impulse during an iteration that is considered converged,
+     *                  see {@link ActiveVelocityConstraintList#createWithTolerance(Collection, int, double)}
+     * @param subConstrainers The sub velocity constrainers to find a global solution for
+     */
+    public IterativeVelocityConstrainer(final int maxIterations, final double tolerance, final VelocityConstrainer... subConstrainers) {
 	this.subConstrainers = new ArrayList<>(Arrays.asList(subConstrainers));
+	subConstraints = new ArrayList<>();
+	constraint = ActiveVelocityConstraintList.createViewWithTolerance(subConstraints, maxIterations, tolerance);
     }
 
     /**
@@ -40,22 +61,20 @@ public class IterativeVelocityConstrainer implements VelocityConstrainer
     }
 
     /**
-     * Generates a new {@link ActiveVelocityConstraint} that, each time its solution is
+     * Generates an {@link ActiveVelocityConstraint} that, each time its solution is
      * updated, solves the collection of velocity constraints one-by-one for the
-     * given number of iterations.
+     * given number of iterations. The same constraint is returned every time step, but with
+     * the newly generated sub constraints.
      *
      * @param deltaTime The size of the time step after the constraints have been solved
      * @return The generated {@link ActiveVelocityConstraint}
      */
-    @Override public ActiveVelocityConstraint generateConstraint(final double deltaTime) {
-	final List<ActiveVelocityConstraint> subConstraints = generateSubConstraints(deltaTime);
-
-	// Return an active velocity constraint that, when its solution is updated,
-	// iterates over and solves each sub constraint separately
-	return ActiveVelocityConstraintList.create(subConstraints, iterations);
-    }
-
-    private List<ActiveVelocityConstraint> generateSubConstraints(final double deltaTime) {
-	return subConstrainers.stream().map(c -> c.generateConstraint(deltaTime)).toList();
+    @Override public ActiveVelocityConstraintList generateConstraint(final double deltaTime) {
+	// The returned view iterates over and solves each sub constraint separately when its solution is updated
+	subConstraints.clear();
+	for (int i = 0; i < subConstrainers.size(); i++) {
+	    subConstraints.add(subConstrainers.get(i).generateConstraint(deltaTime));
+	}
+	return constraint;
     }
 }
@@ -33,6 +33,13 @@ public class OffsetBodyPoint
 	return new OffsetBodyPoint(body, offset.copy());
     }
 
+    /**
+     * @return The body that this point is on
+     */
+    public Body getBody() {
+	return body;
+    }
+
     /**
      * @return A read-only view of the velocity
      */
@@ -40,6 +47,17 @@ public class OffsetBodyPoint
 	return body.getVelAt(offset);
     }
 
+    /**
+     * Returns the velocity of this point along the given direction without creating
+     * intermediate vectors
+     *
+     * @param dir The direction to project the velocity onto
+     * @return The velocity along the direction
+     */
+    public double getVelAlong(final Vector2D dir) {
+	return body.getVelAlongAt(offset, dir);
+    }
+
     /**
      * @return The inverted mass, specifying the relation between an arbitrary impulse and the change in velocity
      */
@@ -47,6 +65,17 @@ public class OffsetBodyPoint
 	return body.getInvertedMassAt(offset);
     }
 
+    /**
+     * Returns the inverted mass projected onto the given direction without creating a matrix,
+     * see {@link Body#getInvertedMassAlongAt(Vector2D, Vector2D)}
+     *
+     * @param dir The direction to project the inverted mass onto
+     * @return The change in velocity along the direction caused by a unit impulse along the direction
+     */
+    public double getInvertedMassAlong(final Vector2D dir) {
+	return body.getInvertedMassAlongAt(offset, dir);
+    }
+
     /**
      * Applies the given impulse to this point, which changes the body's velocity and angular velocity
      *
@@ -55,4 +84,15 @@ public class OffsetBodyPoint
     public void applyImpulse(final Vector2D impulse) {
 	body.applyOffsetImpulse(offset, impulse);
     }
+
+    /**
+     * Applies an impulse with the given magnitude along the given direction to this point,
+     * without creating intermediate vectors
+     *
+     * @param dir The direction of the impulse
+     * @param magnitude The (signed) magnitude of the impulse
+     */
+    public void applyImpulseAlong(final Vector2D dir, final double magnitude) {
+	body.applyOffsetImpulseAlong(offset, dir, magnitude);
+    }
 }
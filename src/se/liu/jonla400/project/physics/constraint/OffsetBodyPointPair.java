@@ -25,6 +25,20 @@ public class OffsetBodyPointPair
 	this.bodyPointB = bodyPointB;
     }
 
+    /**
+     * @return The first point
+     */
+    public OffsetBodyPoint getBodyPointA() {
+	return bodyPointA;
+    }
+
+    /**
+     * @return The second point
+     */
+    public OffsetBodyPoint getBodyPointB() {
+	return bodyPointB;
+    }
+
     /**
      * @return The velocity of this pair, which is defined to be the first point's velocity relative to the second point's velocity
      */
@@ -32,6 +46,16 @@ public class OffsetBodyPointPair
 	return bodyPointA.getVel().subtract(bodyPointB.getVel());
     }
 
+    /**
+     * Returns the velocity of this pair along the given direction without creating intermediate vectors
+     *
+     * @param dir The direction to project the velocity onto
+     * @return The first point's velocity along the direction relative to the second point's velocity along the direction
+     */
+    public double getVelAlong(final Vector2D dir) {
+	return bodyPointA.getVelAlong(dir) - bodyPointB.getVelAlong(dir);
+    }
+
     /**
      * @return The inverted mass, specifying the relation between an arbitrary impulse and the change in velocity
      */
@@ -40,6 +64,17 @@ public class OffsetBodyPointPair
 	return bodyPointA.getInvertedMass().add(bodyPointB.getInvertedMass());
     }
 
+    /**
+     * Returns the inverted mass projected onto the given direction without creating a matrix, which is
+     * the same as projecting {@link #getInvertedMass()} onto the direction
+     *
+     * @param dir The direction to project the inverted mass onto
+     * @return The change in velocity along the direction caused by a unit impulse along the direction
+     */
+    public double getInvertedMassAlong(final Vector2D dir) {
+	return bodyPointA.getInvertedMassAlong(dir) + bodyPointB.getInvertedMassAlong(dir);
+    }
+
     /**
      * Applies the given impulse to this pair by applying the impulse to the first point and the negated
      * impulse to the second point
@@ -50,4 +85,17 @@ public class OffsetBodyPointPair
 	bodyPointA.applyImpulse(impulse);
 	bodyPointB.applyImpulse(impulse.negate());
     }
+
+    /**
+     * Applies an impulse with the given magnitude along the given direction to this pair, without
+     * creating intermediate vectors. The first point receives the impulse and the second point receives
+     * the negated impulse.
+     *
+     * @param dir The direction of the impulse
+     * @param magnitude The (signed) magnitude of the impulse
+     */
+    public void applyImpulseAlong(final Vector2D dir, final double magnitude) {
+	bodyPointA.applyImpulseAlong(dir, magnitude);
+	bodyPointB.applyImpulseAlong(dir, -magnitude);
+    }
 }
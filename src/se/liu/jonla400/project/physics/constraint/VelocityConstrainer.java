@@ -3,6 +3,9 @@ package se.liu.jonla400.project.physics.constraint;
 /**
  * Represents a generator of an {@link ActiveVelocityConstraint} given the size of the time step that
  * occurs after the velocity constraint has been solved
+ *
+ * A generated constraint is only solved before the time step that it was generated for. A velocity constrainer may
+ * therefore reset and return the same constraint every time step, so that generating it creates no objects.
  */
 public interface VelocityConstrainer
 {
@@ -11,7 +14,7 @@ public interface VelocityConstrainer
      * after the velocity constraint has been solved
      *
      * @param deltaTime The size of the time step after the constraint has been solved
-     * @return The generated ActiveVelocityConstraint
+     * @return The generated ActiveVelocityConstraint, which may be the same object as during earlier time steps
      */
     ActiveVelocityConstraint generateConstraint(double deltaTime);
 }
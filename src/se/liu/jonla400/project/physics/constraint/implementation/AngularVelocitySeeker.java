@@ -1,26 +1,31 @@
 package se.liu.jonla400.project.physics.constraint.implementation;
 
-import se.liu.jonla400.project.math.Interval;
 import se.liu.jonla400.project.physics.constraint.ActiveImpulse1D;
 import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
 import se.liu.jonla400.project.physics.constraint.VelocityConstrainer;
 import se.liu.jonla400.project.physics.main.Body;
 
+import java.util.function.Consumer;
+
 /**
  * Seeks a certain angular velocity of a body, but is limited by a maximum torque (which is the angular
  * equivalent to a force). If the target angular velocity is set to zero, this simulates top down
  * angular friction.
+ *
+ * The same velocity constraint is reset and returned every time step, so no objects are created.
  */
 public class AngularVelocitySeeker implements VelocityConstrainer
 {
     private Body body;
     private double targetAngularVel;
     private double maxTorque;
+    private ActiveAngularVelocitySeeking constraint;
 
     private AngularVelocitySeeker(final Body body, final double targetAngularVel, final double maxTorque) {
 	this.body = body;
 	this.targetAngularVel = targetAngularVel;
 	this.maxTorque = maxTorque;
+	constraint = new ActiveAngularVelocitySeeking();
     }
 
     /**
@@ -36,7 +41,16 @@ public class AngularVelocitySeeker implements VelocityConstrainer
 	return new AngularVelocitySeeker(body, 0, maxTorque);
     }
 
+    /**
+     * Sets the target angular velocity. If the target angular velocity changes, the body is woken
+     * up so that it can start seeking the new target.
+     *
+     * @param targetAngularVel The new target angular velocity
+     */
     public void setTargetAngularVel(final double targetAngularVel) {
+	if (this.targetAngularVel != targetAngularVel) {
+	    body.wakeUp();
+	}
 	this.targetAngularVel = targetAngularVel;
     }
 
@@ -49,19 +63,32 @@ public class AngularVelocitySeeker implements VelocityConstrainer
      * @return The generated velocity constraint
      */
     @Override public ActiveVelocityConstraint generateConstraint(final double deltaTime) {
-	final double maxAngularImpulse = maxTorque * deltaTime;
-	final Interval angularImpulseRange = new Interval(-maxAngularImpulse, maxAngularImpulse);
-	final double angularMass = body.getAngularMass();
+	constraint.reset(maxTorque * deltaTime, body.getAngularMass());
+	return constraint;
+    }
+
+    private class ActiveAngularVelocitySeeking implements ActiveVelocityConstraint
+    {
+	private double maxAngularImpulse = 0;
+	private double angularMass = 0;
+	private ActiveImpulse1D angularImpulse = new ActiveImpulse1D();
+
+	private void reset(final double maxAngularImpulse, final double angularMass) {
+	    this.maxAngularImpulse = maxAngularImpulse;
+	    this.angularMass = angularMass;
+	    angularImpulse.set(0);
+	}
 
-	return new ActiveVelocityConstraint()
-	{
-	    private ActiveImpulse1D angularImpulse = new ActiveImpulse1D();
+	@Override public double updateImpulse() {
+	    final double targetDeltaAngularVel = targetAngularVel - body.getAngularVel();
+	    final double deltaAngularImpulse = angularImpulse.update(
+		    targetDeltaAngularVel, angularMass, -maxAngularImpulse, maxAngularImpulse);
+	    body.applyAngularImpulse(deltaAngularImpulse);
+	    return Math.abs(deltaAngularImpulse);
+	}
 
-	    @Override public void updateImpulse() {
-		final double targetDeltaAngularVel = targetAngularVel - body.getAngularVel();
-		final double deltaAngularImpulse = angularImpulse.update(targetDeltaAngularVel, angularMass, angularImpulseRange);
-		body.applyAngularImpulse(deltaAngularImpulse);
-	    }
-	};
+	@Override public void forEachBody(final Consumer<Body> action) {
+	    action.accept(body);
+	}
     }
 }
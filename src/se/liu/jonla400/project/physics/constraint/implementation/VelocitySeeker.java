@@ -5,20 +5,26 @@ import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
 import se.liu.jonla400.project.physics.constraint.VelocityConstrainer;
 import se.liu.jonla400.project.physics.main.Body;
 
+import java.util.function.Consumer;
+
 /**
  * Seeks a certain velocity of a body, but is limited by a maximum force.
  * If the target velocity is set to zero, this simulates top down friction.
+ *
+ * The same velocity constraint is reset and returned every time step, so no objects are created.
  */
 public class VelocitySeeker implements VelocityConstrainer
 {
     private Body body;
     private Vector2D targetVel;
     private double maxForce;
+    private ActiveVelocitySeeking constraint;
 
     private VelocitySeeker(final Body body, final Vector2D targetVel, final double maxForce) {
 	this.body = body;
 	this.targetVel = targetVel;
 	this.maxForce = maxForce;
+	constraint = new ActiveVelocitySeeking();
     }
 
     /**
@@ -35,11 +41,15 @@ public class VelocitySeeker implements VelocityConstrainer
     }
 
     /**
-     * Sets the target velocity, but does not keep a reference to the input vector
+     * Sets the target velocity, but does not keep a reference to the input vector. If the
+     * target velocity changes, the body is woken up so that it can start seeking the new target.
      *
      * @param targetVel The new target velocity
      */
     public void setTargetVel(final Vector2D targetVel) {
+	if (!this.targetVel.equals(targetVel)) {
+	    body.wakeUp();
+	}
 	this.targetVel.set(targetVel);
     }
 
@@ -52,25 +62,50 @@ public class VelocitySeeker implements VelocityConstrainer
      * @return The generated velocity constraint
      */
     @Override public ActiveVelocityConstraint generateConstraint(final double deltaTime) {
-	final double maxImpulse = maxForce * deltaTime;
-	final double mass = body.getMass();
+	constraint.reset(maxForce * deltaTime, body.getMass());
+	return constraint;
+    }
+
+    private class ActiveVelocitySeeking implements ActiveVelocityConstraint
+    {
+	private double maxImpulse = 0;
+	private double mass = 0;
 
-	return new ActiveVelocityConstraint()
-	{
-	    private Vector2D impulse = Vector2D.createZero();
+	// The impulse is kept as coordinates so that updating it does not create any vectors
+	private double impulseX = 0;
+	private double impulseY = 0;
 
-	    @Override public void updateImpulse() {
-		final Vector2D vel = body.getVel();
-		final Vector2D targetDeltaVel = targetVel.subtract(vel);
-		final Vector2D targetDeltaImpulse = targetDeltaVel.multiply(mass);
+	private void reset(final double maxImpulse, final double mass) {
+	    this.maxImpulse = maxImpulse;
+	    this.mass = mass;
+	    impulseX = 0;
+	    impulseY = 0;
+	}
 
-		final Vector2D targetImpulse = impulse.add(targetDeltaImpulse);
-		final Vector2D nextImpulse = targetImpulse.limitMagnitude(maxImpulse);
-		final Vector2D deltaImpulse = nextImpulse.subtract(impulse);
+	@Override public double updateImpulse() {
+	    final double targetImpulseX = impulseX + (targetVel.getX() - body.getVelX()) * mass;
+	    final double targetImpulseY = impulseY + (targetVel.getY() - body.getVelY()) * mass;
 
-		body.applyImpulse(deltaImpulse);
-		impulse.set(nextImpulse);
+	    // Limit the magnitude of the target impulse
+	    final double targetImpulseMagnitudeSquared = targetImpulseX * targetImpulseX + targetImpulseY * targetImpulseY;
+	    double nextImpulseX = targetImpulseX;
+	    double nextImpulseY = targetImpulseY;
+	    if (targetImpulseMagnitudeSquared > maxImpulse * maxImpulse) {
+		final double magnitudeRatio = maxImpulse / Math.sqrt(targetImpulseMagnitudeSquared);
+		nextImpulseX *= magnitudeRatio;
+		nextImpulseY *= magnitudeRatio;
 	    }
-	};
+
+	    final double deltaImpulseX = nextImpulseX - impulseX;
+	    final double deltaImpulseY = nextImpulseY - impulseY;
+	    body.applyImpulse(deltaImpulseX, deltaImpulseY);
+	    impulseX = nextImpulseX;
+	    impulseY = nextImpulseY;
+	    return Math.max(Math.abs(deltaImpulseX), Math.abs(deltaImpulseY));
+	}
+
+	@Override public void forEachBody(final Consumer<Body> action) {
+	    action.accept(body);
+	}
     }
 }
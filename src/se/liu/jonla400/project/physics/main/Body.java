@@ -9,26 +9,23 @@ import se.liu.jonla400.project.math.Vector2D;
  * be offset from the body's position which causes a change in both the velocity and the angular
  * velocity. A body can perform a time step of a given size, which moves the position along the
  * velocity (the same goes for the angle).
+ *
+ * A body is a handle to an index in a {@link BodyStore}, where its state is actually kept. A newly
+ * created body is kept in a store of its own until it is adopted by another store, for instance when
+ * it is added to a {@link PhysicsEngine}. The handle stays valid when this happens.
+ *
+ * A body in a store can fall asleep when it has been still for a while, see {@link BodyStore}. It is
+ * woken up when a non-zero impulse is applied to it, when its position or angle is set or when its
+ * velocity or angular velocity is set to something non-zero.
  */
 public class Body
 {
-    private Vector2D pos;
-    private Vector2D vel;
-    private double mass;
+    private BodyStore store;
+    private int index;
 
-    private double angle;
-    private double angularVel;
-    private double angularMass;
-
-    private Body(final Vector2D pos, final Vector2D vel, final double mass, final double angle, final double angularVel,
-		final double angularMass)
-    {
-	this.pos = pos;
-	this.vel = vel;
-	this.mass = mass;
-	this.angle = angle;
-	this.angularVel = angularVel;
-	this.angularMass = angularMass;
+    private Body(final BodyStore store, final int index) {
+	this.store = store;
+	this.index = index;
     }
 
     /**
@@ -41,7 +38,55 @@ public class Body
      * @return The created body
      */
     public static Body create(final Vector2D pos, final double mass, final double angularMass) {
-	return new Body(pos.copy(), Vector2D.createZero(), mass, 0, 0, angularMass);
+	final BodyStore store = BodyStore.createWithCapacity(1);
+	final Body body = new Body(store, store.allocate(mass, angularMass));
+	body.setPos(pos);
+	return body;
+    }
+
+    BodyStore getStore() {
+	return store;
+    }
+
+    int getIndex() {
+	return index;
+    }
+
+    void moveTo(final BodyStore newStore, final int newIndex) {
+	store = newStore;
+	index = newIndex;
+    }
+
+    /**
+     * @return Whether this body is asleep, meaning that it is still and is not moved by its store
+     */
+    public boolean isAsleep() {
+	return store.isAsleep(index);
+    }
+
+    /**
+     * Wakes this body up if it is asleep. The body then has to be still for a while before
+     * falling asleep again.
+     */
+    public void wakeUp() {
+	store.wakeUp(index);
+    }
+
+    /**
+     * Makes this body and the other body fall asleep together during the upcoming tick, for instance
+     * because they are resting on each other. This only has an effect if both bodies are in the same store.
+     *
+     * @param other The other body
+     */
+    public void shareSleepWith(final Body other) {
+	store.joinSleepGroups(this, other);
+    }
+
+    /**
+     * @return Whether this body has infinite mass and angular mass, meaning that impulses can not move it
+     */
+    public boolean isStatic() {
+	return store.isStatic(index);
     }
 
     /**
@@ -50,7 +95,19 @@ public class Body
      * @return The copy of the position
      */
     public Vector2D getPos() {
-	return pos.copy();
+	return Vector2D.createCartesian(store.getPosX(index), store.getPosY(index));
+    }
+
+    /**
+     * Gets the position at a point in time between the last tick and now, by linearly interpolating between
+     * the position before the last tick and the current position. Setting the position directly is treated
+     * as a teleport that is not interpolated.
+     *
+     * @param alpha How far from the position before the last tick (0) towards the current position (1)
+     * @return The interpolated position
+     */
+    public Vector2D getInterpolatedPos(final double alpha) {
+	return Vector2D.createCartesian(store.getInterpolatedPosX(index, alpha), store.getInterpolatedPosY(index, alpha));
     }
 
     /**
@@ -59,7 +116,7 @@ public class Body
      * @param pos The position to copy
      */
     public void setPos(final Vector2D pos) {
-	this.pos.set(pos);
+	store.setPos(index, pos.getX(), pos.getY());
     }
 
     /**
@@ -68,7 +125,7 @@ public class Body
      * @return The copy of the velocity
      */
     public Vector2D getVel() {
-	return vel.copy();
+	return Vector2D.createCartesian(store.getVelX(index), store.getVelY(index));
     }
 
     /**
@@ -77,7 +134,21 @@ public class Body
      * @param vel The velocity to copy
      */
     public void setVel(final Vector2D vel) {
-	this.vel.set(vel.copy());
+	store.setVel(index, vel.getX(), vel.getY());
+    }
+
+    /**
+     * @return The x-coordinate of the velocity
+     */
+    public double getVelX() {
+	return store.getVelX(index);
+    }
+
+    /**
+     * @return The y-coordinate of the velocity
+     */
+    public double getVelY() {
+	return store.getVelY(index);
     }
 
     /**
@@ -86,7 +157,7 @@ public class Body
      * @return The mass
      */
     public double getMass() {
-	return mass;
+	return store.getMass(index);
     }
 
     /**
@@ -95,7 +166,17 @@ public class Body
      * @return The angle
      */
     public double getAngle() {
-	return angle;
+	return store.getAngle(index);
+    }
+
+    /**
+     * Gets the angle at a point in time between the last tick and now, see {@link #getInterpolatedPos(double)}
+     *
+     * @param alpha How far from the angle before the last tick (0) towards the current angle (1)
+     * @return The interpolated angle
+     */
+    public double getInterpolatedAngle(final double alpha) {
+	return store.getInterpolatedAngle(index, alpha);
     }
 
     /**
@@ -105,7 +186,7 @@ public class Body
      */
     public void setAngle(final double angle) {
 	// This method is general-purpose and likely used in the future
-	this.angle = angle;
+	store.setAngle(index, angle);
     }
 
 
@@ -115,7 +196,7 @@ public class Body
      * @return The angular velocity
      */
     public double getAngularVel() {
-	return angularVel;
+	return store.getAngularVel(index);
     }
 
     /**
@@ -125,7 +206,7 @@ public class Body
      */
     public void setAngularVel(final double angularVel) {
 	// This method is general-purpose and likely used in the future
-	this.angularVel = angularVel;
+	store.setAngularVel(index, angularVel);
     }
 
     /**
@@ -134,7 +215,7 @@ public class Body
      * @return The angular mass
      */
     public double getAngularMass() {
-	return angularMass;
+	return store.getAngularMass(index);
     }
 
     /**
@@ -147,7 +228,7 @@ public class Body
      * @return The vector in global space
      */
     public Vector2D convertLocalToGlobalVector(final Vector2D localVector) {
-	return localVector.rotate(angle);
+	return localVector.rotate(getAngle());
     }
 
     /**
@@ -157,7 +238,7 @@ public class Body
      * @return The global point
      */
     public Vector2D convertOffsetToGlobalPoint(final Vector2D offset) {
-	return pos.add(offset);
+	return Vector2D.createCartesian(store.getPosX(index) + offset.getX(), store.getPosY(index) + offset.getY());
     }
 
     /**
@@ -181,7 +262,7 @@ public class Body
      * @return The offset from the position of this point mass
      */
     public Vector2D convertGlobalPointToOffset(final Vector2D globalPoint) {
-	return globalPoint.subtract(pos);
+	return Vector2D.createCartesian(globalPoint.getX() - store.getPosX(index), globalPoint.getY() - store.getPosY(index));
     }
 
     /**
@@ -194,7 +275,7 @@ public class Body
      * @return The vector in local space
      */
     public Vector2D convertGlobalToLocalVector(final Vector2D globalVector) {
-	return globalVector.rotate(-angle);
+	return globalVector.rotate(-getAngle());
     }
 
     /**
@@ -222,9 +303,9 @@ public class Body
     public Vector2D getCircularVelAt(final Vector2D offset) {
 	// The magnitude of the velocity at the offset is ||offset|| * angularVel
 	// The direction of the velocity at the offset is perpendicular to the offset
-
-	final Vector2D perpendicularOffset = offset.rotate90Degrees(Vector2D.RotationDirection.X_TO_Y);
-	return perpendicularOffset.multiply(angularVel);
+	// (the offset rotated 90 degrees in the X_TO_Y direction)
+	final double angularVel = getAngularVel();
+	return Vector2D.createCartesian(-offset.getY() * angularVel, offset.getX() * angularVel);
     }
 
     /**
@@ -236,8 +317,27 @@ public class Body
      * @return The velocity at that offset
      */
     public Vector2D getVelAt(final Vector2D offset) {
-	final Vector2D circularVel = getCircularVelAt(offset);
-	return vel.add(circularVel);
+	final double angularVel = getAngularVel();
+	return Vector2D.createCartesian(
+		store.getVelX(index) - offset.getY() * angularVel,
+		store.getVelY(index) + offset.getX() * angularVel
+	);
+    }
+
+    /**
+     * Gets the velocity at the given offset from the position of this point mass projected onto
+     * the given direction. This is the same as taking the dot product of the direction and
+     * {@link #getVelAt(Vector2D)}, but no intermediate vectors are created.
+     *
+     * @param offset The offset from the position of this point mass
+     * @param dir The direction to project the velocity onto
+     * @return The velocity at that offset along the direction
+     */
+    public double getVelAlongAt(final Vector2D offset, final Vector2D dir) {
+	final double angularVel = getAngularVel();
+	final double velX = store.getVelX(index) - offset.getY() * angularVel;
+	final double velY = store.getVelY(index) + offset.getX() * angularVel;
+	return velX * dir.getX() + velY * dir.getY();
     }
 
     /**
@@ -260,8 +360,8 @@ public class Body
      */
     public Matrix22 getInvertedMassAt(final Vector2D offset) {
 	// See derivation at doc/math/invertedMassDerivation.jpg
-	final double invertedMass = 1 / mass;
-	final double invertedAngularMass = 1 / angularMass;
+	final double invertedMass = store.getInvertedMass(index);
+	final double invertedAngularMass = store.getInvertedAngularMass(index);
 
 	final double offsetX = offset.getX();
 	final double offsetY = offset.getY();
@@ -273,6 +373,23 @@ public class Body
 	);
     }
 
+    /**
+     * Gets the inverted mass at the given offset from the position of this point mass, projected onto the given
+     * direction. This is the change in velocity along the direction caused by a unit impulse along the direction,
+     * which is the same as the weighted sum of {@link #getInvertedMassAt(Vector2D)} with the outer product of the
+     * direction and itself as weights, but no matrices are created.
+     *
+     * @param offset The offset from the position of this point mass
+     * @param dir The direction to project the inverted mass onto
+     * @return The inverted mass along the direction at that offset
+     */
+    public double getInvertedMassAlongAt(final Vector2D offset, final Vector2D dir) {
+	// Only the part of the impulse perpendicular to the offset changes the angular velocity
+	final double offsetCrossDir = offset.getX() * dir.getY() - offset.getY() * dir.getX();
+	return store.getInvertedMass(index) * dir.getMagnitudeSquared() +
+	       store.getInvertedAngularMass(index) * offsetCrossDir * offsetCrossDir;
+    }
+
     /**
      * Changes the velocity of this point mass by applying a centered impulse.
      * The mass determines how ineffective the impulse is at changing the velocity.
@@ -280,8 +397,18 @@ public class Body
      * @param impulse The impulse to apply
      */
     public void applyImpulse(final Vector2D impulse) {
-	final Vector2D deltaVel = impulse.divide(mass);
-	vel.addLocally(deltaVel);
+	applyImpulse(impulse.getX(), impulse.getY());
+    }
+
+    /**
+     * Changes the velocity of this point mass by applying a centered impulse given by its
+     * coordinates
+     *
+     * @param impulseX The x-coordinate of the impulse to apply
+     * @param impulseY The y-coordinate of the impulse to apply
+     */
+    public void applyImpulse(final double impulseX, final double impulseY) {
+	store.applyOffsetImpulse(index, 0, 0, impulseX, impulseY);
     }
 
     /**
@@ -292,8 +419,11 @@ public class Body
      * @param angularImpulse The angular impulse to apply
      */
     public void applyAngularImpulse(final double angularImpulse) {
-	final double deltaAngularVel = angularImpulse / angularMass;
-	angularVel += deltaAngularVel;
+	final double deltaAngularVel = angularImpulse * store.getInvertedAngularMass(index);
+	if (deltaAngularVel == 0) {
+	    return; // Neither wake this body up nor write to it, since it may be shared by constraints solved in parallel
+	}
+	store.setAngularVel(index, getAngularVel() + deltaAngularVel);
     }
 
     /**
@@ -308,17 +438,26 @@ public class Body
      * @param impulse The impulse to apply at the offset
      */
     public void applyOffsetImpulse(final Vector2D offset, final Vector2D impulse) {
-	// Change the velocity
-	applyImpulse(impulse);
+	store.applyOffsetImpulse(index, offset.getX(), offset.getY(), impulse.getX(), impulse.getY());
+    }
 
-	// Change the angular velocity since the impulse is offset from the center
-	// of this point mass
-	final double angularImpulse = offset.cross(impulse); // See the definition of torque https://en.wikipedia.org/wiki/Torque
-	applyAngularImpulse(angularImpulse);
+    /**
+     * Applies an impulse with the given magnitude along the given direction at the given offset.
+     * This is the same as calling {@link #applyOffsetImpulse(Vector2D, Vector2D)} with the direction
+     * multiplied by the magnitude, but no intermediate vectors are created.
+     *
+     * @param offset The offset from the position of this point mass
+     * @param dir The direction of the impulse
+     * @param magnitude The (signed) magnitude of the impulse along the direction
+     */
+    public void applyOffsetImpulseAlong(final Vector2D offset, final Vector2D dir, final double magnitude) {
+	store.applyOffsetImpulse(index, offset.getX(), offset.getY(), dir.getX() * magnitude, dir.getY() * magnitude);
     }
 
     /**
-     * Move this point mass for a certain amount of time according to its velocity
+     * Move this point mass for a certain amount of time according to its velocity.
+     * Bodies that have been added to a {@link PhysicsEngine} are instead moved all at once
+     * by the engine's {@link BodyStore}.
      *
      * @param deltaTime	The amount of time during which to move
      */
@@ -326,16 +465,11 @@ public class Body
 	if (deltaTime < 0) {
 	    throw new IllegalArgumentException("Negative delta time: " + deltaTime);
 	}
-
-	final Vector2D deltaPos = vel.multiply(deltaTime);
-	pos.addLocally(deltaPos);
-
-	final double deltaAngle = angularVel * deltaTime;
-	angle += deltaAngle;
+	store.tick(index, deltaTime);
     }
 
     @Override public String toString() {
-	return "Body{" + "pos=" + pos + ", vel=" + vel + ", mass=" + mass + ", angle=" + angle + ", angularVel=" + angularVel +
-	       ", angularMass=" + angularMass + '}';
+	return "Body{" + "pos=" + getPos() + ", vel=" + getVel() + ", mass=" + getMass() + ", angle=" + getAngle() + ", angularVel=" +
+	       getAngularVel() + ", angularMass=" + getAngularMass() + '}';
     }
 }
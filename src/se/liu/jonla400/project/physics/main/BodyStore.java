@@ -0,0 +1,433 @@
+package se.liu.jonla400.project.physics.main;
+
+import java.util.Arrays;
+
+/**
+ * Stores the state of a set of {@link Body} objects in parallel arrays of primitive values
+ * (a "structure of arrays"). Each body is a handle that refers to an index in a store. The
+ * positions, velocities, angles, angular velocities, masses and precomputed inverted masses
+ * of all bodies are thus laid out contiguously in memory, which makes it cheap to move every
+ * body at once.
+ *
+ * A body whose velocity and angular velocity have stayed below given thresholds for long enough
+ * falls asleep. A sleeping body is still and is not moved when the store is ticked, until it is
+ * woken up again, for instance by an impulse. Bodies that touch each other can be joined into the
+ * same sleep group (island) for the upcoming tick, in which case they only fall asleep together. Otherwise,
+ * a body resting on another body would fall asleep first and immediately be woken up by the other body.
+ *
+ * The positions and angles before the last tick are also kept, so that a body can be drawn at any point in time
+ * between the last two ticks.
+ */
+public class BodyStore
+{
+    private final static int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final static double DEFAULT_SLEEP_VEL_THRESHOLD = 0.05;
+    private final static double DEFAULT_SLEEP_ANGULAR_VEL_THRESHOLD = 0.05;
+    private final static double DEFAULT_TIME_UNTIL_SLEEP = 0.5;
+
+    private int size;
+
+    private double[] posX;
+    private double[] posY;
+    private double[] velX;
+    private double[] velY;
+    private double[] angle;
+    private double[] angularVel;
+
+    private double[] prevPosX;
+    private double[] prevPosY;
+    private double[] prevAngle;
+
+    private double[] mass;
+    private double[] angularMass;
+    private double[] invertedMass;
+    private double[] invertedAngularMass;
+
+    private double[] stillTime;
+    private boolean[] asleep;
+    // The sleep groups of the upcoming tick, as a union-find forest
+    private int[] sleepGroupParent;
+    private boolean[] sleepGroupStill;
+
+    private double sleepVelThreshold;
+    private double sleepAngularVelThreshold;
+    private double timeUntilSleep;
+
+    private BodyStore(final int capacity) {
+	size = 0;
+	posX = new double[capacity];
+	posY = new double[capacity];
+	velX = new double[capacity];
+	velY = new double[capacity];
+	angle = new double[capacity];
+	angularVel = new double[capacity];
+	prevPosX = new double[capacity];
+	prevPosY = new double[capacity];
+	prevAngle = new double[capacity];
+	mass = new double[capacity];
+	angularMass = new double[capacity];
+	invertedMass = new double[capacity];
+	invertedAngularMass = new double[capacity];
+	stillTime = new double[capacity];
+	asleep = new boolean[capacity];
+	sleepGroupParent = new int[capacity];
+	sleepGroupStill = new boolean[capacity];
+	sleepVelThreshold = DEFAULT_SLEEP_VEL_THRESHOLD;
+	sleepAngularVelThreshold = DEFAULT_SLEEP_ANGULAR_VEL_THRESHOLD;
+	timeUntilSleep = DEFAULT_TIME_UNTIL_SLEEP;
+    }
+
+    /**
+     * Creates an empty BodyStore with a default initial capacity. The store grows when needed.
+     *
+     * @return The created BodyStore
+     */
+    public static BodyStore createEmpty() {
+	return createWithCapacity(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty BodyStore with room for the given number of bodies before it has to grow
+     *
+     * @param capacity The initial capacity, must be positive
+     * @return The created BodyStore
+     */
+    public static BodyStore createWithCapacity(final int capacity) {
+	if (capacity <= 0) {
+	    throw new IllegalArgumentException("Non-positive capacity: " + capacity);
+	}
+	return new BodyStore(capacity);
+    }
+
+    /**
+     * Sets when the bodies in this store fall asleep. A body falls asleep when its speed and angular
+     * speed have stayed below the given thresholds for the given amount of time. Sleeping can be turned off
+     * by passing an infinite time.
+     *
+     * @param velThreshold The speed below which a body is considered still
+     * @param angularVelThreshold The angular speed below which a body is considered still
+     * @param timeUntilSleep How long a body has to be still before falling asleep, must not be negative
+     */
+    public void setSleepThresholds(final double velThreshold, final double angularVelThreshold, final double timeUntilSleep) {
+	if (timeUntilSleep < 0) {
+	    throw new IllegalArgumentException("Negative time until sleep: " + timeUntilSleep);
+	}
+	sleepVelThreshold = velThreshold;
+	sleepAngularVelThreshold = angularVelThreshold;
+	this.timeUntilSleep = timeUntilSleep;
+    }
+
+    /**
+     * @return The number of bodies in this store
+     */
+    public int size() {
+	return size;
+    }
+
+    /**
+     * Moves the state of the given body into this store and makes the body refer to its new
+     * place in this store. The body keeps working as before, but is from now on moved when
+     * this store is ticked. Adopting a body that is already in this store does nothing.
+     *
+     * @param body The body to adopt
+     */
+    public void adopt(final Body body) {
+	final BodyStore oldStore = body.getStore();
+	if (oldStore == this) {
+	    return;
+	}
+	final int oldIndex = body.getIndex();
+	final int newIndex = allocate(oldStore.mass[oldIndex], oldStore.angularMass[oldIndex]);
+	posX[newIndex] = oldStore.posX[oldIndex];
+	posY[newIndex] = oldStore.posY[oldIndex];
+	velX[newIndex] = oldStore.velX[oldIndex];
+	velY[newIndex] = oldStore.velY[oldIndex];
+	angle[newIndex] = oldStore.angle[oldIndex];
+	angularVel[newIndex] = oldStore.angularVel[oldIndex];
+	prevPosX[newIndex] = oldStore.prevPosX[oldIndex];
+	prevPosY[newIndex] = oldStore.prevPosY[oldIndex];
+	prevAngle[newIndex] = oldStore.prevAngle[oldIndex];
+	stillTime[newIndex] = oldStore.stillTime[oldIndex];
+	asleep[newIndex] = oldStore.asleep[oldIndex];
+	body.moveTo(this, newIndex);
+    }
+
+    /**
+     * Allocates room for a still body with the given masses at (0, 0)
+     *
+     * @return The index of the allocated body
+     */
+    int allocate(final double bodyMass, final double bodyAngularMass) {
+	if (size == mass.length) {
+	    grow();
+	}
+	final int index = size;
+	size++;
+	mass[index] = bodyMass;
+	angularMass[index] = bodyAngularMass;
+	sleepGroupParent[index] = index;
+	invertedMass[index] = 1 / bodyMass;
+	invertedAngularMass[index] = 1 / bodyAngularMass;
+	return index;
+    }
+
+    private void grow() {
+	final int capacity = 2 * mass.length;
+	posX = Arrays.copyOf(posX, capacity);
+	posY = Arrays.copyOf(posY, capacity);
+	velX = Arrays.copyOf(velX, capacity);
+	velY = Arrays.copyOf(velY, capacity);
+	angle = Arrays.copyOf(angle, capacity);
+	angularVel = Arrays.copyOf(angularVel, capacity);
+	prevPosX = Arrays.copyOf(prevPosX, capacity);
+	prevPosY = Arrays.copyOf(prevPosY, capacity);
+	prevAngle = Arrays.copyOf(prevAngle, capacity);
+	mass = Arrays.copyOf(mass, capacity);
+	angularMass = Arrays.copyOf(angularMass, capacity);
+	invertedMass = Arrays.copyOf(invertedMass, capacity);
+	invertedAngularMass = Arrays.copyOf(invertedAngularMass, capacity);
+	stillTime = Arrays.copyOf(stillTime, capacity);
+	asleep = Arrays.copyOf(asleep, capacity);
+	sleepGroupParent = Arrays.copyOf(sleepGroupParent, capacity);
+	sleepGroupStill = Arrays.copyOf(sleepGroupStill, capacity);
+    }
+
+    /**
+     * Moves every awake body in this store for a certain amount of time according to their velocities
+     * and angular velocities. Afterwards, bodies that have been still for long enough fall asleep.
+     *
+     * @param deltaTime The amount of time during which to move
+     */
+    public void tick(final double deltaTime) {
+	if (deltaTime < 0) {
+	    throw new IllegalArgumentException("Negative delta time: " + deltaTime);
+	}
+	System.arraycopy(posX, 0, prevPosX, 0, size);
+	System.arraycopy(posY, 0, prevPosY, 0, size);
+	System.arraycopy(angle, 0, prevAngle, 0, size);
+	for (int i = 0; i < size; i++) {
+	    if (asleep[i]) {
+		continue;
+	    }
+	    posX[i] += velX[i] * deltaTime;
+	    posY[i] += velY[i] * deltaTime;
+	    angle[i] += angularVel[i] * deltaTime;
+	    updateStillTime(i, deltaTime);
+	}
+	fallAsleepInGroups();
+    }
+
+    /**
+     * Moves only the body at the given index, without letting it fall asleep
+     */
+    void tick(final int index, final double deltaTime) {
+	prevPosX[index] = posX[index];
+	prevPosY[index] = posY[index];
+	prevAngle[index] = angle[index];
+	posX[index] += velX[index] * deltaTime;
+	posY[index] += velY[index] * deltaTime;
+	angle[index] += angularVel[index] * deltaTime;
+    }
+
+    private void updateStillTime(final int index, final double deltaTime) {
+	final double velSquared = velX[index] * velX[index] + velY[index] * velY[index];
+	final boolean still = velSquared < sleepVelThreshold * sleepVelThreshold &&
+			      Math.abs(angularVel[index]) < sleepAngularVelThreshold;
+	if (still) {
+	    stillTime[index] += deltaTime;
+	} else {
+	    stillTime[index] = 0;
+	}
+    }
+
+    /**
+     * Puts every sleep group whose awake bodies have all been still for long enough to sleep,
+     * and then splits every sleep group up again for the next tick
+     */
+    private void fallAsleepInGroups() {
+	Arrays.fill(sleepGroupStill, 0, size, true);
+	for (int i = 0; i < size; i++) {
+	    if (!asleep[i] && stillTime[i] < timeUntilSleep) {
+		sleepGroupStill[findSleepGroup(i)] = false;
+	    }
+	}
+	for (int i = 0; i < size; i++) {
+	    if (!asleep[i] && sleepGroupStill[findSleepGroup(i)]) {
+		asleep[i] = true;
+		velX[i] = 0;
+		velY[i] = 0;
+		angularVel[i] = 0;
+	    }
+	}
+	for (int i = 0; i < size; i++) {
+	    sleepGroupParent[i] = i;
+	}
+    }
+
+    private int findSleepGroup(final int index) {
+	int root = index;
+	while (sleepGroupParent[root] != root) {
+	    root = sleepGroupParent[root];
+	}
+	// Point every visited body directly at the root to keep later searches short
+	int current = index;
+	while (sleepGroupParent[current] != root) {
+	    final int next = sleepGroupParent[current];
+	    sleepGroupParent[current] = root;
+	    current = next;
+	}
+	return root;
+    }
+
+    /**
+     * Joins the sleep groups of the given bodies for the upcoming tick, so that they only fall asleep
+     * together. Static bodies and bodies in other stores are not joined, since they never keep other
+     * bodies awake.
+     *
+     * @param bodyA One of the bodies
+     * @param bodyB The other body
+     */
+    public void joinSleepGroups(final Body bodyA, final Body bodyB) {
+	if (bodyA.getStore() != this || bodyB.getStore() != this || isStatic(bodyA.getIndex()) || isStatic(bodyB.getIndex())) {
+	    return;
+	}
+	final int rootA = findSleepGroup(bodyA.getIndex());
+	final int rootB = findSleepGroup(bodyB.getIndex());
+	sleepGroupParent[rootA] = rootB;
+    }
+
+    boolean isStatic(final int index) {
+	return invertedMass[index] == 0 && invertedAngularMass[index] == 0;
+    }
+
+    boolean isAsleep(final int index) {
+	return asleep[index];
+    }
+
+    /**
+     * Wakes up the body at the given index and restarts the time it has to be still before falling asleep again
+     */
+    void wakeUp(final int index) {
+	asleep[index] = false;
+	stillTime[index] = 0;
+    }
+
+    double getPosX(final int index) {
+	return posX[index];
+    }
+
+    double getPosY(final int index) {
+	return posY[index];
+    }
+
+    /**
+     * Teleports the body at the given index, so that it is not interpolated from its previous position
+     */
+    void setPos(final int index, final double x, final double y) {
+	wakeUp(index);
+	posX[index] = x;
+	posY[index] = y;
+	prevPosX[index] = x;
+	prevPosY[index] = y;
+    }
+
+    double getInterpolatedPosX(final int index, final double alpha) {
+	return prevPosX[index] + (posX[index] - prevPosX[index]) * alpha;
+    }
+
+    double getInterpolatedPosY(final int index, final double alpha) {
+	return prevPosY[index] + (posY[index] - prevPosY[index]) * alpha;
+    }
+
+    double getVelX(final int index) {
+	return velX[index];
+    }
+
+    double getVelY(final int index) {
+	return velY[index];
+    }
+
+    void setVel(final int index, final double x, final double y) {
+	wakeUpIfNonZero(index, x, y);
+	velX[index] = x;
+	velY[index] = y;
+    }
+
+    double getAngle(final int index) {
+	return angle[index];
+    }
+
+    /**
+     * Moves the body at the given index to where it stopped during the last tick, and turns it back to its angle
+     * at the given fraction of the last tick. Unlike teleporting, the position and angle before the last tick are
+     * kept, so that the body is interpolated into where it stopped.
+     */
+    void stopDuringLastTick(final int index, final double x, final double y, final double fraction) {
+	posX[index] = x;
+	posY[index] = y;
+	angle[index] = prevAngle[index] + (angle[index] - prevAngle[index]) * fraction;
+    }
+
+    /**
+     * Teleports the body at the given index, so that it is not interpolated from its previous angle
+     */
+    void setAngle(final int index, final double newAngle) {
+	wakeUp(index);
+	angle[index] = newAngle;
+	prevAngle[index] = newAngle;
+    }
+
+    double getInterpolatedAngle(final int index, final double alpha) {
+	return prevAngle[index] + (angle[index] - prevAngle[index]) * alpha;
+    }
+
+    double getAngularVel(final int index) {
+	return angularVel[index];
+    }
+
+    void setAngularVel(final int index, final double newAngularVel) {
+	wakeUpIfNonZero(index, newAngularVel, 0);
+	angularVel[index] = newAngularVel;
+    }
+
+    double getMass(final int index) {
+	return mass[index];
+    }
+
+    double getAngularMass(final int index) {
+	return angularMass[index];
+    }
+
+    double getInvertedMass(final int index) {
+	return invertedMass[index];
+    }
+
+    double getInvertedAngularMass(final int index) {
+	return invertedAngularMass[index];
+    }
+
+    private void wakeUpIfNonZero(final int index, final double x, final double y) {
+	if (asleep[index] && (x != 0 || y != 0)) {
+	    wakeUp(index);
+	}
+    }
+
+    /**
+     * Applies an impulse at an offset from the position of the body at the given index. This is done
+     * without creating any intermediate vectors. A sleeping body is woken up by any non-zero impulse.
+     * A static body is not touched at all, so that constraints solved in parallel may share it.
+     */
+    void applyOffsetImpulse(final int index, final double offsetX, final double offsetY, final double impulseX, final double impulseY) {
+	if (isStatic(index)) {
+	    return;
+	}
+	wakeUpIfNonZero(index, impulseX, impulseY);
+	final double bodyInvertedMass = invertedMass[index];
+	velX[index] += impulseX * bodyInvertedMass;
+	velY[index] += impulseY * bodyInvertedMass;
+	// See the definition of torque https://en.wikipedia.org/wiki/Torque
+	final double angularImpulse = offsetX * impulseY - offsetY * impulseX;
+	angularVel[index] += angularImpulse * invertedAngularMass[index];
+    }
+}
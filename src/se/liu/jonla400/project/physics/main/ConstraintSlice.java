@@ -0,0 +1,46 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view of the constraints within a range of another list. Unlike {@link List#subList(int, int)},
+ * the range can be moved, so that a solver can split the same list into new parts every time step without
+ * creating any objects.
+ */
+class ConstraintSlice extends AbstractList<ActiveVelocityConstraint> implements RandomAccess
+{
+    private List<ActiveVelocityConstraint> constraints;
+    private int start;
+    private int end;
+
+    ConstraintSlice(final List<ActiveVelocityConstraint> constraints) {
+	this.constraints = constraints;
+	start = 0;
+	end = 0;
+    }
+
+    /**
+     * Moves the range of the viewed list to the given indices
+     *
+     * @param start The first index of the range
+     * @param end The index after the last index of the range
+     */
+    void setRange(final int start, final int end) {
+	this.start = start;
+	this.end = end;
+    }
+
+    @Override public ActiveVelocityConstraint get(final int index) {
+	Objects.checkIndex(index, end - start);
+	return constraints.get(start + index);
+    }
+
+    @Override public int size() {
+	return end - start;
+    }
+}
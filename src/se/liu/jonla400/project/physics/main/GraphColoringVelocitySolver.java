@@ -0,0 +1,307 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Represents a {@link VelocitySolver} that parallelizes the solving of a single large group of
+ * constraints, such as a pile of balls where every ball touches another. The constraints are greedily
+ * colored so that no two constraints of the same color involve the same body. Each iteration then goes
+ * through the colors in order, solving the constraints of a color in parallel on a {@link ForkJoinPool}
+ * and waiting for all of them before moving on to the next color.
+ *
+ * The constraints are thus still solved one-by-one as far as each body is concerned, but in a different
+ * order than in the list, which may change how quickly the solution converges. Constraints that could not
+ * be given one of the first {@value #MAX_COLORS} colors, as well as constraints involving no non-static body
+ * of the body store, are solved one-by-one on the calling thread after the last color.
+ *
+ * The lists, arrays and tasks used to color and solve the constraints are kept between time steps and only
+ * grow when there are more constraints, bodies or colors than before, and waiting for the tasks creates no
+ * objects either (see {@link ParallelBatch}), so solving creates no objects once warmed up.
+ *
+ * Every non-static body involved in a constraint is expected to be in the given {@link BodyStore}.
+ */
+public class GraphColoringVelocitySolver implements VelocitySolver
+{
+    private final static int MAX_COLORS = Long.SIZE;
+    private final static int UNCOLORED = -1;
+
+    // Colors with fewer constraints than this are not split up, since the overhead would outweigh the gain
+    private final static int MIN_CONSTRAINTS_PER_TASK = 32;
+
+    private ParallelBatch batch;
+
+    // For each body of the body store, the bit of each color used by a constraint involving the body
+    private long[] usedColorsPerBody;
+
+    // The leaves of the current time step and the color of each leaf, or UNCOLORED
+    private List<ActiveVelocityConstraint> leaves;
+    private int[] leafColors;
+    private int colorCount;
+
+    // The leaves sorted by color, where color i is in the range colorEnds[i - 1] until colorEnds[i], followed
+    // by the uncolored leaves
+    private List<ActiveVelocityConstraint> sortedLeaves;
+    private int[] colorEnds;
+    private ConstraintSlice uncolored;
+    private ActiveVelocityConstraintList uncoloredList;
+
+    // The constraints of each color are split into the first taskCounts[color] tasks of the color
+    private List<List<ChunkTask>> tasksPerColor;
+    private int[] taskCounts;
+
+    // The state of the leaf currently being colored, see colorLeaf
+    private BodyStore coloringStore;
+    private Consumer<ActiveVelocityConstraint> leafColorer;
+    private Consumer<Body> bodyCollector;
+    private int[] leafBodyIndices;
+    private int leafBodyCount;
+    private boolean leafInvolvesForeignBody;
+
+    private int lastIterationCount;
+    private double lastResidual;
+
+    private GraphColoringVelocitySolver(final ForkJoinPool pool) {
+	batch = new ParallelBatch(pool);
+	usedColorsPerBody = new long[0];
+	leaves = new ArrayList<>();
+	leafColors = new int[0];
+	colorCount = 0;
+	sortedLeaves = new ArrayList<>();
+	colorEnds = new int[MAX_COLORS];
+	uncolored = new ConstraintSlice(sortedLeaves);
+	uncoloredList = ActiveVelocityConstraintList.createViewWithSingleIteration(uncolored);
+	// There are few enough colors and tasks per color to create all of them up front
+	tasksPerColor = new ArrayList<>(MAX_COLORS);
+	for (int color = 0; color < MAX_COLORS; color++) {
+	    final List<ChunkTask> tasks = new ArrayList<>(batch.getParallelism());
+	    for (int i = 0; i < batch.getParallelism(); i++) {
+		tasks.add(new ChunkTask(sortedLeaves));
+	    }
+	    tasksPerColor.add(tasks);
+	}
+	taskCounts = new int[MAX_COLORS];
+	coloringStore = null;
+	leafColorer = this::colorLeaf;
+	bodyCollector = this::collectBody;
+	leafBodyIndices = new int[2];
+	leafBodyCount = 0;
+	leafInvolvesForeignBody = false;
+	lastIterationCount = 0;
+	lastResidual = 0;
+    }
+
+    /**
+     * Creates a GraphColoringVelocitySolver that solves the constraints of each color on the given pool
+     *
+     * @param pool The pool to solve constraints on
+     * @return The created GraphColoringVelocitySolver
+     */
+    public static GraphColoringVelocitySolver create(final ForkJoinPool pool) {
+	return new GraphColoringVelocitySolver(pool);
+    }
+
+    /**
+     * Creates a GraphColoringVelocitySolver that solves the constraints of each color on the common pool
+     *
+     * @return The created GraphColoringVelocitySolver
+     */
+    public static GraphColoringVelocitySolver createWithCommonPool() {
+	return create(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Colors the leaves of the sub constraints of the given list and solves them color by color, with the
+     * maximum number of iterations and tolerance of the given list
+     *
+     * @param velConstraint The velocity constraints to solve
+     * @param bodyStore The store of the bodies that the constraints involve
+     */
+    @Override public void solve(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	colorLeaves(velConstraint, bodyStore);
+	for (int color = 0; color < colorCount; color++) {
+	    splitIntoTasks(color);
+	}
+
+	lastIterationCount = 0;
+	lastResidual = 0;
+	while (lastIterationCount < velConstraint.getMaxIterations()) {
+	    lastResidual = 0;
+	    for (int color = 0; color < colorCount; color++) {
+		lastResidual = Math.max(lastResidual, solveInParallel(color));
+	    }
+	    lastResidual = Math.max(lastResidual, uncoloredList.updateImpulse());
+	    lastIterationCount++;
+	    if (lastResidual < velConstraint.getTolerance()) {
+		break;
+	    }
+	}
+    }
+
+    /**
+     * Gives each leaf the smallest color not yet used by any of its bodies, in the order of the leaves
+     */
+    private void colorLeaves(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	if (usedColorsPerBody.length < bodyStore.size()) {
+	    usedColorsPerBody = new long[bodyStore.size()];
+	}
+	Arrays.fill(usedColorsPerBody, 0);
+	leaves.clear();
+	colorCount = 0;
+
+	coloringStore = bodyStore;
+	velConstraint.forEachSubLeaf(leafColorer);
+	sortLeavesByColor();
+    }
+
+    private void colorLeaf(final ActiveVelocityConstraint leaf) {
+	leafBodyCount = 0;
+	leafInvolvesForeignBody = false;
+	leaf.forEachBody(bodyCollector);
+
+	long usedColors = 0;
+	for (int i = 0; i < leafBodyCount; i++) {
+	    usedColors |= usedColorsPerBody[leafBodyIndices[i]];
+	}
+	final int color = Long.numberOfTrailingZeros(~usedColors);
+	final int leafIndex = leaves.size();
+	leaves.add(leaf);
+	if (leafColors.length == leafIndex) {
+	    leafColors = Arrays.copyOf(leafColors, Math.max(16, 2 * leafIndex));
+	}
+	if (leafInvolvesForeignBody || leafBodyCount == 0 || color >= MAX_COLORS) {
+	    // We can not tell which other constraints this one is independent of
+	    leafColors[leafIndex] = UNCOLORED;
+	    return;
+	}
+
+	for (int i = 0; i < leafBodyCount; i++) {
+	    usedColorsPerBody[leafBodyIndices[i]] |= 1L << color;
+	}
+	colorCount = Math.max(colorCount, color + 1);
+	leafColors[leafIndex] = color;
+    }
+
+    private void collectBody(final Body body) {
+	if (body.getStore() != coloringStore) {
+	    leafInvolvesForeignBody = true;
+	} else if (!coloringStore.isStatic(body.getIndex())) {
+	    if (leafBodyCount == leafBodyIndices.length) {
+		leafBodyIndices = Arrays.copyOf(leafBodyIndices, 2 * leafBodyCount);
+	    }
+	    leafBodyIndices[leafBodyCount] = body.getIndex();
+	    leafBodyCount++;
+	}
+    }
+
+    /**
+     * Sorts the leaves by color with a counting sort, which keeps the order of the leaves within each color
+     */
+    private void sortLeavesByColor() {
+	final int leafCount = leaves.size();
+	Arrays.fill(colorEnds, 0);
+	for (int i = 0; i < leafCount; i++) {
+	    if (leafColors[i] != UNCOLORED) {
+		colorEnds[leafColors[i]]++;
+	    }
+	}
+	// Each color starts where the previous one ends, and is filled backwards from its end
+	for (int color = 1; color < colorCount; color++) {
+	    colorEnds[color] += colorEnds[color - 1];
+	}
+	final int coloredCount = colorCount == 0 ? 0 : colorEnds[colorCount - 1];
+	int uncoloredEnd = leafCount;
+
+	while (sortedLeaves.size() < leafCount) {
+	    sortedLeaves.add(null);
+	}
+	while (sortedLeaves.size() > leafCount) {
+	    sortedLeaves.remove(sortedLeaves.size() - 1);
+	}
+	for (int i = leafCount - 1; i >= 0; i--) {
+	    final int color = leafColors[i];
+	    if (color == UNCOLORED) {
+		uncoloredEnd--;
+		sortedLeaves.set(uncoloredEnd, leaves.get(i));
+	    } else {
+		colorEnds[color]--;
+		sortedLeaves.set(colorEnds[color], leaves.get(i));
+	    }
+	}
+	// Every color is now filled down to its start, which is where the previous color ends
+	for (int color = 0; color < colorCount; color++) {
+	    colorEnds[color] = color + 1 < colorCount ? colorEnds[color + 1] : coloredCount;
+	}
+	uncolored.setRange(coloredCount, leafCount);
+    }
+
+    /**
+     * Splits the constraints of the given color into contiguous chunks, one for each task of the color
+     */
+    private void splitIntoTasks(final int color) {
+	final List<ChunkTask> tasks = tasksPerColor.get(color);
+	final int colorStart = color == 0 ? 0 : colorEnds[color - 1];
+	final int colorSize = colorEnds[color] - colorStart;
+
+	final int maxTaskCount = Math.max(1, colorSize / MIN_CONSTRAINTS_PER_TASK);
+	final int taskCount = Math.min(batch.getParallelism(), maxTaskCount);
+	for (int i = 0; i < taskCount; i++) {
+	    final int start = colorStart + i * colorSize / taskCount;
+	    final int end = colorStart + (i + 1) * colorSize / taskCount;
+	    tasks.get(i).constraints.setRange(start, end);
+	}
+	taskCounts[color] = taskCount;
+    }
+
+    /**
+     * Solves each of the independent chunks of the given color once and waits for all of them to finish
+     *
+     * @return The largest absolute change of any impulse
+     */
+    private double solveInParallel(final int color) {
+	final List<ChunkTask> tasks = tasksPerColor.get(color);
+	final int taskCount = taskCounts[color];
+	if (taskCount == 1) {
+	    return tasks.get(0).chunk.updateImpulse();
+	}
+	batch.run(tasks, taskCount);
+	double maxDeltaImpulse = 0;
+	for (int i = 0; i < taskCount; i++) {
+	    maxDeltaImpulse = Math.max(maxDeltaImpulse, tasks.get(i).chunk.getLastResidual());
+	}
+	return maxDeltaImpulse;
+    }
+
+    @Override public int getLastIterationCount() {
+	return lastIterationCount;
+    }
+
+    @Override public double getLastResidual() {
+	return lastResidual;
+    }
+
+    /**
+     * Solves a chunk of the constraints of a color once, which is a range of the leaves sorted by color. The task
+     * is reused by later time steps.
+     */
+    private static class ChunkTask implements Runnable
+    {
+	private final ConstraintSlice constraints;
+	private final ActiveVelocityConstraintList chunk;
+
+	private ChunkTask(final List<ActiveVelocityConstraint> sortedLeaves) {
+	    constraints = new ConstraintSlice(sortedLeaves);
+	    chunk = ActiveVelocityConstraintList.createViewWithSingleIteration(constraints);
+	}
+
+	@Override public void run() {
+	    chunk.updateImpulse();
+	}
+    }
+}
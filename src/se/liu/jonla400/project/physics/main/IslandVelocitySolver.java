@@ -0,0 +1,298 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraint;
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Represents a {@link VelocitySolver} that splits the velocity constraints into independent islands
+ * and solves the islands in parallel on a {@link ForkJoinPool}. Two constraints belong to the same
+ * island if they (directly or through other constraints) involve the same body. Static bodies never
+ * connect islands, since no constraint can change their velocities.
+ *
+ * Since islands share no bodies, solving them in parallel gives the same result as solving them one after
+ * the other. The islands are ordered by their first constraint, and their results are gathered in that
+ * order, which keeps each tick reproducible regardless of the number of threads.
+ *
+ * The lists, arrays and tasks used to split up and solve the islands are kept between time steps and only
+ * grow when there are more constraints, bodies or islands than they have room for. They then grow to twice the
+ * size needed, so that a number of contacts that goes up and down a little does not grow them again. Waiting for
+ * the islands creates no objects either (see {@link ParallelBatch}), so solving creates no objects once warmed up.
+ *
+ * Every non-static body involved in a constraint is expected to be in the given {@link BodyStore}.
+ */
+public class IslandVelocitySolver implements VelocitySolver
+{
+    private final static int NO_BODY = -1;
+    private final static int NO_ISLAND = -1;
+
+    private ParallelBatch batch;
+
+    // The islands of bodies, as a union-find forest over the indices of the body store
+    private int[] islandParent;
+    // The index of the island of each root of the forest, or NO_ISLAND if it has not been given an island yet
+    private int[] islandOfRoot;
+
+    // The leaves of the current time step, the index of a body of the store that each leaf involves and the
+    // index of the island of each leaf
+    private List<ActiveVelocityConstraint> leaves;
+    private Consumer<ActiveVelocityConstraint> leafAdder;
+    private int[] leafBodies;
+    private int[] leafIslands;
+
+    // The leaves sorted by island, where island i is in the range islandEnds[i - 1] until islandEnds[i]
+    private List<ActiveVelocityConstraint> sortedLeaves;
+    private int[] islandEnds;
+
+    // The body store and the first body joined by the leaf currently being joined, see joinIslandsOf
+    private BodyStore joiningStore;
+    private int firstJoinedBody;
+    private Consumer<Body> bodyJoiner;
+
+    // The islands of the current time step are the first islandCount tasks, which are kept between time steps
+    private List<IslandTask> islandTasks;
+    private int islandCount;
+
+    private int lastIterationCount;
+    private double lastResidual;
+
+    private IslandVelocitySolver(final ForkJoinPool pool) {
+	batch = new ParallelBatch(pool);
+	islandParent = new int[0];
+	islandOfRoot = new int[0];
+	leaves = new ArrayList<>();
+	leafAdder = leaves::add;
+	leafBodies = new int[0];
+	leafIslands = new int[0];
+	sortedLeaves = new ArrayList<>();
+	islandEnds = new int[0];
+	joiningStore = null;
+	firstJoinedBody = NO_BODY;
+	bodyJoiner = this::joinIslandOf;
+	islandTasks = new ArrayList<>();
+	islandCount = 0;
+	lastIterationCount = 0;
+	lastResidual = 0;
+    }
+
+    /**
+     * Creates an IslandVelocitySolver that solves islands on the given pool
+     *
+     * @param pool The pool to solve islands on
+     * @return The created IslandVelocitySolver
+     */
+    public static IslandVelocitySolver create(final ForkJoinPool pool) {
+	return new IslandVelocitySolver(pool);
+    }
+
+    /**
+     * Creates an IslandVelocitySolver that solves islands on the common pool, which uses all available cores
+     *
+     * @return The created IslandVelocitySolver
+     */
+    public static IslandVelocitySolver createWithCommonPool() {
+	return create(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Splits the velocity constraints into islands and solves each island separately, with the
+     * maximum number of iterations and tolerance of the given list
+     *
+     * @param velConstraint The velocity constraints to solve
+     * @param bodyStore The store of the bodies that the constraints involve
+     */
+    @Override public void solve(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	findIslands(velConstraint, bodyStore);
+
+	if (islandCount <= 1) {
+	    // Not worth the overhead of parallelism
+	    for (int i = 0; i < islandCount; i++) {
+		islandTasks.get(i).island.updateImpulse();
+	    }
+	} else {
+	    batch.run(islandTasks, islandCount);
+	}
+
+	lastIterationCount = 0;
+	lastResidual = 0;
+	for (int i = 0; i < islandCount; i++) {
+	    final ActiveVelocityConstraintList island = islandTasks.get(i).island;
+	    lastIterationCount = Math.max(lastIterationCount, island.getLastIterationCount());
+	    lastResidual = Math.max(lastResidual, island.getLastResidual());
+	}
+    }
+
+    /**
+     * Groups the leaves of the sub constraints of the given list into islands, keeping the order of the leaves within each
+     * island. Leaves that involve no non-static body of the store are placed in an island of their own, after the others.
+     */
+    private void findIslands(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	leaves.clear();
+	velConstraint.forEachSubLeaf(leafAdder);
+
+	final int leafCount = leaves.size();
+	resetIslands(bodyStore.size());
+	if (leafBodies.length < leafCount) {
+	    // Every island has a leaf, so there are never more islands than leaves
+	    final int capacity = 2 * leafCount;
+	    leafBodies = new int[capacity];
+	    leafIslands = new int[capacity];
+	    islandEnds = new int[capacity];
+	}
+	for (int i = 0; i < leafCount; i++) {
+	    leafBodies[i] = joinIslandsOf(leaves.get(i), bodyStore);
+	}
+
+	// The islands are numbered by their first leaf, except for the unattached leaves that are solved last
+	islandCount = 0;
+	boolean hasUnattachedLeaves = false;
+	for (int i = 0; i < leafCount; i++) {
+	    if (leafBodies[i] == NO_BODY) {
+		hasUnattachedLeaves = true;
+		leafIslands[i] = NO_ISLAND;
+		continue;
+	    }
+	    final int root = findIsland(leafBodies[i]);
+	    if (islandOfRoot[root] == NO_ISLAND) {
+		islandOfRoot[root] = islandCount;
+		islandCount++;
+	    }
+	    leafIslands[i] = islandOfRoot[root];
+	}
+	if (hasUnattachedLeaves) {
+	    for (int i = 0; i < leafCount; i++) {
+		if (leafIslands[i] == NO_ISLAND) {
+		    leafIslands[i] = islandCount;
+		}
+	    }
+	    islandCount++;
+	}
+
+	sortLeavesByIsland(leafCount);
+	if (islandTasks.size() < islandCount) {
+	    final int taskCount = 2 * islandCount;
+	    while (islandTasks.size() < taskCount) {
+		islandTasks.add(new IslandTask(sortedLeaves, velConstraint.getMaxIterations(), velConstraint.getTolerance()));
+	    }
+	}
+	for (int island = 0; island < islandCount; island++) {
+	    final int start = island == 0 ? 0 : islandEnds[island - 1];
+	    islandTasks.get(island).reset(start, islandEnds[island], velConstraint.getMaxIterations(), velConstraint.getTolerance());
+	}
+    }
+
+    /**
+     * Sorts the leaves by island with a counting sort, which keeps the order of the leaves within each island
+     */
+    private void sortLeavesByIsland(final int leafCount) {
+	Arrays.fill(islandEnds, 0, islandCount, 0);
+	for (int i = 0; i < leafCount; i++) {
+	    islandEnds[leafIslands[i]]++;
+	}
+	// Each island starts where the previous one ends, and is filled backwards from its end
+	for (int island = 1; island < islandCount; island++) {
+	    islandEnds[island] += islandEnds[island - 1];
+	}
+	while (sortedLeaves.size() < leafCount) {
+	    sortedLeaves.add(null);
+	}
+	while (sortedLeaves.size() > leafCount) {
+	    sortedLeaves.remove(sortedLeaves.size() - 1);
+	}
+	for (int i = leafCount - 1; i >= 0; i--) {
+	    final int island = leafIslands[i];
+	    islandEnds[island]--;
+	    sortedLeaves.set(islandEnds[island], leaves.get(i));
+	}
+	// Every island is now filled down to its start, which is where the previous island ends
+	for (int island = 0; island < islandCount; island++) {
+	    islandEnds[island] = island + 1 < islandCount ? islandEnds[island + 1] : leafCount;
+	}
+    }
+
+    private void resetIslands(final int bodyCount) {
+	if (islandParent.length < bodyCount) {
+	    islandParent = new int[bodyCount];
+	    islandOfRoot = new int[bodyCount];
+	}
+	for (int i = 0; i < bodyCount; i++) {
+	    islandParent[i] = i;
+	}
+	Arrays.fill(islandOfRoot, NO_ISLAND);
+    }
+
+    /**
+     * Joins the islands of every non-static body of the store that the constraint involves
+     *
+     * @return The index of one of the joined bodies, or NO_BODY if no body was joined
+     */
+    private int joinIslandsOf(final ActiveVelocityConstraint constraint, final BodyStore bodyStore) {
+	joiningStore = bodyStore;
+	firstJoinedBody = NO_BODY;
+	constraint.forEachBody(bodyJoiner);
+	return firstJoinedBody;
+    }
+
+    private void joinIslandOf(final Body body) {
+	if (body.getStore() != joiningStore || joiningStore.isStatic(body.getIndex())) {
+	    return;
+	}
+	if (firstJoinedBody == NO_BODY) {
+	    firstJoinedBody = body.getIndex();
+	} else {
+	    islandParent[findIsland(body.getIndex())] = findIsland(firstJoinedBody);
+	}
+    }
+
+    private int findIsland(final int bodyIndex) {
+	int current = bodyIndex;
+	while (islandParent[current] != current) {
+	    // Path halving keeps later searches short
+	    islandParent[current] = islandParent[islandParent[current]];
+	    current = islandParent[current];
+	}
+	return current;
+    }
+
+    @Override public int getLastIterationCount() {
+	return lastIterationCount;
+    }
+
+    @Override public double getLastResidual() {
+	return lastResidual;
+    }
+
+    /**
+     * Solves the constraints of an island, which are a range of the leaves sorted by island. The task is reused by
+     * later time steps.
+     */
+    private static class IslandTask implements Runnable
+    {
+	private final ConstraintSlice leaves;
+	private ActiveVelocityConstraintList island;
+
+	private IslandTask(final List<ActiveVelocityConstraint> sortedLeaves, final int maxIterations, final double tolerance) {
+	    leaves = new ConstraintSlice(sortedLeaves);
+	    island = ActiveVelocityConstraintList.createViewWithTolerance(leaves, maxIterations, tolerance);
+	}
+
+	/**
+	 * Makes the island the given range of the sorted leaves, solved with the given iterations and tolerance
+	 */
+	private void reset(final int start, final int end, final int maxIterations, final double tolerance) {
+	    leaves.setRange(start, end);
+	    if (island.getMaxIterations() != maxIterations || island.getTolerance() != tolerance) {
+		island = ActiveVelocityConstraintList.createViewWithTolerance(leaves, maxIterations, tolerance);
+	    }
+	}
+
+	@Override public void run() {
+	    island.updateImpulse();
+	}
+    }
+}
@@ -0,0 +1,146 @@
+package se.liu.jonla400.project.physics.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs batches of independent actions in parallel on a {@link ForkJoinPool}, and waits for each batch to finish
+ * before returning. The calling thread and one task for each other thread of the pool take turns claiming the
+ * next action of the batch until every action has been claimed.
+ *
+ * Unlike {@link java.util.concurrent.ForkJoinTask#join()}, which creates a wait node each time the calling thread
+ * has to wait for a task, the calling thread is parked until the last task of the batch unparks it. The tasks
+ * are created up front and reused by every batch, so running a batch creates no objects.
+ *
+ * A batch must only be run by one thread at a time.
+ */
+class ParallelBatch
+{
+    private ForkJoinPool pool;
+    private List<BatchTask> tasks;
+
+    // The actions of the current batch, and the index of the next action to claim
+    private List<? extends Runnable> actions;
+    private int actionCount;
+    private AtomicInteger nextAction;
+
+    // The number of tasks of the current batch that are still running on the pool
+    private AtomicInteger remainingCount;
+    private volatile Thread waiter;
+    // The first exception thrown by an action of the current batch, or null if none has been thrown
+    private AtomicReference<RuntimeException> failure;
+
+    ParallelBatch(final ForkJoinPool pool) {
+	this.pool = pool;
+	tasks = new ArrayList<>();
+	for (int i = 1; i < pool.getParallelism(); i++) {
+	    tasks.add(new BatchTask());
+	}
+	actions = null;
+	actionCount = 0;
+	nextAction = new AtomicInteger(0);
+	remainingCount = new AtomicInteger(0);
+	waiter = null;
+	failure = new AtomicReference<>(null);
+    }
+
+    /**
+     * @return The number of threads of the pool that the actions run on
+     */
+    int getParallelism() {
+	return pool.getParallelism();
+    }
+
+    /**
+     * Runs the first given number of actions in parallel and waits for all of them to finish. The first runtime
+     * exception thrown by an action is rethrown, wrapped, once every action has finished. An error thrown by an
+     * action is not caught, and is rethrown as it is once the other actions have finished.
+     *
+     * @param actions The actions, which must not depend on each other
+     * @param count The number of actions to run
+     */
+    void run(final List<? extends Runnable> actions, final int count) {
+	if (count == 0) {
+	    return;
+	}
+	this.actions = actions;
+	actionCount = count;
+	nextAction.set(0);
+	failure.set(null);
+	waiter = Thread.currentThread();
+	final int taskCount = Math.min(tasks.size(), count - 1);
+	remainingCount.set(taskCount);
+	for (int i = 0; i < taskCount; i++) {
+	    final BatchTask task = tasks.get(i);
+	    task.reinitialize();
+	    pool.execute(task);
+	}
+
+	try {
+	    runClaimedActions();
+	} finally {
+	    // The other actions may still be using the same bodies, so they must finish before anything else happens
+	    while (remainingCount.get() > 0) {
+		LockSupport.park(this);
+	    }
+	    waiter = null;
+	    // A task must be marked as done before it can be reused, which the pool does right after the task has
+	    // returned. Every task has returned from its last action by now, and marking it takes no lock and waits
+	    // for nothing, so this only spins until the pool threads have been given the time to do so.
+	    for (int i = 0; i < taskCount; i++) {
+		while (!tasks.get(i).isDone()) {
+		    Thread.yield();
+		}
+	    }
+	    this.actions = null;
+	}
+	for (int i = 0; i < taskCount; i++) {
+	    final Throwable taskException = tasks.get(i).getException();
+	    if (taskException instanceof Error) {
+		throw (Error) taskException;
+	    }
+	}
+	final RuntimeException firstFailure = failure.get();
+	if (firstFailure != null) {
+	    throw new IllegalStateException("An action run in parallel failed", firstFailure);
+	}
+    }
+
+    /**
+     * Claims and runs actions of the current batch until every action has been claimed. The first runtime
+     * exception thrown by an action is remembered, and the remaining actions are still run.
+     */
+    private void runClaimedActions() {
+	for (int i = nextAction.getAndIncrement(); i < actionCount; i = nextAction.getAndIncrement()) {
+	    try {
+		actions.get(i).run();
+	    } catch (RuntimeException e) {
+		failure.compareAndSet(null, e);
+	    }
+	}
+    }
+
+    /**
+     * Runs actions of the current batch on the pool, and unparks the waiting thread if it was the last task of
+     * the batch to finish
+     */
+    private class BatchTask extends RecursiveAction
+    {
+	private final static long serialVersionUID = 1L;
+
+	@Override protected void compute() {
+	    try {
+		runClaimedActions();
+	    } finally {
+		if (remainingCount.decrementAndGet() == 0) {
+		    LockSupport.unpark(waiter);
+		}
+	    }
+	}
+    }
+}
@@ -1,44 +1,128 @@
 package se.liu.jonla400.project.physics.main;
 
+import se.liu.jonla400.project.math.Vector2D;
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
 import se.liu.jonla400.project.physics.constraint.IterativeVelocityConstrainer;
 import se.liu.jonla400.project.physics.constraint.VelocityConstrainer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.List;
 
 /**
  * Represents a physics engine that keeps track of {@link Body} objects and
  * {@link VelocityConstrainer} objects constraining the bodies' velocities. When asking
  * the physics engine to advance time forward, the velocity constraints are first attempted
- * to be solved, followed by moving the bodies according to their velocities.
+ * to be solved, followed by moving the bodies according to their velocities. The state of the
+ * added bodies is kept in a {@link BodyStore}, so that all bodies are moved in one pass. Bodies
+ * that have been still for a while fall asleep and are not moved until they are woken up.
+ *
+ * The velocity constraints are solved by a {@link VelocitySolver}, which solves them one after the other
+ * unless another solver is set. Every non-static body constrained by the velocity constraints should be
+ * added to the engine, since solvers may rely on the bodies being in the body store of the engine.
+ *
+ * Continuous collision detection is enabled by adding {@link TimeOfImpactFinder}s. After the velocity constraints
+ * have been solved, the time of impact of each finder's body is found, and once the bodies have been moved, each
+ * body that hit something is moved back to where it hit it. Bodies without a finder always move the whole
+ * time step.
  */
 public class PhysicsEngine
 {
-    private Collection<Body> bodies;
+    private BodyStore bodyStore;
     private IterativeVelocityConstrainer iterativeVelConstrainer;
+    private VelocitySolver velSolver;
+    private List<TimeOfImpactFinder> timeOfImpactFinders;
+    // The times of impact found during the current tick, in the same order as the finders
+    private double[] timesOfImpact;
 
-    private PhysicsEngine(final Collection<Body> bodies, final IterativeVelocityConstrainer iterativeVelConstrainer) {
-	this.bodies = bodies;
+    private int lastVelIterationCount;
+    private double lastVelResidual;
+
+    private PhysicsEngine(final BodyStore bodyStore, final IterativeVelocityConstrainer iterativeVelConstrainer) {
+	this.bodyStore = bodyStore;
 	this.iterativeVelConstrainer = iterativeVelConstrainer;
+	velSolver = new SequentialVelocitySolver();
+	timeOfImpactFinders = new ArrayList<>();
+	timesOfImpact = new double[0];
+	lastVelIterationCount = 0;
+	lastVelResidual = 0;
     }
 
     /**
-     * Creates a new PhysicsEngine with a default number of iterations for solving the velocity
+     * Creates a new PhysicsEngine with a default maximum number of iterations for solving the velocity
      * constraints. More iterations often means that a more accurate approximation of a global
-     * solution for the constraints is found.
+     * solution for the constraints is found. The iterations stop early once the solution has converged,
+     * which thanks to collision constraints being warm started is usually after a few iterations.
      *
      * @return The created PhysicsEngine
      */
     public static PhysicsEngine createWithDefaultVelIterations() {
-	return new PhysicsEngine(new ArrayList<>(), new IterativeVelocityConstrainer(10));
+	final int maxVelIterations = 10;
+	final double velTolerance = 1.0e-4;
+	return createWithAdaptiveVelIterations(maxVelIterations, velTolerance);
+    }
+
+    /**
+     * Creates a new PhysicsEngine that solves the velocity constraints until no impulse changes by more than
+     * the given tolerance during an iteration, but never for more than the given maximum number of iterations
+     *
+     * @param maxVelIterations The largest number of times to solve the velocity constraints one-by-one each time step, must be positive
+     * @param velTolerance The largest change of impulse during an iteration that is considered converged
+     * @return The created PhysicsEngine
+     */
+    public static PhysicsEngine createWithAdaptiveVelIterations(final int maxVelIterations, final double velTolerance) {
+	if (maxVelIterations <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of velocity iterations: " + maxVelIterations);
+	}
+	return new PhysicsEngine(BodyStore.createEmpty(), new IterativeVelocityConstrainer(maxVelIterations, velTolerance));
+    }
+
+    /**
+     * Creates a new PhysicsEngine with the given number of iterations for solving the velocity
+     * constraints
+     *
+     * @param velIterations The number of times to solve the velocity constraints one-by-one each time step, must be positive
+     * @return The created PhysicsEngine
+     */
+    public static PhysicsEngine createWithVelIterations(final int velIterations) {
+	if (velIterations <= 0) {
+	    throw new IllegalArgumentException("Non-positive number of velocity iterations: " + velIterations);
+	}
+	return new PhysicsEngine(BodyStore.createEmpty(), new IterativeVelocityConstrainer(velIterations));
     }
 
     /**
+     * Adds bodies by moving their state into the body store of this engine. The bodies
+     * can still be used as before.
+     *
      * @param bodies The bodies to be added
      */
     public void add(final Body... bodies) {
-	this.bodies.addAll(Arrays.asList(bodies));
+	for (Body body : bodies) {
+	    bodyStore.adopt(body);
+	}
+    }
+
+    /**
+     * Sets when the added bodies fall asleep, see {@link BodyStore#setSleepThresholds(double, double, double)}
+     *
+     * @param velThreshold The speed below which a body is considered still
+     * @param angularVelThreshold The angular speed below which a body is considered still
+     * @param timeUntilSleep How long a body has to be still before falling asleep
+     */
+    public void setSleepThresholds(final double velThreshold, final double angularVelThreshold, final double timeUntilSleep) {
+	bodyStore.setSleepThresholds(velThreshold, angularVelThreshold, timeUntilSleep);
+    }
+
+    /**
+     * Sets how the velocity constraints are solved each time step, for example with an {@link IslandVelocitySolver}
+     * to solve independent groups of bodies in parallel, or with a {@link GraphColoringVelocitySolver} to solve a
+     * single large group of bodies in parallel
+     *
+     * @param velSolver The solver of the velocity constraints
+     */
+    public void setVelSolver(final VelocitySolver velSolver) {
+	this.velSolver = velSolver;
     }
 
     /**
@@ -48,14 +132,61 @@ public class PhysicsEngine
 	iterativeVelConstrainer.add(velConstrainer);
     }
 
+    /**
+     * Enables continuous collision detection for the bodies of the given time of impact finders, whose bodies
+     * should be added to this engine as well
+     *
+     * @param finders The time of impact finders to be added
+     */
+    public void add(final TimeOfImpactFinder... finders) {
+	timeOfImpactFinders.addAll(Arrays.asList(finders));
+	timesOfImpact = new double[timeOfImpactFinders.size()];
+    }
+
     /**
      * Ticks time forward by first constraining the velocities of the bodies and then moving
-     * the bodies along their velocities
+     * the bodies along their velocities. Bodies with a time of impact finder are only moved until
+     * their first impact.
      *
      * @param deltaTime The size of the time step
      */
     public void tick(final double deltaTime) {
-	iterativeVelConstrainer.generateConstraint(deltaTime).updateImpulse();
-	bodies.forEach(b -> b.tick(deltaTime));
+	final ActiveVelocityConstraintList velConstraint = iterativeVelConstrainer.generateConstraint(deltaTime);
+	velSolver.solve(velConstraint, bodyStore);
+	lastVelIterationCount = velSolver.getLastIterationCount();
+	lastVelResidual = velSolver.getLastResidual();
+	// The times of impact must be found before any body has moved
+	for (int i = 0; i < timeOfImpactFinders.size(); i++) {
+	    timesOfImpact[i] = timeOfImpactFinders.get(i).findTimeOfImpact(deltaTime);
+	}
+	bodyStore.tick(deltaTime);
+	stopBodiesAtTimesOfImpact();
+    }
+
+    private void stopBodiesAtTimesOfImpact() {
+	for (int i = 0; i < timeOfImpactFinders.size(); i++) {
+	    final TimeOfImpactFinder finder = timeOfImpactFinders.get(i);
+	    final Body body = finder.getBody();
+	    final double timeOfImpact = Math.max(0, timesOfImpact[i]);
+	    if (timeOfImpact < 1 && body.getStore() == bodyStore) {
+		final Vector2D posAtImpact = finder.findPosAtImpact(timeOfImpact);
+		bodyStore.stopDuringLastTick(body.getIndex(), posAtImpact.getX(), posAtImpact.getY(), timeOfImpact);
+	    }
+	}
+    }
+
+    /**
+     * @return The number of iterations used to solve the velocity constraints during the last tick
+     */
+    public int getLastVelIterationCount() {
+	return lastVelIterationCount;
+    }
+
+    /**
+     * @return The largest change of any impulse during the last velocity iteration of the last tick,
+     *         which is below the tolerance unless the maximum number of iterations was reached
+     */
+    public double getLastVelResidual() {
+	return lastVelResidual;
     }
 }
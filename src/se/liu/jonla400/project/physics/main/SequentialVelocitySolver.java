@@ -0,0 +1,33 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
+
+/**
+ * Represents a {@link VelocitySolver} that solves all velocity constraints one-by-one on the calling thread
+ */
+public class SequentialVelocitySolver implements VelocitySolver
+{
+    private int lastIterationCount = 0;
+    private double lastResidual = 0;
+
+    /**
+     * Solves the velocity constraints by iterating over the whole list, as done by
+     * {@link ActiveVelocityConstraintList#updateImpulse()}
+     *
+     * @param velConstraint The velocity constraints to solve
+     * @param bodyStore The store of the bodies that the constraints are expected to involve (unused)
+     */
+    @Override public void solve(final ActiveVelocityConstraintList velConstraint, final BodyStore bodyStore) {
+	velConstraint.updateImpulse();
+	lastIterationCount = velConstraint.getLastIterationCount();
+	lastResidual = velConstraint.getLastResidual();
+    }
+
+    @Override public int getLastIterationCount() {
+	return lastIterationCount;
+    }
+
+    @Override public double getLastResidual() {
+	return lastResidual;
+    }
+}
@@ -0,0 +1,42 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.math.Vector2D;
+
+/**
+ * Finds how far into a time step a {@link Body} can move before it first hits something. A {@link PhysicsEngine}
+ * with time of impact finders stops each of their bodies at its first impact, instead of letting it move along
+ * its velocity for the whole time step (continuous collision detection). This keeps fast bodies from passing
+ * through thin objects between two time steps, which would otherwise require small time steps.
+ *
+ * Since what is hit may move as well, the body is not stopped where it was at the time of impact, but where it
+ * was relative to what it hit. The time of impact is found before the bodies are moved, and the position of the
+ * body at the impact is found after the bodies have been moved.
+ *
+ * The hit itself is not resolved by stopping the body. The body keeps its velocity, and is expected to be in
+ * contact with what it hit at the start of the next time step, where the contact is handled as usual.
+ */
+public interface TimeOfImpactFinder
+{
+    /**
+     * @return The body whose motion is stopped at its first impact
+     */
+    Body getBody();
+
+    /**
+     * Finds the fraction of the upcoming time step after which the body first hits something, given that every
+     * body moves along its current velocity and angular velocity during the time step
+     *
+     * @param deltaTime The size of the time step
+     * @return The fraction of the time step, between 0 and 1, where 1 means that nothing is hit
+     */
+    double findTimeOfImpact(double deltaTime);
+
+    /**
+     * Finds where the body should be stopped, given that the time of impact found for this time step was less than
+     * 1 and that every body has since been moved the whole time step
+     *
+     * @param timeOfImpact The time of impact found for this time step
+     * @return The position of the body at the impact, relative to where what it hit is now
+     */
+    Vector2D findPosAtImpact(double timeOfImpact);
+}
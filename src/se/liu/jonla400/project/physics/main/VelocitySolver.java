@@ -0,0 +1,30 @@
+package se.liu.jonla400.project.physics.main;
+
+import se.liu.jonla400.project.physics.constraint.ActiveVelocityConstraintList;
+
+/**
+ * Represents a strategy used by a {@link PhysicsEngine} to solve the velocity constraints of a time step.
+ * The constraints are given as an {@link ActiveVelocityConstraintList}, whose maximum number of iterations and
+ * tolerance should be respected. A solver may however reorder or split up the work, as long as constraints
+ * involving the same bodies are solved in the order of the list.
+ */
+public interface VelocitySolver
+{
+    /**
+     * Solves the given velocity constraints
+     *
+     * @param velConstraint The velocity constraints to solve
+     * @param bodyStore The store of the bodies that the constraints are expected to involve
+     */
+    void solve(ActiveVelocityConstraintList velConstraint, BodyStore bodyStore);
+
+    /**
+     * @return The largest number of iterations performed by any part of the last solve
+     */
+    int getLastIterationCount();
+
+    /**
+     * @return The largest residual left by any part of the last solve, see {@link ActiveVelocityConstraintList#getLastResidual()}
+     */
+    double getLastResidual();
+}